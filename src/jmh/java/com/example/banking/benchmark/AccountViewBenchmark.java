@@ -0,0 +1,68 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.dto.AccountSnapshot;
+import com.example.banking.model.Account;
+import com.example.banking.service.AccountService;
+
+/**
+ * {@code GET /api/accounts/{n}} served from the account cache versus loaded
+ * from the database on every call. Setup checks that a deposit refreshes the
+ * cached balance and version once it commits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AccountViewBenchmark {
+    private static final String CITIZEN_ID = "V0";
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private String accountNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        accountService = context.bean(AccountService.class);
+        accountNumber = context.createCustomers("V", 1, BigDecimal.TEN).get(0).accountNumber();
+        AccountSnapshot before = accountService.getAccountSnapshot(accountNumber, CITIZEN_ID);
+        accountService.deposit(accountNumber, BigDecimal.ONE);
+        AccountSnapshot after = accountService.getAccountSnapshot(accountNumber, CITIZEN_ID);
+        if (after.version() <= before.version() || after.balance().compareTo(before.balance().add(BigDecimal.ONE)) != 0) {
+            throw new IllegalStateException("Deposit did not refresh the cache: " + before + " -> " + after);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AccountSnapshot cached() {
+        return accountService.getAccountSnapshot(accountNumber, CITIZEN_ID);
+    }
+
+    @Benchmark
+    public Account uncached() {
+        return accountService.getAccountForCitizen(accountNumber, CITIZEN_ID);
+    }
+}
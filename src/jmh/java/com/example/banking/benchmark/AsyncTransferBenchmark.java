@@ -0,0 +1,134 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.dto.TransferJobResponse;
+import com.example.banking.dto.TransferJobResponse.Status;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.AsyncTransferService;
+
+/**
+ * Many threads sending from a few hot accounts, either on the calling thread
+ * or through {@link AsyncTransferService}. {@code sync} holds the thread for
+ * the transaction and contends for the sender's row lock; {@code submit}
+ * only holds it for the PIN check and the enqueue, which is what a request
+ * thread pays with {@code Prefer: respond-async}; {@code roundTrip} submits
+ * and polls until the transfer is done, so its throughput is the applied
+ * rate. Step-up tokens keep BCrypt out of the numbers. The {@code aborts}
+ * counter reports lock conflicts and {@code rejected} full partitions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(8)
+@Fork(1)
+public class AsyncTransferBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final String PREFIX = "Q";
+
+    @Param({"2"})
+    public int senders;
+
+    @Param({"16"})
+    public int accounts;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private AsyncTransferService asyncTransferService;
+    private List<BenchmarkContext.Customer> customers;
+    private String[] stepUpTokens;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long aborts;
+        public long rejected;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        asyncTransferService = context.bean(AsyncTransferService.class);
+        customers = context.createCustomers(PREFIX, accounts, new BigDecimal("1000000000"));
+        stepUpTokens = customers.stream().limit(senders)
+                .map(c -> accountService.stepUp(c.accountNumber(), c.email(), BenchmarkContext.PIN).token())
+                .toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object sync(Outcome outcome) {
+        int from = ThreadLocalRandom.current().nextInt(senders);
+        try {
+            return accountService.transfer(customers.get(from).accountNumber(), receiver(), AMOUNT,
+                    customers.get(from).email(), null, stepUpTokens[from]);
+        } catch (ConcurrencyFailureException e) {
+            outcome.aborts++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Object submit(Outcome outcome) {
+        return submit(ThreadLocalRandom.current().nextInt(senders), outcome);
+    }
+
+    @Benchmark
+    public Object roundTrip(Outcome outcome) {
+        int from = ThreadLocalRandom.current().nextInt(senders);
+        TransferJobResponse job = submit(from, outcome);
+        if (job == null) {
+            return null;
+        }
+        String owner = customers.get(from).email();
+        while (job.status() == Status.QUEUED || job.status() == Status.RUNNING) {
+            LockSupport.parkNanos(100_000);
+            job = asyncTransferService.status(job.id(), owner);
+        }
+        return job;
+    }
+
+    private TransferJobResponse submit(int from, Outcome outcome) {
+        try {
+            return asyncTransferService.submit(customers.get(from).accountNumber(), receiver(), AMOUNT,
+                    customers.get(from).email(), null, stepUpTokens[from]);
+        } catch (ResponseStatusException e) {
+            outcome.rejected++;
+            return null;
+        }
+    }
+
+    private String receiver() {
+        return customers.get(senders + ThreadLocalRandom.current().nextInt(accounts - senders)).accountNumber();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.banking.dto.BatchTransferItem;
+import com.example.banking.dto.BatchTransferRequest;
+import com.example.banking.dto.BatchTransferResponse;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.BatchTransferService;
+
+/**
+ * Cost of paying {@code items} beneficiaries from one account: one call to
+ * {@link BatchTransferService} versus the same number of single transfers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class BatchTransferBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"100"})
+    public int items;
+
+    @Param({"PARTIAL", "ATOMIC"})
+    public BatchTransferRequest.Mode mode;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private BatchTransferService batchTransferService;
+    private BenchmarkContext.Customer payer;
+    private BatchTransferRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        batchTransferService = context.bean(BatchTransferService.class);
+        payer = context.createCustomers("P", 1, new BigDecimal("1000000000")).get(0);
+        List<BenchmarkContext.Customer> payees = context.createCustomers("Q", items, BigDecimal.ZERO);
+        List<BatchTransferItem> batch = new ArrayList<>(items);
+        payees.forEach(p -> batch.add(new BatchTransferItem(p.accountNumber(), AMOUNT)));
+        request = new BatchTransferRequest(payer.accountNumber(), mode, BenchmarkContext.PIN, batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatchTransferResponse batch() {
+        BatchTransferResponse response = batchTransferService.transfer(request, payer.email(), null);
+        if (response.failed() > 0) {
+            throw new IllegalStateException(response.status() + ": " + response.items());
+        }
+        return response;
+    }
+
+    @Benchmark
+    public void singleTransfers(Blackhole blackhole) {
+        for (BatchTransferItem item : request.items()) {
+            blackhole.consume(accountService.transfer(payer.accountNumber(), item.toAccount(), item.amount(),
+                    payer.email(), BenchmarkContext.PIN));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.banking.BankingTransferApplication;
+import com.example.banking.dto.AccountRequest;
+import com.example.banking.dto.RegistrationRequest;
+import com.example.banking.model.Account;
+import com.example.banking.model.Setting;
+import com.example.banking.repository.SettingRepository;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.SettingsService;
+import com.example.banking.service.UserService;
+
+/**
+ * Boots the application on a random port for DB-backed benchmarks.
+ *
+ * <p>By default an in-memory H2 database in MySQL mode stands in for MySQL so
+ * the benchmarks run on an isolated build box. Pass
+ * {@code -Dbench.datasource.url=jdbc:mysql://...} (plus {@code .username} and
+ * {@code .password}) to the forked JVM to measure against a real server.</p>
+ */
+public final class BenchmarkContext implements AutoCloseable {
+    public static final String PIN = "123456";
+    public static final String PASSWORD = "password";
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static BenchmarkContext start() {
+        return start(Map.of());
+    }
+
+    public static BenchmarkContext start(Map<String, Object> overrides) {
+        Map<String, Object> props = new HashMap<>();
+        String url = System.getProperty("bench.datasource.url");
+        if (url == null) {
+            props.put("spring.datasource.url",
+                    "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE");
+            props.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            props.put("spring.datasource.username", "sa");
+            props.put("spring.datasource.password", "");
+            props.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+            props.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+            props.put("spring.flyway.enabled", "false");
+        } else {
+            props.put("spring.datasource.url", url);
+            props.put("spring.datasource.username", System.getProperty("bench.datasource.username", "root"));
+            props.put("spring.datasource.password", System.getProperty("bench.datasource.password", "secret"));
+        }
+        props.put("server.port", "0");
+        props.put("spring.main.banner-mode", "off");
+        props.put("logging.level.root", "WARN");
+        props.putAll(overrides);
+        // Passed as command line arguments so they win over application.properties.
+        String[] args = props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BankingTransferApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(args);
+        return new BenchmarkContext(context);
+    }
+
+    /**
+     * The random port the embedded server listens on.
+     */
+    public int port() {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Raises the daily transfer limit so long benchmark runs never hit it.
+     */
+    public void liftDailyLimit() {
+        Setting setting = new Setting();
+        setting.setName("DAILY_TRANSFER_LIMIT");
+        setting.setValue(new BigDecimal("100000000000000"));
+        bean(SettingRepository.class).save(setting);
+        bean(SettingsService.class).refresh();
+    }
+
+    /**
+     * Registers {@code count} customers, each owning one account funded with
+     * {@code balance}. Returns the customers in creation order.
+     */
+    public List<Customer> createCustomers(String prefix, int count, BigDecimal balance) {
+        UserService userService = bean(UserService.class);
+        AccountService accountService = bean(AccountService.class);
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String citizenId = prefix + i;
+            String email = prefix + i + "@bench.example.com";
+            userService.register(new RegistrationRequest(email, PASSWORD, citizenId,
+                    "Thai " + i, "English " + i, PIN));
+            Account account = accountService.createAccount(
+                    new AccountRequest(citizenId, "Thai " + i, "English " + i, balance));
+            customers.add(new Customer(email, account.getAccountNumber()));
+        }
+        return customers;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    public record Customer(String email, String accountNumber) {
+    }
+}
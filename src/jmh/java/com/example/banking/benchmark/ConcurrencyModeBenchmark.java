@@ -0,0 +1,129 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import com.example.banking.service.AccountService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Transfer throughput for each {@code banking.concurrency.mode}. With
+ * {@code LOW} contention every thread moves money between its own pair of
+ * accounts; with {@code HIGH} all threads move money back and forth between
+ * the same two.
+ * Transfers use step-up tokens so BCrypt does not dominate. The
+ * {@code aborts} counter reports transfers that failed after all retries and
+ * {@code retries} the optimistic retries made along the way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(4)
+@Fork(1)
+public class ConcurrencyModeBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final int PAIRS = 16;
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC", "ATOMIC"})
+    public String mode;
+
+    @Param({"LOW", "HIGH"})
+    public String contention;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private List<BenchmarkContext.Customer> customers;
+    private String[] stepUpTokens;
+    private final AtomicInteger nextPair = new AtomicInteger();
+    private final AtomicLong reportedRetries = new AtomicLong();
+    private Counter retryCounter;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long aborts;
+        public long retries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            aborts = 0;
+            retries = 0;
+        }
+
+        /**
+         * The retry meter is shared by all threads, so the first thread to
+         * finish the iteration reports all of it and the rest report none.
+         */
+        @TearDown(Level.Iteration)
+        public void collect(ConcurrencyModeBenchmark benchmark) {
+            long total = (long) benchmark.retryCounter.count();
+            retries = total - benchmark.reportedRetries.getAndSet(total);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pair {
+        int first;
+        int flip;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrencyModeBenchmark benchmark) {
+            first = "HIGH".equals(benchmark.contention) ? 0 : (benchmark.nextPair.getAndIncrement() % PAIRS) * 2;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of("banking.concurrency.mode", mode));
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        customers = context.createCustomers("C", PAIRS * 2, new BigDecimal("1000000000"));
+        stepUpTokens = customers.stream()
+                .map(c -> accountService.stepUp(c.accountNumber(), c.email(), BenchmarkContext.PIN).token())
+                .toArray(String[]::new);
+        retryCounter = context.bean(MeterRegistry.class).counter("banking.concurrency.retries", "mode", mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void transfer(Pair pair, Outcome outcome) {
+        int from = pair.first + (pair.flip ^= 1);
+        int to = pair.first + (pair.flip ^ 1);
+        BenchmarkContext.Customer source = customers.get(from);
+        try {
+            accountService.transfer(source.accountNumber(), customers.get(to).accountNumber(), AMOUNT,
+                    source.email(), null, stepUpTokens[from]);
+        } catch (ConcurrencyFailureException e) {
+            outcome.aborts++;
+        }
+    }
+}
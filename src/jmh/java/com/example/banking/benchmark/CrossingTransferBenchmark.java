@@ -0,0 +1,116 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.model.Account;
+import com.example.banking.repository.AccountRepository;
+
+/**
+ * Crossing A&rarr;B and B&rarr;A balance moves under SERIALIZABLE isolation,
+ * comparing the old lock-each-side-in-caller-order approach with the single
+ * canonically ordered {@code SELECT ... FOR UPDATE}. The {@code rollbacks}
+ * counter reports deadlock and lock-timeout aborts; use {@code -bm sample}
+ * output for p99. Run against MySQL for realistic deadlock detection.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class CrossingTransferBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"CALLER_ORDER", "CANONICAL"})
+    public String locking;
+
+    private BenchmarkContext context;
+    private AccountRepository accountRepository;
+    private TransactionTemplate transactionTemplate;
+    private String a;
+    private String b;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long rollbacks;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        accountRepository = context.bean(AccountRepository.class);
+        transactionTemplate = new TransactionTemplate(context.bean(PlatformTransactionManager.class));
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        List<BenchmarkContext.Customer> customers = context.createCustomers("X", 2, new BigDecimal("1000000000"));
+        a = customers.get(0).accountNumber();
+        b = customers.get(1).accountNumber();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("crossing")
+    @GroupThreads(4)
+    public void aToB(Outcome outcome) {
+        move(a, b, outcome);
+    }
+
+    @Benchmark
+    @Group("crossing")
+    @GroupThreads(4)
+    public void bToA(Outcome outcome) {
+        move(b, a, outcome);
+    }
+
+    private void move(String fromNumber, String toNumber, Outcome outcome) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Account from;
+                Account to;
+                if ("CANONICAL".equals(locking)) {
+                    Map<String, Account> locked = new HashMap<>();
+                    accountRepository.findAllByAccountNumberInForUpdate(List.of(fromNumber, toNumber))
+                            .forEach(acc -> locked.put(acc.getAccountNumber(), acc));
+                    from = locked.get(fromNumber);
+                    to = locked.get(toNumber);
+                } else {
+                    from = accountRepository.findByAccountNumberForUpdate(fromNumber).orElseThrow();
+                    to = accountRepository.findByAccountNumberForUpdate(toNumber).orElseThrow();
+                }
+                from.setBalance(from.getBalance().subtract(AMOUNT));
+                to.setBalance(to.getBalance().add(AMOUNT));
+            });
+        } catch (ConcurrencyFailureException e) {
+            outcome.rollbacks++;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.model.Account;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.IdempotencyService;
+
+/**
+ * A transfer executed in full versus a retry of an already completed
+ * transfer answered from its {@code Idempotency-Key}. Both check the PIN
+ * first, as the controller does. Setup checks that the retry does not move
+ * money a second time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class IdempotentTransferBenchmark {
+    private static final String KEY = "retry-1";
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private IdempotencyService idempotencyService;
+    private String email;
+    private String from;
+    private String to;
+    private String fingerprint;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        idempotencyService = context.bean(IdempotencyService.class);
+        List<BenchmarkContext.Customer> customers = context.createCustomers("I", 2, new BigDecimal("1000000000"));
+        email = customers.get(0).email();
+        from = customers.get(0).accountNumber();
+        to = customers.get(1).accountNumber();
+        fingerprint = IdempotencyService.fingerprint("transfer", from, to, BigDecimal.ONE);
+
+        AccountRepository accountRepository = context.bean(AccountRepository.class);
+        BigDecimal before = accountRepository.findByAccountNumber(from).map(Account::getBalance).orElseThrow();
+        if (transferWithKey().replayed() || !transferWithKey().replayed()) {
+            throw new IllegalStateException("Retry was not replayed");
+        }
+        BigDecimal after = accountRepository.findByAccountNumber(from).map(Account::getBalance).orElseThrow();
+        if (before.subtract(after).compareTo(BigDecimal.ONE) != 0) {
+            throw new IllegalStateException("Retry moved money again: " + before + " -> " + after);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account transfer() {
+        return accountService.transfer(from, to, BigDecimal.ONE, email, BenchmarkContext.PIN, null);
+    }
+
+    @Benchmark
+    public IdempotencyService.Result replay() {
+        return transferWithKey();
+    }
+
+    private IdempotencyService.Result transferWithKey() {
+        String citizenId = accountService.authorizeTransfer(from, BigDecimal.ONE, email, BenchmarkContext.PIN, null);
+        return idempotencyService.execute(KEY, email, fingerprint,
+                () -> accountService.transferForCitizen(from, to, BigDecimal.ONE, citizenId));
+    }
+}
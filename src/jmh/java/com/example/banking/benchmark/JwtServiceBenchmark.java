@@ -0,0 +1,73 @@
+package com.example.banking.benchmark;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.model.UserRole;
+import com.example.banking.security.JwtService;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Token issue and verification. {@code parse} hits the verified-claims cache,
+ * {@code parseUncached} reuses the parser but checks the signature every
+ * time, and {@code parseWithNewParser} is the original path that also built
+ * a parser per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+    private KeyPair keyPair;
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        jwtService = new JwtService(keyPair);
+        token = jwtService.generateToken("customer@bench.example.com", UserRole.CUSTOMER);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken("customer@bench.example.com", UserRole.CUSTOMER);
+    }
+
+    @Benchmark
+    public Claims parse() {
+        return jwtService.parse(token);
+    }
+
+    @Benchmark
+    public Claims parseUncached() {
+        return jwtService.parseUncached(token);
+    }
+
+    @Benchmark
+    public Claims parseWithNewParser() {
+        return Jwts.parserBuilder()
+                .setSigningKey(keyPair.getPublic())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
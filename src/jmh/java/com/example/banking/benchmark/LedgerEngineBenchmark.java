@@ -0,0 +1,109 @@
+package com.example.banking.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import com.example.banking.model.Account;
+import com.example.banking.service.LedgerEngine;
+
+/**
+ * Transfers between random accounts through the {@link LedgerEngine} alone,
+ * after the PIN check, comparing the database engine with the in-memory one
+ * journaling to a temporary directory. The {@code aborts} counter reports
+ * JPA transfers rolled back by a lock conflict. Run against MySQL with
+ * {@code -Dbench.datasource.url=...} for representative JPA numbers; the
+ * memory engine only touches the database to project its journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(4)
+@Fork(1)
+public class LedgerEngineBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final String PREFIX = "L";
+
+    @Param({"JPA", "MEMORY"})
+    public String engine;
+
+    @Param({"64"})
+    public int accounts;
+
+    private BenchmarkContext context;
+    private LedgerEngine ledgerEngine;
+    private List<BenchmarkContext.Customer> customers;
+    private Path journal;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long aborts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journal = Files.createTempDirectory("ledger-journal");
+        context = BenchmarkContext.start(Map.of(
+                "banking.ledger.engine", engine,
+                "banking.ledger.journal.dir", journal.toString()));
+        context.liftDailyLimit();
+        ledgerEngine = context.bean(LedgerEngine.class);
+        customers = context.createCustomers(PREFIX, accounts, new BigDecimal("1000000000"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(journal)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public Account transfer(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(customers.size());
+        int to = (from + 1 + random.nextInt(customers.size() - 1)) % customers.size();
+        try {
+            return ledgerEngine.transfer(customers.get(from).accountNumber(), customers.get(to).accountNumber(),
+                    AMOUNT, PREFIX + from);
+        } catch (ConcurrencyFailureException e) {
+            outcome.aborts++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.dto.BatchTransferItem;
+import com.example.banking.dto.BatchTransferRequest;
+import com.example.banking.dto.BatchTransferResponse;
+import com.example.banking.model.Account;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.BatchTransferService;
+
+/**
+ * Insert-heavy paths with JDBC insert batching on ({@code jdbcBatchSize=50})
+ * and off ({@code 1}). Transfers use step-up tokens so BCrypt does not hide
+ * the difference. Most meaningful against MySQL with
+ * {@code rewriteBatchedStatements=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class LedgerInsertBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    @Param({"100"})
+    public int batchItems;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private BatchTransferService batchTransferService;
+    private List<BenchmarkContext.Customer> customers;
+    private String[] stepUpTokens;
+    private BatchTransferRequest batchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                "spring.jpa.properties.hibernate.jdbc.batch_size", jdbcBatchSize,
+                "banking.step-up.ttl", "PT1H"));
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        batchTransferService = context.bean(BatchTransferService.class);
+        customers = context.createCustomers("L", batchItems + 1, new BigDecimal("1000000000"));
+        stepUpTokens = customers.stream()
+                .map(c -> accountService.stepUp(c.accountNumber(), c.email(), BenchmarkContext.PIN).token())
+                .toArray(String[]::new);
+        List<BatchTransferItem> items = new ArrayList<>(batchItems);
+        customers.subList(1, customers.size())
+                .forEach(c -> items.add(new BatchTransferItem(c.accountNumber(), AMOUNT)));
+        batchRequest = new BatchTransferRequest(customers.get(0).accountNumber(), BatchTransferRequest.Mode.ATOMIC,
+                null, items);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account deposit() {
+        int i = ThreadLocalRandom.current().nextInt(customers.size());
+        return accountService.deposit(customers.get(i).accountNumber(), AMOUNT);
+    }
+
+    @Benchmark
+    public Account transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(customers.size());
+        int to = (from + 1 + random.nextInt(customers.size() - 1)) % customers.size();
+        BenchmarkContext.Customer source = customers.get(from);
+        return accountService.transfer(source.accountNumber(), customers.get(to).accountNumber(), AMOUNT,
+                source.email(), null, stepUpTokens[from]);
+    }
+
+    @Benchmark
+    public BatchTransferResponse batchTransfer() {
+        return batchTransferService.transfer(batchRequest, customers.get(0).email(), stepUpTokens[0]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.banking.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.banking.security.BoundedPasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The BCrypt PIN check performed on transfer and statement requests, called
+ * directly and through the application's {@link BoundedPasswordEncoder}.
+ * Run with {@code -t} above the CPU count to see queueing on the bounded pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+    private PasswordEncoder encoder;
+    private BoundedPasswordEncoder boundedEncoder;
+    private String pinHash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder();
+        boundedEncoder = new BoundedPasswordEncoder(encoder, Runtime.getRuntime().availableProcessors(), 1024,
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+        pinHash = encoder.encode(BenchmarkContext.PIN);
+    }
+
+    @TearDown
+    public void tearDown() {
+        boundedEncoder.close();
+    }
+
+    @Benchmark
+    public boolean matchesPin() {
+        return encoder.matches(BenchmarkContext.PIN, pinHash);
+    }
+
+    @Benchmark
+    public boolean boundedMatchesPin() {
+        return boundedEncoder.matches(BenchmarkContext.PIN, pinHash);
+    }
+}
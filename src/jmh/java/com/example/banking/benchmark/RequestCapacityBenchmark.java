@@ -0,0 +1,207 @@
+package com.example.banking.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.ObjectName;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.model.UserRole;
+import com.example.banking.security.JwtService;
+import com.example.banking.security.PinVerifier;
+import com.example.banking.service.AccountService;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A burst of {@code clients} concurrent transaction syncs while every database
+ * connection is taken, the way requests pile up when MySQL is slow or rows
+ * are locked, with Tomcat on platform and on virtual threads. Each
+ * invocation holds the whole Hikari pool for {@code hold}, samples the
+ * server, then releases the pool and times how long the burst takes to
+ * drain. Needs Java 21 for {@code virtualThreads=true}. One measured
+ * burst per trial, since the counters below add up across iterations.
+ *
+ * <ul>
+ *   <li>{@code inFlight}: requests inside the filter chain at the sample,
+ *   that is, holding a request thread. The rest wait in Tomcat's queue.</li>
+ *   <li>{@code stackKbPerInFlight}: committed thread stack memory above the
+ *   idle application, per in-flight request. Platform thread stacks live
+ *   here; needs {@code -XX:NativeMemoryTracking=summary}, which the fork
+ *   sets.</li>
+ *   <li>{@code heapKbPerClient}: live heap above the idle application, per
+ *   client. Virtual thread stacks live here, next to the HTTP client's own
+ *   share of each connection, which is the same in both modes.</li>
+ *   <li>{@code failed}: responses other than {@code 200}.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:NativeMemoryTracking=summary")
+public class RequestCapacityBenchmark {
+    private static final Pattern THREAD_MEMORY =
+            Pattern.compile("-\\s+Thread \\(reserved=\\d+KB, committed=(\\d+)KB\\)");
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"1000"})
+    public int clients;
+
+    @Param({"PT2S"})
+    public String hold;
+
+    private BenchmarkContext context;
+    private HikariDataSource dataSource;
+    private MeterRegistry meterRegistry;
+    private HttpClient httpClient;
+    private HttpRequest request;
+    private long idleHeap;
+    private long idleStacks;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Capacity {
+        public long inFlight;
+        public long stackKbPerInFlight;
+        public long heapKbPerClient;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inFlight = 0;
+            stackKbPerInFlight = 0;
+            heapKbPerClient = 0;
+            failed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("virtualThreads=true needs Java 21, this is " + Runtime.version());
+        }
+        context = BenchmarkContext.start(Map.of(
+                "spring.threads.virtual.enabled", virtualThreads,
+                // Every client comes from localhost as the same customer; give each its own address and
+                // key the rate limit by address so it does not apply.
+                "server.forward-headers-strategy", "native",
+                "banking.rate-limit.default", "ip:100/PT1M",
+                "server.tomcat.max-connections", clients * 2));
+        BenchmarkContext.Customer customer = context.createCustomers("R", 1, BigDecimal.TEN).get(0);
+        dataSource = context.bean(HikariDataSource.class);
+        meterRegistry = context.bean(MeterRegistry.class);
+        String token = context.bean(JwtService.class).generateToken(customer.email(), UserRole.CUSTOMER);
+        // A step-up token keeps BCrypt out; the sync itself always reads the database.
+        String stepUpToken = context.bean(AccountService.class)
+                .stepUp(customer.accountNumber(), customer.email(), BenchmarkContext.PIN).token();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + context.port() + "/api/accounts/"
+                        + customer.accountNumber() + "/transactions/sync"))
+                .header("Authorization", "Bearer " + token)
+                .header(PinVerifier.STEP_UP_HEADER, stepUpToken)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"limit\":10}"))
+                .timeout(Duration.ofMinutes(2))
+                .build();
+        idleHeap = liveHeap();
+        idleStacks = threadStacks();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void burst(Capacity capacity) throws Exception {
+        List<Connection> held = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(clients);
+        try {
+            for (int i = 0; i < dataSource.getMaximumPoolSize(); i++) {
+                held.add(dataSource.getConnection());
+            }
+            for (int i = 0; i < clients; i++) {
+                HttpRequest sent = HttpRequest.newBuilder(request, (name, value) -> true)
+                        .header("X-Forwarded-For", "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255))
+                        .build();
+                responses.add(httpClient.sendAsync(sent, HttpResponse.BodyHandlers.discarding()));
+            }
+            Thread.sleep(Duration.parse(hold).toMillis());
+            // Registered with the first request.
+            LongTaskTimer active = meterRegistry.find("http.server.requests.active").longTaskTimer();
+            long inFlight = active == null ? 0 : active.activeTasks();
+            capacity.inFlight = inFlight;
+            capacity.stackKbPerInFlight = inFlight > 0 ? (threadStacks() - idleStacks) / inFlight : -1;
+            capacity.heapKbPerClient = (liveHeap() - idleHeap) / 1024 / clients;
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            try {
+                if (response.join().statusCode() != 200) {
+                    capacity.failed++;
+                }
+            } catch (RuntimeException e) {
+                capacity.failed++;
+            }
+        }
+    }
+
+    private static long liveHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Committed thread memory in KB as reported by native memory tracking,
+     * or {@code 0} when tracking is off.
+     */
+    private static long threadStacks() {
+        try {
+            String summary = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"), "vmNativeMemory",
+                    new Object[] {new String[] {"summary"}}, new String[] {String[].class.getName()});
+            Matcher matcher = THREAD_MEMORY.matcher(summary);
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.model.Account;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.TransactionRepository;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.StatementSnapshotService;
+
+/**
+ * Last month's statement served from its frozen snapshot versus the live
+ * ledger query, for two accounts with the same {@code statementRows} rows.
+ * Both use a step-up token so the BCrypt PIN check does not dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class StatementSnapshotBenchmark {
+    private static final YearMonth LAST_MONTH = YearMonth.now().minusMonths(1);
+
+    @Param({"200"})
+    public int statementRows;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private BenchmarkContext.Customer frozen;
+    private BenchmarkContext.Customer live;
+    private String frozenToken;
+    private String liveToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of("banking.scheduling.enabled", "false"));
+        accountService = context.bean(AccountService.class);
+        List<BenchmarkContext.Customer> customers = context.createCustomers("M", 2, BigDecimal.ZERO);
+        frozen = customers.get(0);
+        live = customers.get(1);
+        backfill(frozen);
+        backfill(live);
+        Account account = context.bean(AccountRepository.class).findByAccountNumber(frozen.accountNumber())
+                .orElseThrow();
+        context.bean(StatementSnapshotService.class).freeze(account.getId(), LAST_MONTH);
+        frozenToken = accountService.stepUp(frozen.accountNumber(), frozen.email(), BenchmarkContext.PIN).token();
+        liveToken = accountService.stepUp(live.accountNumber(), live.email(), BenchmarkContext.PIN).token();
+    }
+
+    private void backfill(BenchmarkContext.Customer customer) {
+        Account account = context.bean(AccountRepository.class).findByAccountNumber(customer.accountNumber())
+                .orElseThrow();
+        LocalDateTime start = LAST_MONTH.atDay(1).atStartOfDay();
+        List<Transaction> rows = new ArrayList<>(statementRows);
+        for (int i = 0; i < statementRows; i++) {
+            Transaction tx = new Transaction();
+            tx.setAccount(account);
+            tx.setTimestamp(start.plusMinutes(i));
+            tx.setType(TransactionType.DEPOSIT);
+            tx.setChannel(TransactionChannel.TELLER);
+            tx.setAmount(BigDecimal.ONE);
+            tx.setBalance(BigDecimal.valueOf(i + 1));
+            tx.setRemark("Deposit Terminal 0101");
+            rows.add(tx);
+        }
+        context.bean(TransactionRepository.class).saveAll(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<StatementEntry> frozenClosedMonth() {
+        return accountService.getStatement(frozen.accountNumber(), frozen.email(), null, frozenToken, LAST_MONTH);
+    }
+
+    @Benchmark
+    public List<StatementEntry> liveClosedMonth() {
+        return accountService.getStatement(live.accountNumber(), live.email(), null, liveToken, LAST_MONTH);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import com.example.banking.model.Account;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.AccountStripes;
+
+/**
+ * Many customers paying one merchant at once, with the merchant's balance
+ * split across {@code stripes} sub-balances ({@code 0} leaves it unstriped,
+ * so every payment updates the merchant's row). Each thread pays from its own
+ * account, so the merchant is the only contended row. The {@code aborts}
+ * counter reports payments rolled back by a lock conflict. Run against MySQL
+ * with {@code -Dbench.datasource.url=...} and {@code -t} at or above the CPU
+ * count to see row lock waits; H2 serializes commits and hides most of the
+ * effect.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(4)
+@Fork(1)
+public class StripedAccountBenchmark {
+    private static final String MERCHANT = "9999999";
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final int PAYERS = 64;
+
+    @Param({"0", "4", "16"})
+    public int stripes;
+
+    @Param({"PESSIMISTIC", "ATOMIC"})
+    public String mode;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private List<BenchmarkContext.Customer> payers;
+    private String[] stepUpTokens;
+    private final AtomicInteger nextPayer = new AtomicInteger();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long aborts;
+    }
+
+    @State(Scope.Thread)
+    public static class Payer {
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp(StripedAccountBenchmark benchmark) {
+            index = benchmark.nextPayer.getAndIncrement() % PAYERS;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("banking.concurrency.mode", mode);
+        if (stripes > 0) {
+            overrides.put("banking.striping.accounts", MERCHANT);
+            overrides.put("banking.striping.stripes", stripes);
+        }
+        context = BenchmarkContext.start(overrides);
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        payers = context.createCustomers("P", PAYERS, new BigDecimal("1000000000"));
+        Account merchant = new Account();
+        merchant.setAccountNumber(MERCHANT);
+        merchant.setCitizenId("M0");
+        merchant.setThaiName("Merchant");
+        merchant.setEnglishName("Merchant");
+        merchant.setBalance(BigDecimal.ZERO);
+        context.bean(AccountRepository.class).save(merchant);
+        // The merchant did not exist when the context started, so give it its stripes now.
+        context.bean(AccountStripes.class).provision();
+        stepUpTokens = payers.stream()
+                .map(c -> accountService.stepUp(c.accountNumber(), c.email(), BenchmarkContext.PIN).token())
+                .toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void pay(Payer payer, Outcome outcome) {
+        BenchmarkContext.Customer source = payers.get(payer.index);
+        try {
+            accountService.transfer(source.accountNumber(), MERCHANT, AMOUNT, source.email(), null,
+                    stepUpTokens[payer.index]);
+        } catch (ConcurrencyFailureException e) {
+            outcome.aborts++;
+        }
+    }
+}
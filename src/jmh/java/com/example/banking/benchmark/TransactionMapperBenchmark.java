@@ -0,0 +1,52 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.mapper.TransactionMapper;
+import com.example.banking.mapper.TransactionMapperImpl;
+import com.example.banking.model.Account;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionMapperBenchmark {
+    private final TransactionMapper mapper = new TransactionMapperImpl();
+    private Transaction transferOut;
+
+    @Setup
+    public void setUp() {
+        transferOut = new Transaction();
+        transferOut.setAccount(new Account());
+        transferOut.setTimestamp(LocalDateTime.of(2024, 3, 17, 8, 37));
+        transferOut.setType(TransactionType.TRANSFER_OUT);
+        transferOut.setChannel(TransactionChannel.ONLINE);
+        transferOut.setAmount(new BigDecimal("10.00"));
+        transferOut.setBalance(new BigDecimal("725.17"));
+        transferOut.setRemark("To 1234567");
+    }
+
+    @Benchmark
+    public StatementEntry toDto() {
+        return mapper.toDto(transferOut);
+    }
+}
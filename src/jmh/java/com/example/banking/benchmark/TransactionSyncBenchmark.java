@@ -0,0 +1,83 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.dto.TransactionSyncResponse;
+import com.example.banking.service.AccountService;
+import com.example.banking.service.LedgerSequencer;
+
+/**
+ * A mobile poll that finds nothing new: re-reading the whole month through
+ * {@link AccountService#getStatement} versus asking
+ * {@link AccountService#syncTransactions} for entries after the last cursor.
+ * Both use a step-up token so the BCrypt PIN check does not dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TransactionSyncBenchmark {
+    @Param({"200"})
+    public int statementRows;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private BenchmarkContext.Customer customer;
+    private String stepUpToken;
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        accountService = context.bean(AccountService.class);
+        customer = context.createCustomers("Y", 1, BigDecimal.ZERO).get(0);
+        for (int i = 0; i < statementRows; i++) {
+            accountService.deposit(customer.accountNumber(), BigDecimal.ONE);
+        }
+        context.bean(LedgerSequencer.class).sequenceCommitted();
+        stepUpToken = accountService.stepUp(customer.accountNumber(), customer.email(), BenchmarkContext.PIN).token();
+        TransactionSyncResponse page;
+        do {
+            page = accountService.syncTransactions(customer.accountNumber(), customer.email(), null, stepUpToken,
+                    cursor, 500);
+            cursor = page.nextCursor();
+        } while (page.hasMore());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<StatementEntry> monthlyStatementPoll() {
+        return accountService.getStatement(customer.accountNumber(), customer.email(), null, stepUpToken,
+                YearMonth.now());
+    }
+
+    @Benchmark
+    public TransactionSyncResponse syncPoll() {
+        return accountService.syncTransactions(customer.accountNumber(), customer.email(), null, stepUpToken,
+                cursor, null);
+    }
+}
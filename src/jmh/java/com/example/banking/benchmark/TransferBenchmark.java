@@ -0,0 +1,99 @@
+package com.example.banking.benchmark;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.model.Account;
+import com.example.banking.service.AccountService;
+
+/**
+ * End-to-end {@link AccountService#transfer} and {@link AccountService#getStatement}
+ * including the PIN check, row locks, daily limit query and ledger inserts.
+ * {@code transferWithStepUpToken} replaces the BCrypt PIN check with a
+ * step-up token; tokens are issued once and expire after
+ * {@code banking.step-up.ttl}, so keep measurement shorter than that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TransferBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"16"})
+    public int accounts;
+
+    @Param({"200"})
+    public int statementRows;
+
+    private BenchmarkContext context;
+    private AccountService accountService;
+    private List<BenchmarkContext.Customer> customers;
+    private BenchmarkContext.Customer statementCustomer;
+    private String[] stepUpTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.liftDailyLimit();
+        accountService = context.bean(AccountService.class);
+        customers = context.createCustomers("T", accounts, new BigDecimal("1000000000"));
+        statementCustomer = context.createCustomers("S", 1, BigDecimal.ZERO).get(0);
+        for (int i = 0; i < statementRows; i++) {
+            accountService.deposit(statementCustomer.accountNumber(), AMOUNT);
+        }
+        stepUpTokens = customers.stream()
+                .map(c -> accountService.stepUp(c.accountNumber(), c.email(), BenchmarkContext.PIN).token())
+                .toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account transfer() {
+        return transfer(false);
+    }
+
+    @Benchmark
+    public Account transferWithStepUpToken() {
+        return transfer(true);
+    }
+
+    private Account transfer(boolean stepUp) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(customers.size());
+        int to = (from + 1 + random.nextInt(customers.size() - 1)) % customers.size();
+        BenchmarkContext.Customer source = customers.get(from);
+        return accountService.transfer(source.accountNumber(), customers.get(to).accountNumber(),
+                AMOUNT, source.email(), stepUp ? null : BenchmarkContext.PIN, stepUp ? stepUpTokens[from] : null);
+    }
+
+    @Benchmark
+    public List<StatementEntry> statement() {
+        return accountService.getStatement(statementCustomer.accountNumber(), statementCustomer.email(),
+                BenchmarkContext.PIN, YearMonth.now());
+    }
+}
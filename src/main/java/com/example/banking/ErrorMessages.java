@@ -8,7 +8,27 @@ public final class ErrorMessages {
     public static final String USER_NOT_FOUND = "User not found";
     public static final String ACCESS_DENIED = "Access denied";
     public static final String INVALID_PIN = "Invalid PIN";
+    public static final String INVALID_STEP_UP_TOKEN = "Invalid or expired step-up token";
+    public static final String HASHING_BUSY = "Service busy, please retry";
     public static final String DAILY_LIMIT_EXCEEDED = "Daily transfer limit exceeded";
+    public static final String EXPORT_BUSY = "Too many exports queued, please retry later";
+    public static final String EXPORT_NOT_FOUND = "Export not found";
+    public static final String EXPORT_NOT_READY = "Export is not ready";
+    public static final String EXPORT_FAILED = "Export failed";
+    public static final String INVALID_SYNC_CURSOR = "Invalid sync cursor";
+    public static final String INVALID_SYNC_LIMIT = "Sync limit must be between 1 and 500";
+    public static final String INVALID_IDEMPOTENCY_KEY = "Idempotency-Key must be 1 to 100 characters";
+    public static final String IDEMPOTENCY_KEY_REUSED = "Idempotency-Key was already used for a different request";
+    public static final String IDEMPOTENCY_KEY_IN_PROGRESS = "A request with this Idempotency-Key is still in progress";
+    public static final String LEDGER_BUSY = "Ledger busy, please retry";
+    public static final String LEDGER_TIMEOUT = "Ledger did not confirm in time, the request may still be applied";
+    public static final String TRANSFER_BUSY = "Too many transfers queued for this account, please retry later";
+    public static final String TRANSFER_NOT_FOUND = "Transfer not found";
+    public static final String TRANSFER_FAILED = "Transfer failed";
+    public static final String TRANSFER_INTERRUPTED =
+            "Transfer was interrupted and may have been applied, check the statement before retrying";
+    public static final String TRANSFERS_STOPPING = "Not accepting transfers while shutting down, please retry";
+    public static final String BATCH_UNSUPPORTED = "Batch transfers are not available on this ledger engine";
 
     private ErrorMessages() {
         // Prevent instantiation
@@ -1,18 +1,51 @@
 package com.example.banking.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import com.example.banking.repository.AccountRepository;
 import com.example.banking.repository.UserRepository;
+import com.example.banking.security.OwnershipClaims;
 
+/**
+ * Ownership checks for {@code @PreAuthorize} expressions. Tokens issued at
+ * customer login carry the citizen ID and owned account numbers, so most
+ * checks are answered from the token alone; accounts opened after login cost
+ * one lookup by account number. Setting
+ * {@code banking.jwt.trust-ownership-claims=false} ignores the claims and
+ * checks every request against the database.
+ */
 @Component
 public class AccountSecurity {
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final boolean trustOwnershipClaims;
 
     public AccountSecurity(AccountRepository accountRepository, UserRepository userRepository) {
+        this(accountRepository, userRepository, true);
+    }
+
+    @Autowired
+    public AccountSecurity(AccountRepository accountRepository, UserRepository userRepository,
+                           @Value("${banking.jwt.trust-ownership-claims:true}") boolean trustOwnershipClaims) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
+        this.trustOwnershipClaims = trustOwnershipClaims;
+    }
+
+    public boolean isOwner(String accountNumber, Authentication authentication) {
+        if (trustOwnershipClaims) {
+            OwnershipClaims claims = OwnershipClaims.of(authentication).orElse(null);
+            if (claims != null) {
+                return claims.owns(accountNumber)
+                        || accountRepository.findCitizenIdByAccountNumber(accountNumber)
+                                .map(claims.citizenId()::equals)
+                                .orElse(false);
+            }
+        }
+        return isOwner(accountNumber, authentication.getName());
     }
 
     public boolean isOwner(String accountNumber, String email) {
@@ -0,0 +1,30 @@
+package com.example.banking.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.banking.security.BoundedPasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Password and PIN hashing runs on its own bounded pool, sized to the number
+ * of CPUs unless {@code banking.hashing.threads} says otherwise.
+ */
+@Configuration
+public class HashingConfig {
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${banking.hashing.threads:0}") int threads,
+                                           @Value("${banking.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${banking.hashing.wait-timeout:PT2S}") Duration waitTimeout) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity, waitTimeout,
+                meterRegistry);
+    }
+}
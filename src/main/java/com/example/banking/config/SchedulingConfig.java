@@ -0,0 +1,15 @@
+package com.example.banking.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background jobs. Set {@code banking.scheduling.enabled=false} to
+ * run a node without them.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "banking.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,34 @@
+package com.example.banking.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.example.banking.service.SettingsService;
+
+/**
+ * Actuator view of the settings currently cached by {@link SettingsService}.
+ */
+@Component
+@Endpoint(id = "settings")
+public class SettingsEndpoint {
+    private final SettingsService settingsService;
+
+    public SettingsEndpoint(SettingsService settingsService) {
+        this.settingsService = settingsService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        SettingsService.Snapshot snapshot = settingsService.snapshot();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("values", snapshot.values());
+        body.put("lastUpdated", snapshot.lastUpdated());
+        body.put("loadedAt", snapshot.loadedAt());
+        body.put("lastChecked", settingsService.getLastChecked());
+        return body;
+    }
+}
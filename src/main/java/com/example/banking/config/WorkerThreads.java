@@ -0,0 +1,43 @@
+package com.example.banking.config;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the threads of the application's own pools for work that mostly
+ * waits on the database. With {@code spring.threads.virtual.enabled=true} on
+ * Java 21 or later, the same switch that moves Tomcat and scheduled jobs to
+ * virtual threads, they are virtual threads; otherwise platform threads.
+ * Pools keep their fixed sizes either way, since those sizes limit how many
+ * database connections the pools can hold.
+ */
+@Component
+public class WorkerThreads {
+    private static final Logger log = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private final boolean virtual;
+
+    public WorkerThreads(@Value("${spring.threads.virtual.enabled:false}") boolean enabled) {
+        this.virtual = enabled && Runtime.version().feature() >= 21;
+        if (enabled && !virtual) {
+            log.warn("spring.threads.virtual.enabled is set, but Java {} has no virtual threads; "
+                    + "using platform threads", Runtime.version().feature());
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public ThreadFactory factory(String namePrefix) {
+        return virtual
+                ? new VirtualThreadTaskExecutor(namePrefix).getVirtualThreadFactory()
+                : new CustomizableThreadFactory(namePrefix);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.banking.controller;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -7,9 +8,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.time.YearMonth;
 import java.util.List;
 
@@ -17,21 +21,42 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import com.example.banking.dto.AccountRequest;
+import com.example.banking.dto.AccountSnapshot;
 import com.example.banking.dto.DepositRequest;
+import com.example.banking.dto.TransferJobResponse;
 import com.example.banking.dto.TransferRequest;
+import com.example.banking.dto.StatementExportRequest;
 import com.example.banking.dto.StatementRequest;
+import com.example.banking.dto.StepUpRequest;
+import com.example.banking.dto.StepUpResponse;
+import com.example.banking.dto.TransactionSyncRequest;
+import com.example.banking.dto.TransactionSyncResponse;
 import com.example.banking.model.Account;
 import com.example.banking.dto.StatementEntry;
+import com.example.banking.security.OwnershipClaims;
+import com.example.banking.security.PinVerifier;
 import com.example.banking.service.AccountService;
+import com.example.banking.service.AsyncTransferService;
+import com.example.banking.service.IdempotencyService;
+import com.example.banking.service.StatementExportService;
 
 @RestController
 @RequestMapping("/api/accounts")
 @Tag(name = "Accounts")
 public class AccountController {
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final AccountService accountService;
+    private final StatementExportService statementExportService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferService asyncTransferService;
 
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, StatementExportService statementExportService,
+                             IdempotencyService idempotencyService, AsyncTransferService asyncTransferService) {
         this.accountService = accountService;
+        this.statementExportService = statementExportService;
+        this.idempotencyService = idempotencyService;
+        this.asyncTransferService = asyncTransferService;
     }
 
     @PostMapping
@@ -45,40 +70,131 @@ public class AccountController {
     @PostMapping("/{accountNumber}/deposit")
     @PreAuthorize("hasRole('TELLER')")
     @Operation(summary = "Deposit money")
-    public ResponseEntity<Account> deposit(@PathVariable("accountNumber") String accountNumber,
-                                           @RequestBody DepositRequest request,
-                                           Authentication auth) {
-        Account account = accountService.deposit(accountNumber, request.amount());
-        return ResponseEntity.ok(account);
+    public ResponseEntity<Object> deposit(@PathVariable("accountNumber") String accountNumber,
+                                          @RequestBody DepositRequest request,
+                                          @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false)
+                                          String idempotencyKey,
+                                          Authentication auth) {
+        IdempotencyService.Result result = idempotencyService.execute(idempotencyKey, auth.getName(),
+                IdempotencyService.fingerprint("deposit", accountNumber, request.amount()),
+                () -> accountService.deposit(accountNumber, request.amount()));
+        return idempotent(result);
     }
 
     @PostMapping("/{accountNumber}/transfer")
-    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication.name)")
-    @Operation(summary = "Transfer money")
-    public ResponseEntity<Account> transfer(@PathVariable("accountNumber") String accountNumber,
-                                            @RequestBody TransferRequest request,
-                                            Authentication auth) {
-        Account account = accountService.transfer(accountNumber,
-                request.toAccount(), request.amount(), auth.getName(), request.pin());
-        return ResponseEntity.ok(account);
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication)")
+    @Operation(summary = "Transfer money",
+            description = "With Prefer: respond-async and no Idempotency-Key, answers 202 with the transfer "
+                    + "to poll at /api/transfers/{id}")
+    public ResponseEntity<Object> transfer(@PathVariable("accountNumber") String accountNumber,
+                                           @RequestBody TransferRequest request,
+                                           @RequestHeader(value = PinVerifier.STEP_UP_HEADER, required = false)
+                                           String stepUpToken,
+                                           @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false)
+                                           String idempotencyKey,
+                                           @RequestHeader(value = "Prefer", required = false) String prefer,
+                                           Authentication auth) {
+        // The key is claimed and completed around a synchronous posting, so a keyed transfer ignores the preference.
+        if (idempotencyKey == null && prefersAsync(prefer)) {
+            TransferJobResponse job = asyncTransferService.submit(accountNumber, request.toAccount(),
+                    request.amount(), auth.getName(), request.pin(), stepUpToken);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/transfers/" + job.id()))
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(job);
+        }
+        // Checked before the key is claimed, so BCrypt never runs while its row is locked or on a retry.
+        String citizenId = accountService.authorizeTransfer(accountNumber, request.amount(), auth.getName(),
+                request.pin(), stepUpToken);
+        IdempotencyService.Result result = idempotencyService.execute(idempotencyKey, auth.getName(),
+                IdempotencyService.fingerprint("transfer", accountNumber, request.toAccount(), request.amount()),
+                () -> accountService.transferForCitizen(accountNumber, request.toAccount(), request.amount(),
+                        citizenId));
+        return idempotent(result);
+    }
+
+    @PostMapping("/{accountNumber}/step-up")
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication)")
+    @Operation(summary = "Exchange PIN for a short-lived step-up token")
+    public ResponseEntity<StepUpResponse> stepUp(@PathVariable("accountNumber") String accountNumber,
+                                                 @RequestBody StepUpRequest request,
+                                                 Authentication auth) {
+        return ResponseEntity.ok(accountService.stepUp(accountNumber, auth.getName(), request.pin()));
     }
 
     @PostMapping("/{accountNumber}/statement")
-    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication.name)")
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication)")
     @Operation(summary = "Get bank statement for month")
     public ResponseEntity<List<StatementEntry>> statement(@PathVariable("accountNumber") String accountNumber,
                                                           @RequestBody StatementRequest request,
+                                                          @RequestHeader(value = PinVerifier.STEP_UP_HEADER,
+                                                                  required = false) String stepUpToken,
                                                           Authentication auth) {
         YearMonth month = YearMonth.parse(request.month());
-        List<StatementEntry> txs = accountService.getStatement(accountNumber, auth.getName(), request.pin(), month);
+        List<StatementEntry> txs = accountService.getStatement(accountNumber, auth.getName(), request.pin(),
+                stepUpToken, month);
         return ResponseEntity.ok(txs);
     }
 
+    @PostMapping("/{accountNumber}/transactions/sync")
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication)")
+    @Operation(summary = "Get transactions recorded after a sync cursor")
+    public ResponseEntity<TransactionSyncResponse> sync(@PathVariable("accountNumber") String accountNumber,
+                                                        @RequestBody TransactionSyncRequest request,
+                                                        @RequestHeader(value = PinVerifier.STEP_UP_HEADER,
+                                                                required = false) String stepUpToken,
+                                                        Authentication auth) {
+        return ResponseEntity.ok(accountService.syncTransactions(accountNumber, auth.getName(), request.pin(),
+                stepUpToken, request.cursor(), request.limit()));
+    }
+
+    @PostMapping("/{accountNumber}/statement/export")
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication)")
+    @Operation(summary = "Stream statement for a date range as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportStatement(@PathVariable("accountNumber") String accountNumber,
+                                                                 @RequestBody StatementExportRequest request,
+                                                                 @RequestHeader(value = PinVerifier.STEP_UP_HEADER,
+                                                                         required = false) String stepUpToken,
+                                                                 Authentication auth) {
+        Account account = accountService.getAccountForStatement(accountNumber, auth.getName(), request.pin(),
+                stepUpToken);
+        StatementExportRequest.Format format = request.format() == null
+                ? StatementExportRequest.Format.NDJSON : request.format();
+        StreamingResponseBody body = statementExportService.export(account.getId(), request.from(), request.to(),
+                format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.mediaType()))
+                .body(body);
+    }
+
     @GetMapping("/{accountNumber}")
-    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication.name)")
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#accountNumber, authentication)")
     @Operation(summary = "Get account information")
-    public ResponseEntity<Account> getAccount(@PathVariable("accountNumber") String accountNumber, Authentication auth) {
-        Account account = accountService.getAccountForUser(accountNumber, auth.getName());
-        return ResponseEntity.ok(account);
+    public ResponseEntity<AccountSnapshot> getAccount(@PathVariable("accountNumber") String accountNumber,
+                                                      Authentication auth) {
+        AccountSnapshot account = OwnershipClaims.of(auth)
+                .map(claims -> accountService.getAccountSnapshot(accountNumber, claims.citizenId()))
+                .orElseGet(() -> accountService.getAccountSnapshotForUser(accountNumber, auth.getName()));
+        // A matching If-None-Match turns this into a 304 without a body.
+        return ResponseEntity.ok().eTag(account.etag()).body(account);
+    }
+
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().toLowerCase().startsWith(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<Object> idempotent(IdempotencyService.Result result) {
+        if (result.replayed()) {
+            return ResponseEntity.ok().header(IdempotencyService.REPLAYED_HEADER, "true").body(result.body());
+        }
+        return ResponseEntity.ok(result.body());
     }
 }
\ No newline at end of file
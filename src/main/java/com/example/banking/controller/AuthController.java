@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.banking.dto.LoginRequest;
 import com.example.banking.dto.TokenResponse;
 import com.example.banking.model.UserRole;
+import com.example.banking.repository.AccountRepository;
 import com.example.banking.repository.UserRepository;
 import com.example.banking.security.JwtService;
 
@@ -17,11 +18,14 @@ import com.example.banking.security.JwtService;
 @RequestMapping("/auth")
 public class AuthController {
     private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
 
-    public AuthController(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public AuthController(UserRepository userRepository, AccountRepository accountRepository,
+                          PasswordEncoder passwordEncoder, JwtService jwtService) {
         this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
     }
@@ -34,7 +38,8 @@ public class AuthController {
         if (!passwordEncoder.matches(request.password(), user.getPassword())) {
             throw new IllegalArgumentException("Invalid credentials");
         }
-        String token = jwtService.generateToken(user.getEmail(), user.getRole());
+        String token = jwtService.generateToken(user.getEmail(), user.getRole(), user.getCitizenId(),
+                accountRepository.findAccountNumbersByCitizenId(user.getCitizenId()));
         return ResponseEntity.ok(new TokenResponse(token));
     }
 
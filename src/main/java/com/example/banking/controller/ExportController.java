@@ -0,0 +1,69 @@
+package com.example.banking.controller;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import com.example.banking.dto.ExportJobRequest;
+import com.example.banking.dto.ExportJobResponse;
+import com.example.banking.service.StatementExportJobService;
+
+@RestController
+@RequestMapping("/api/exports")
+@Tag(name = "Exports")
+public class ExportController {
+    private final StatementExportJobService exportJobService;
+
+    public ExportController(StatementExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('TELLER')")
+    @Operation(summary = "Queue a statement export for a date range")
+    public ResponseEntity<ExportJobResponse> submit(@RequestBody ExportJobRequest request, Authentication auth) {
+        ExportJobResponse job = exportJobService.submit(request, auth.getName());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/exports/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('TELLER')")
+    @Operation(summary = "Get the status of a statement export")
+    public ResponseEntity<ExportJobResponse> status(@PathVariable("id") String id, Authentication auth) {
+        return ResponseEntity.ok(exportJobService.status(id, auth.getName()));
+    }
+
+    @GetMapping("/{id}/file")
+    @PreAuthorize("hasRole('TELLER')")
+    @Operation(summary = "Download a finished statement export")
+    public ResponseEntity<Resource> download(@PathVariable("id") String id, Authentication auth) {
+        ExportJobResponse job = exportJobService.status(id, auth.getName());
+        Path file = exportJobService.file(id, auth.getName());
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(job.format().mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(job.accountNumber() + "-" + job.from().toLocalDate() + "." +
+                                job.format().name().toLowerCase())
+                        .build().toString())
+                .body(new FileSystemResource(file));
+    }
+}
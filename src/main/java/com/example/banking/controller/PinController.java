@@ -0,0 +1,34 @@
+package com.example.banking.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import com.example.banking.dto.PinChangeRequest;
+import com.example.banking.service.UserService;
+
+@RestController
+@RequestMapping("/api/pin")
+@Tag(name = "PIN")
+public class PinController {
+    private final UserService userService;
+
+    public PinController(UserService userService) {
+        this.userService = userService;
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @Operation(summary = "Change PIN and revoke outstanding step-up tokens")
+    public ResponseEntity<Void> changePin(@RequestBody PinChangeRequest request, Authentication auth) {
+        userService.changePin(auth.getName(), request.currentPin(), request.newPin());
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.banking.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import com.example.banking.dto.BatchTransferRequest;
+import com.example.banking.dto.BatchTransferResponse;
+import com.example.banking.dto.TransferJobResponse;
+import com.example.banking.security.PinVerifier;
+import com.example.banking.service.AsyncTransferService;
+import com.example.banking.service.BatchTransferService;
+
+@RestController
+@RequestMapping("/api/transfers")
+@Tag(name = "Transfers")
+public class TransferController {
+    private final BatchTransferService batchTransferService;
+    private final AsyncTransferService asyncTransferService;
+
+    public TransferController(BatchTransferService batchTransferService, AsyncTransferService asyncTransferService) {
+        this.batchTransferService = batchTransferService;
+        this.asyncTransferService = asyncTransferService;
+    }
+
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('CUSTOMER') and @accountSecurity.isOwner(#request.fromAccount(), authentication)")
+    @Operation(summary = "Transfer money to many accounts with one PIN check")
+    public ResponseEntity<BatchTransferResponse> batch(@RequestBody BatchTransferRequest request,
+                                                       @RequestHeader(value = PinVerifier.STEP_UP_HEADER,
+                                                               required = false) String stepUpToken,
+                                                       Authentication auth) {
+        return ResponseEntity.ok(batchTransferService.transfer(request, auth.getName(), stepUpToken));
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    @Operation(summary = "Get the status of a transfer accepted with Prefer: respond-async")
+    public ResponseEntity<TransferJobResponse> status(@PathVariable("id") String id, Authentication auth) {
+        return ResponseEntity.ok(asyncTransferService.status(id, auth.getName()));
+    }
+}
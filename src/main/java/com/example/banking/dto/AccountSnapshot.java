@@ -0,0 +1,40 @@
+package com.example.banking.dto;
+
+import java.math.BigDecimal;
+
+import com.example.banking.model.Account;
+
+/**
+ * Immutable copy of an account as returned by {@code GET /api/accounts/{n}}.
+ * {@code version} is the entity version and changes with every balance update.
+ */
+public record AccountSnapshot(
+        Long id,
+        Long version,
+        String accountNumber,
+        String citizenId,
+        String thaiName,
+        String englishName,
+        BigDecimal balance) {
+
+    public static AccountSnapshot of(Account account) {
+        return new AccountSnapshot(account.getId(), account.getVersion(), account.getAccountNumber(),
+                account.getCitizenId(), account.getThaiName(), account.getEnglishName(), account.getBalance());
+    }
+
+    /**
+     * This snapshot with the stripes of a striped account added. Stripe
+     * versions only grow, so the sum still changes with every update.
+     */
+    public AccountSnapshot withStripes(BigDecimal stripeBalance, long stripeVersion) {
+        return new AccountSnapshot(id, version + stripeVersion, accountNumber, citizenId, thaiName, englishName,
+                balance.add(stripeBalance));
+    }
+
+    /**
+     * Strong entity tag for conditional requests, derived from the version.
+     */
+    public String etag() {
+        return "\"" + version + "\"";
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.banking.dto;
+
+import java.math.BigDecimal;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One transfer within a batch.
+ */
+public record BatchTransferItem(
+        @NotBlank String toAccount,
+        @NotNull @DecimalMin(value = "1") BigDecimal amount) {
+}
@@ -0,0 +1,25 @@
+package com.example.banking.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Payload for a batch of transfers from one account. In {@code ATOMIC} mode
+ * either every item is applied or none is; in {@code PARTIAL} mode each item
+ * that passes its checks is applied and the others are reported as failed.
+ * The PIN may be omitted when a step-up token is sent instead.
+ */
+public record BatchTransferRequest(
+        @NotBlank String fromAccount,
+        @NotNull Mode mode,
+        String pin,
+        @NotEmpty List<BatchTransferItem> items) {
+
+    public enum Mode {
+        ATOMIC,
+        PARTIAL
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.banking.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of a batch transfer. {@code status} is {@code COMPLETED} when every
+ * item was applied, {@code ROLLED_BACK} when an {@code ATOMIC} batch applied
+ * nothing, and {@code PARTIAL} when a {@code PARTIAL} batch applied only some
+ * items. {@code balance} is the source account balance after the batch.
+ */
+public record BatchTransferResponse(
+        BatchTransferRequest.Mode mode,
+        Status status,
+        int applied,
+        int failed,
+        BigDecimal balance,
+        List<ItemResult> items) {
+
+    public enum Status {
+        COMPLETED,
+        PARTIAL,
+        ROLLED_BACK
+    }
+
+    public enum ItemStatus {
+        APPLIED,
+        FAILED,
+        NOT_APPLIED
+    }
+
+    /**
+     * Result for the item at {@code index} in the request. {@code error} is
+     * set for {@code FAILED} items.
+     */
+    public record ItemResult(int index, ItemStatus status, String error) {
+    }
+}
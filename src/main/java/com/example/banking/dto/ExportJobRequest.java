@@ -0,0 +1,18 @@
+package com.example.banking.dto;
+
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request to export the statement of {@code accountNumber} for
+ * {@code [from, to)} to a file in the background. {@code format} defaults to
+ * {@code CSV}.
+ */
+public record ExportJobRequest(
+        @NotBlank String accountNumber,
+        @NotNull LocalDateTime from,
+        @NotNull LocalDateTime to,
+        StatementExportRequest.Format format) {
+}
@@ -0,0 +1,28 @@
+package com.example.banking.dto;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * State of a background statement export. The file can be downloaded once
+ * {@code status} is {@code COMPLETED}; {@code error} is set when it is
+ * {@code FAILED}.
+ */
+public record ExportJobResponse(
+        String id,
+        String accountNumber,
+        LocalDateTime from,
+        LocalDateTime to,
+        StatementExportRequest.Format format,
+        Status status,
+        Instant submittedAt,
+        Instant completedAt,
+        String error) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.banking.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * Request payload for changing the six-digit PIN.
+ */
+public record PinChangeRequest(
+        @NotBlank String currentPin,
+        @Pattern(regexp = "\\d{6}") String newPin) {
+}
@@ -0,0 +1,31 @@
+package com.example.banking.dto;
+
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request payload for streaming a statement over {@code [from, to)}. The PIN
+ * may be omitted when a step-up token is sent instead.
+ */
+public record StatementExportRequest(
+        @NotNull LocalDateTime from,
+        @NotNull LocalDateTime to,
+        Format format,
+        String pin) {
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+    }
+}
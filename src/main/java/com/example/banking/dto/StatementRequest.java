@@ -4,8 +4,9 @@ import jakarta.validation.constraints.NotBlank;
 
 /**
  * Request payload for bank statement retrieval.
+ * The PIN may be omitted when a step-up token is sent instead.
  */
 public record StatementRequest(
         @NotBlank String month,
-        @NotBlank String pin) {
+        String pin) {
 }
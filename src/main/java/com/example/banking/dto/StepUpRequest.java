@@ -0,0 +1,9 @@
+package com.example.banking.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Request payload for exchanging a PIN for a step-up token.
+ */
+public record StepUpRequest(@NotBlank String pin) {
+}
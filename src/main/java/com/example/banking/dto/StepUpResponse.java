@@ -0,0 +1,7 @@
+package com.example.banking.dto;
+
+/**
+ * Step-up token and the number of seconds until it expires.
+ */
+public record StepUpResponse(String token, long expiresIn) {
+}
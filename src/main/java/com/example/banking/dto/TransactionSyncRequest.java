@@ -0,0 +1,13 @@
+package com.example.banking.dto;
+
+/**
+ * Request for ledger entries newer than {@code cursor}. Omit the cursor to
+ * start from the beginning of the account's history. {@code limit} defaults
+ * to 100 and may be at most 500. The PIN may be omitted when a step-up token
+ * is sent instead.
+ */
+public record TransactionSyncRequest(
+        String cursor,
+        Integer limit,
+        String pin) {
+}
@@ -0,0 +1,15 @@
+package com.example.banking.dto;
+
+import java.util.List;
+
+/**
+ * A page of ledger entries and the cursor to send on the next poll. When
+ * nothing is new, {@code entries} is empty and {@code nextCursor} is the
+ * cursor that was sent. {@code hasMore} is set when another page is already
+ * available.
+ */
+public record TransactionSyncResponse(
+        List<StatementEntry> entries,
+        String nextCursor,
+        boolean hasMore) {
+}
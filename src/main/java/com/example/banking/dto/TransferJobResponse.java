@@ -0,0 +1,28 @@
+package com.example.banking.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * State of a transfer accepted for background processing. {@code balance} is
+ * the sender's balance right after the transfer once {@code status} is
+ * {@code COMPLETED}; {@code error} is set when it is {@code FAILED}.
+ */
+public record TransferJobResponse(
+        String id,
+        String fromAccount,
+        String toAccount,
+        BigDecimal amount,
+        Status status,
+        BigDecimal balance,
+        Instant submittedAt,
+        Instant completedAt,
+        String error) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
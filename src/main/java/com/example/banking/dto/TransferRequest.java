@@ -8,9 +8,10 @@ import jakarta.validation.constraints.NotNull;
 
 /**
  * Payload for money transfer requests.
+ * The PIN may be omitted when a step-up token is sent instead.
  */
 public record TransferRequest(
         @NotBlank String toAccount,
         @NotNull @DecimalMin(value = "1") BigDecimal amount,
-        @NotBlank String pin) {
+        String pin) {
 }
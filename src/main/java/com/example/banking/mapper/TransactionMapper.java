@@ -1,5 +1,7 @@
 package com.example.banking.mapper;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 import org.mapstruct.Mapper;
@@ -10,6 +12,7 @@ import com.example.banking.dto.StatementEntry;
 import com.example.banking.model.Transaction;
 import com.example.banking.model.TransactionChannel;
 import com.example.banking.model.TransactionType;
+import com.example.banking.repository.StatementRow;
 
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface TransactionMapper {
@@ -23,6 +26,26 @@ public interface TransactionMapper {
     @Mapping(target = "debitCredit", expression = "java(tx.getType() == com.example.banking.model.TransactionType.TRANSFER_OUT ? tx.getAmount().negate() : tx.getAmount())")
     StatementEntry toDto(Transaction tx);
 
+    /**
+     * Builds a statement line from raw column values, for queries that read
+     * the ledger without loading {@link Transaction} entities.
+     */
+    default StatementEntry toEntry(LocalDateTime timestamp, TransactionType type, TransactionChannel channel,
+                                   BigDecimal amount, BigDecimal balance, String remark) {
+        return new StatementEntry(
+                timestamp.toLocalDate().format(DATE_FMT),
+                timestamp.toLocalTime().format(TIME_FMT),
+                mapCode(type),
+                mapChannel(channel),
+                type == TransactionType.TRANSFER_OUT ? amount.negate() : amount,
+                balance,
+                remark);
+    }
+
+    default StatementEntry toEntry(StatementRow row) {
+        return toEntry(row.timestamp(), row.type(), row.channel(), row.amount(), row.balance(), row.remark());
+    }
+
     default String mapCode(TransactionType type) {
         return switch (type) {
             case DEPOSIT -> "A0";
@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 import java.math.BigDecimal;
@@ -13,7 +14,8 @@ import java.math.BigDecimal;
 @Table(name = "accounts")
 public class Account {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = 50)
     private Long id;
 
     @Version
@@ -81,4 +83,20 @@ public class Account {
     public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
-}
\ No newline at end of file
+
+    /**
+     * A detached copy of this account with another balance and version, for
+     * handing out state that is kept outside the entity.
+     */
+    public Account withBalance(BigDecimal balance, Long version) {
+        Account copy = new Account();
+        copy.id = id;
+        copy.version = version;
+        copy.accountNumber = accountNumber;
+        copy.citizenId = citizenId;
+        copy.thaiName = thaiName;
+        copy.englishName = englishName;
+        copy.balance = balance;
+        return copy;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.banking.model;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+/**
+ * One sub-balance of a striped account. Incoming transfers add to a random
+ * stripe; the stripes are folded back into {@link Account#getBalance()} when
+ * the account is debited for more than its own row holds.
+ */
+@Entity
+@Table(name = "account_stripes")
+@IdClass(AccountStripeId.class)
+public class AccountStripe {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "stripe")
+    private Integer stripe;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    @Version
+    private Long version;
+
+    protected AccountStripe() {
+    }
+
+    public AccountStripe(Long accountId, Integer stripe) {
+        this.accountId = accountId;
+        this.stripe = stripe;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
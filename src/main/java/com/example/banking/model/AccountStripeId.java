@@ -0,0 +1,47 @@
+package com.example.banking.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link AccountStripe}.
+ */
+public class AccountStripeId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long accountId;
+    private Integer stripe;
+
+    protected AccountStripeId() {
+    }
+
+    public AccountStripeId(Long accountId, Integer stripe) {
+        this.accountId = accountId;
+        this.stripe = stripe;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AccountStripeId other)) {
+            return false;
+        }
+        return Objects.equals(accountId, other.accountId)
+                && Objects.equals(stripe, other.stripe);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, stripe);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.banking.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Persistable;
+
+import com.example.banking.dto.TransferJobResponse.Status;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+/**
+ * A transfer accepted for background processing, stored before it is queued
+ * so it outlives the node that accepted it. {@code node} is the node that
+ * runs it; times are UTC. Like idempotency records, new rows are always
+ * inserted, never merged.
+ */
+@Entity
+@Table(name = "async_transfers")
+public class AsyncTransfer implements Persistable<String> {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String node;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(name = "citizen_id", nullable = false)
+    private String citizenId;
+
+    @Column(name = "from_account", nullable = false)
+    private String fromAccount;
+
+    @Column(name = "to_account", nullable = false)
+    private String toAccount;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    private BigDecimal balance;
+
+    private String error;
+
+    @Column(name = "submitted_at", nullable = false)
+    private LocalDateTime submittedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Transient
+    private boolean isNew;
+
+    protected AsyncTransfer() {
+    }
+
+    public AsyncTransfer(String id, String node, String owner, String citizenId, String fromAccount,
+                         String toAccount, BigDecimal amount, LocalDateTime submittedAt) {
+        this.id = id;
+        this.node = node;
+        this.owner = owner;
+        this.citizenId = citizenId;
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.amount = amount;
+        this.status = Status.QUEUED;
+        this.submittedAt = submittedAt;
+        this.isNew = true;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getCitizenId() {
+        return citizenId;
+    }
+
+    public String getFromAccount() {
+        return fromAccount;
+    }
+
+    public String getToAccount() {
+        return toAccount;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.banking.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Running total of an account's outgoing transfers for one day. Kept in step
+ * with the TRANSFER_OUT ledger rows by the transfer transaction itself so the
+ * daily limit check is a primary key lookup.
+ */
+@Entity
+@Table(name = "daily_transfer_totals")
+@IdClass(DailyTransferTotalId.class)
+public class DailyTransferTotal {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "business_date")
+    private LocalDate businessDate;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal total = BigDecimal.ZERO;
+
+    protected DailyTransferTotal() {
+    }
+
+    public DailyTransferTotal(Long accountId, LocalDate businessDate) {
+        this.accountId = accountId;
+        this.businessDate = businessDate;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getBusinessDate() {
+        return businessDate;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.banking.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link DailyTransferTotal}.
+ */
+public class DailyTransferTotalId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long accountId;
+    private LocalDate businessDate;
+
+    protected DailyTransferTotalId() {
+    }
+
+    public DailyTransferTotalId(Long accountId, LocalDate businessDate) {
+        this.accountId = accountId;
+        this.businessDate = businessDate;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getBusinessDate() {
+        return businessDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DailyTransferTotalId other)) {
+            return false;
+        }
+        return Objects.equals(accountId, other.accountId)
+                && Objects.equals(businessDate, other.businessDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, businessDate);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.banking.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+
+/**
+ * The stored JSON response of a request made with an {@code Idempotency-Key}.
+ * {@code scope} is the caller's principal, so two users can never see each
+ * other's responses by picking the same key; {@code fingerprint} identifies
+ * the operation and its arguments.
+ *
+ * <p>The record is inserted before the request runs and completed with the
+ * response in the same transaction. New records are always inserted, never
+ * merged, so a concurrent request with the same key waits on the primary key
+ * and then fails instead of overwriting it.</p>
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@IdClass(IdempotencyRecordId.class)
+public class IdempotencyRecord implements Persistable<IdempotencyRecordId> {
+    @Id
+    @Column(name = "scope")
+    private String scope;
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(name = "fingerprint", nullable = false)
+    private String fingerprint;
+
+    @Column(name = "response", columnDefinition = "MEDIUMBLOB")
+    private byte[] response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    private boolean isNew;
+
+    protected IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String scope, String key, String fingerprint) {
+        this.scope = scope;
+        this.key = key;
+        this.fingerprint = fingerprint;
+        this.createdAt = LocalDateTime.now();
+        this.isNew = true;
+    }
+
+    @Override
+    public IdempotencyRecordId getId() {
+        return new IdempotencyRecordId(scope, key);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public byte[] getResponse() {
+        return response;
+    }
+
+    public void complete(byte[] response) {
+        this.response = response;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.banking.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link IdempotencyRecord}.
+ */
+public class IdempotencyRecordId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String scope;
+    private String key;
+
+    protected IdempotencyRecordId() {
+    }
+
+    public IdempotencyRecordId(String scope, String key) {
+        this.scope = scope;
+        this.key = key;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdempotencyRecordId other)) {
+            return false;
+        }
+        return Objects.equals(scope, other.scope)
+                && Objects.equals(key, other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(scope, key);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.banking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Sequence number of the last journal record a ledger engine has projected
+ * into the database. Records after it are replayed from the journal.
+ */
+@Entity
+@Table(name = "ledger_checkpoints")
+public class LedgerCheckpoint {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private long position;
+
+    protected LedgerCheckpoint() {
+    }
+
+    public LedgerCheckpoint(String name, long position) {
+        this.name = name;
+        this.position = position;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+}
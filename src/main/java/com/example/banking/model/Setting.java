@@ -1,10 +1,13 @@
 package com.example.banking.model;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 
 @Entity
@@ -17,6 +20,9 @@ public class Setting {
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal value;
 
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     public String getName() {
         return name;
     }
@@ -32,4 +38,14 @@ public class Setting {
     public void setValue(BigDecimal value) {
         this.value = value;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.banking.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * An account's statement for a closed month, frozen as a compressed blob so
+ * it can be served without touching the ledger. {@code month} is the first
+ * day of the month.
+ */
+@Entity
+@Table(name = "statement_snapshots")
+@IdClass(StatementSnapshotId.class)
+public class StatementSnapshot {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "statement_month")
+    private LocalDate month;
+
+    @Column(name = "entry_count", nullable = false)
+    private int entryCount;
+
+    @Column(name = "content", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    protected StatementSnapshot() {
+    }
+
+    public StatementSnapshot(Long accountId, LocalDate month, int entryCount, byte[] content) {
+        this.accountId = accountId;
+        this.month = month;
+        this.entryCount = entryCount;
+        this.content = content;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getMonth() {
+        return month;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.banking.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link StatementSnapshot}.
+ */
+public class StatementSnapshotId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long accountId;
+    private LocalDate month;
+
+    protected StatementSnapshotId() {
+    }
+
+    public StatementSnapshotId(Long accountId, LocalDate month) {
+        this.accountId = accountId;
+        this.month = month;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getMonth() {
+        return month;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementSnapshotId other)) {
+            return false;
+        }
+        return Objects.equals(accountId, other.accountId)
+                && Objects.equals(month, other.month);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, month);
+    }
+}
@@ -6,21 +6,26 @@ import java.time.LocalDateTime;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import com.example.banking.model.TransactionChannel;
 import com.example.banking.model.TransactionType;
+import com.example.banking.repository.StatementSnapshotInvalidator;
 
 @Entity
 @Table(name = "transactions")
+@EntityListeners(StatementSnapshotInvalidator.class)
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -45,6 +50,10 @@ public class Transaction {
 
     private String remark;
 
+    /** Position in commit order, set by LedgerSequencer after the row has committed. */
+    @Column(name = "sync_seq")
+    private Long syncSeq;
+
     public Long getId() {
         return id;
     }
@@ -104,4 +113,8 @@ public class Transaction {
     public void setRemark(String remark) {
         this.remark = remark;
     }
-}
\ No newline at end of file
+
+    public Long getSyncSeq() {
+        return syncSeq;
+    }
+}
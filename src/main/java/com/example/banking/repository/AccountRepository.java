@@ -1,19 +1,83 @@
 package com.example.banking.repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import jakarta.persistence.LockModeType;
 
 import com.example.banking.model.Account;
 
-public interface AccountRepository extends JpaRepository<Account, Long> {
+public interface AccountRepository extends JpaRepository<Account, Long>, Refreshable<Account> {
     boolean existsByAccountNumber(String accountNumber);
     Optional<Account> findByAccountNumber(String accountNumber);
+    List<Account> findAllByAccountNumberIn(Collection<String> accountNumbers);
+
+    @Query("select a.accountNumber from Account a where a.citizenId = :citizenId order by a.accountNumber")
+    List<String> findAccountNumbersByCitizenId(String citizenId);
+
+    @Query("select a.citizenId from Account a where a.accountNumber = :accountNumber")
+    Optional<String> findCitizenIdByAccountNumber(String accountNumber);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select a from Account a where a.accountNumber = :accountNumber")
     Optional<Account> findByAccountNumberForUpdate(String accountNumber);
-}
\ No newline at end of file
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id = :id")
+    Optional<Account> findByIdForUpdate(Long id);
+
+    /**
+     * Reads the balance straight from the row, bypassing any loaded entity.
+     */
+    @Query("select a.balance from Account a where a.id = :id")
+    Optional<BigDecimal> findBalanceById(Long id);
+
+    /**
+     * Locks the row with {@code SELECT ... FOR UPDATE} without loading or
+     * version-checking the entity, and returns its balance.
+     */
+    @Query(value = "SELECT balance FROM accounts WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<BigDecimal> lockBalanceById(Long id);
+
+    /**
+     * Locks all given accounts with a single {@code SELECT ... FOR UPDATE}.
+     * Rows are locked in account number order whatever order the caller
+     * passes them in, so concurrent transfers between the same accounts
+     * cannot deadlock each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber in :accountNumbers order by a.accountNumber")
+    List<Account> findAllByAccountNumberInForUpdate(Collection<String> accountNumbers);
+
+    /**
+     * Subtracts {@code amount} in a single statement if the balance covers
+     * it, and bumps the version. Returns 0 when the balance is too low.
+     * Loaded entities keep the old balance until they are refreshed.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance - :amount, version = version + 1"
+            + " WHERE id = :id AND balance >= :amount", nativeQuery = true)
+    int debit(Long id, BigDecimal amount);
+
+    /**
+     * Adds {@code amount} in a single statement and bumps the version.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = balance + :amount, version = version + 1 WHERE id = :id",
+            nativeQuery = true)
+    int credit(Long id, BigDecimal amount);
+
+    /**
+     * Sets the balance and version to values computed elsewhere, for a
+     * ledger engine that owns them. Loaded entities keep the old values.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE accounts SET balance = :balance, version = :version WHERE id = :id", nativeQuery = true)
+    int overwriteBalance(Long id, BigDecimal balance, Long version);
+}
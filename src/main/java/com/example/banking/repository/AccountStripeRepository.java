@@ -0,0 +1,44 @@
+package com.example.banking.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import jakarta.persistence.LockModeType;
+
+import com.example.banking.model.AccountStripe;
+import com.example.banking.model.AccountStripeId;
+
+public interface AccountStripeRepository extends JpaRepository<AccountStripe, AccountStripeId> {
+    @Query("select s.stripe from AccountStripe s where s.accountId = :accountId")
+    List<Integer> findStripesByAccountId(Long accountId);
+
+    @Query("select distinct s.accountId from AccountStripe s")
+    List<Long> findAccountIds();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from AccountStripe s where s.accountId = :accountId order by s.stripe")
+    List<AccountStripe> findAllByAccountIdForUpdate(Long accountId);
+
+    @Query("select count(s) as stripes, coalesce(sum(s.balance), 0) as balance, coalesce(sum(s.version), 0) as version"
+            + " from AccountStripe s where s.accountId = :accountId")
+    StripeTotals sumByAccountId(Long accountId);
+
+    /**
+     * Adds {@code amount} to one stripe in a single statement and bumps its
+     * version. Returns 0 if the stripe does not exist.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE account_stripes SET balance = balance + :amount, version = version + 1"
+            + " WHERE account_id = :accountId AND stripe = :stripe", nativeQuery = true)
+    int credit(Long accountId, int stripe, BigDecimal amount);
+
+    interface StripeTotals {
+        Long getStripes();
+        BigDecimal getBalance();
+        Long getVersion();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.banking.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.example.banking.dto.TransferJobResponse.Status;
+import com.example.banking.model.AsyncTransfer;
+
+public interface AsyncTransferRepository extends JpaRepository<AsyncTransfer, String> {
+    List<AsyncTransfer> findAllByNodeAndStatusInOrderBySubmittedAt(String node, Collection<Status> statuses);
+
+    /**
+     * Moves {@code id} from {@code from} to {@code to}, returning {@code 0}
+     * if it was no longer in {@code from}.
+     */
+    @Modifying
+    @Query("update AsyncTransfer t set t.status = :to where t.id = :id and t.status = :from")
+    int changeStatus(String id, Status from, Status to);
+
+    @Modifying
+    @Query("update AsyncTransfer t set t.status = :status, t.balance = :balance, t.error = :error, "
+            + "t.completedAt = :completedAt where t.id = :id")
+    int finish(String id, Status status, BigDecimal balance, String error, LocalDateTime completedAt);
+
+    @Modifying
+    @Query("delete from AsyncTransfer t where t.completedAt < :cutoff")
+    int deleteCompletedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,19 @@
+package com.example.banking.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.example.banking.model.DailyTransferTotal;
+import com.example.banking.model.DailyTransferTotalId;
+
+public interface DailyTransferTotalRepository extends JpaRepository<DailyTransferTotal, DailyTransferTotalId> {
+    List<DailyTransferTotal> findByBusinessDate(LocalDate businessDate);
+
+    @Modifying
+    @Query("delete from DailyTransferTotal d where d.businessDate < :cutoff")
+    int deleteByBusinessDateBefore(LocalDate cutoff);
+}
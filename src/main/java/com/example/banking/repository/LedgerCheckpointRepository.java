@@ -0,0 +1,17 @@
+package com.example.banking.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import com.example.banking.model.LedgerCheckpoint;
+
+import jakarta.persistence.LockModeType;
+
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from LedgerCheckpoint c where c.name = :name")
+    Optional<LedgerCheckpoint> findByNameForUpdate(String name);
+}
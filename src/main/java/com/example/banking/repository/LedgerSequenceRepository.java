@@ -0,0 +1,53 @@
+package com.example.banking.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Ledger rows waiting for a sync sequence number, and the batched update that
+ * numbers them. Runs on the caller's transaction, like the JPA repositories.
+ */
+@Repository
+public class LedgerSequenceRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerSequenceRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /** One probe on {@code idx_transactions_sync_seq}. */
+    public boolean hasUnsequenced() {
+        return !jdbcTemplate.queryForList("SELECT id FROM transactions WHERE sync_seq IS NULL LIMIT 1", Long.class)
+                .isEmpty();
+    }
+
+    /** Ids of up to {@code limit} committed rows without a number, lowest first. */
+    public List<Long> findUnsequencedIds(int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM transactions WHERE sync_seq IS NULL ORDER BY id LIMIT ?",
+                Long.class, limit);
+    }
+
+    /** Numbers {@code ids} in order, starting at {@code first}, in one batch. */
+    public void assign(List<Long> ids, long first) {
+        jdbcTemplate.batchUpdate("UPDATE transactions SET sync_seq = ? WHERE id = ? AND sync_seq IS NULL",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, first + i);
+                        ps.setLong(2, ids.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return ids.size();
+                    }
+                });
+    }
+}
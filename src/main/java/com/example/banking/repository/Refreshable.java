@@ -0,0 +1,9 @@
+package com.example.banking.repository;
+
+/**
+ * Repository fragment that re-reads a managed entity from the database, for
+ * callers that changed its row with a bulk update.
+ */
+public interface Refreshable<T> {
+    void refresh(T entity);
+}
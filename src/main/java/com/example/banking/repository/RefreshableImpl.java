@@ -0,0 +1,14 @@
+package com.example.banking.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class RefreshableImpl<T> implements Refreshable<T> {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void refresh(T entity) {
+        entityManager.refresh(entity);
+    }
+}
@@ -1,8 +1,18 @@
 package com.example.banking.repository;
 
+import java.time.Instant;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.banking.model.Setting;
 
 public interface SettingRepository extends JpaRepository<Setting, String> {
+    @Query("select count(s) as count, max(s.updatedAt) as lastUpdated from Setting s")
+    SettingsVersion findVersion();
+
+    interface SettingsVersion {
+        long getCount();
+        Instant getLastUpdated();
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.banking.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+
+/**
+ * The ledger columns a statement line is built from, read by a constructor
+ * projection so no {@code Transaction} entity or {@code Account} is loaded.
+ */
+public record StatementRow(
+        LocalDateTime timestamp,
+        TransactionType type,
+        TransactionChannel channel,
+        BigDecimal amount,
+        BigDecimal balance,
+        String remark) {
+}
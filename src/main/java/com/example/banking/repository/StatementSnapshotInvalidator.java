@@ -0,0 +1,54 @@
+package com.example.banking.repository;
+
+import java.sql.Date;
+import java.time.YearMonth;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.banking.model.Transaction;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Drops the frozen statement of a closed month whenever a ledger row dated in
+ * that month is written or removed, so a back-dated correction is never
+ * hidden behind a stale snapshot. Rows for the current month, which is every
+ * row written by normal traffic, cost one date comparison.
+ *
+ * <p>The account row is locked before the delete, as
+ * {@link com.example.banking.service.StatementSnapshotService#freeze} locks it
+ * before reading the month: a freeze either commits first and its snapshot is
+ * deleted here, or starts after this transaction commits and reads the new
+ * row.</p>
+ *
+ * <p>Registered on {@link Transaction} and instantiated by Hibernate through
+ * Spring. The lock and delete go through JDBC on the transaction's connection
+ * because the listener runs while the persistence context is being changed.</p>
+ */
+public class StatementSnapshotInvalidator {
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementSnapshotInvalidator(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PrePersist
+    @PreUpdate
+    @PreRemove
+    void ledgerChanged(Transaction tx) {
+        if (tx.getTimestamp() == null || tx.getAccount() == null || tx.getAccount().getId() == null) {
+            return;
+        }
+        YearMonth month = YearMonth.from(tx.getTimestamp());
+        if (month.isBefore(YearMonth.now())) {
+            jdbcTemplate.queryForList("SELECT id FROM accounts WHERE id = ? FOR UPDATE", Long.class,
+                    tx.getAccount().getId());
+            jdbcTemplate.update("DELETE FROM statement_snapshots WHERE account_id = ? AND statement_month = ?",
+                    tx.getAccount().getId(), Date.valueOf(month.atDay(1)));
+        }
+    }
+}
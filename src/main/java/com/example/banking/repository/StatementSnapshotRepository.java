@@ -0,0 +1,15 @@
+package com.example.banking.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import com.example.banking.model.StatementSnapshot;
+import com.example.banking.model.StatementSnapshotId;
+
+public interface StatementSnapshotRepository extends JpaRepository<StatementSnapshot, StatementSnapshotId> {
+    @Query("select s.accountId from StatementSnapshot s where s.month = :month")
+    List<Long> findAccountIdsByMonth(LocalDate month);
+}
@@ -0,0 +1,55 @@
+package com.example.banking.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.mapper.TransactionMapper;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+
+/**
+ * Reads statement lines for a time range one row at a time. The query runs
+ * with a positive fetch size, which MySQL Connector/J turns into a server-side
+ * cursor when the URL has {@code useCursorFetch=true}, so only one fetch
+ * window of rows is ever held in memory.
+ */
+@Repository
+public class StatementStreamRepository {
+    private static final String SELECT = "SELECT `timestamp`, type, channel, amount, balance, remark "
+            + "FROM transactions WHERE account_id = ? AND `timestamp` >= ? AND `timestamp` < ? "
+            + "ORDER BY `timestamp`, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionMapper transactionMapper;
+
+    public StatementStreamRepository(DataSource dataSource, TransactionMapper transactionMapper,
+                                     @Value("${banking.statement.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionMapper = transactionMapper;
+    }
+
+    /**
+     * Passes each statement line for {@code accountId} in {@code [from, to)}
+     * to {@code action}, oldest first.
+     */
+    public void forEach(Long accountId, LocalDateTime from, LocalDateTime to, Consumer<StatementEntry> action) {
+        jdbcTemplate.query(SELECT, rs -> {
+            action.accept(transactionMapper.toEntry(
+                    rs.getTimestamp(1).toLocalDateTime(),
+                    TransactionType.valueOf(rs.getString(2)),
+                    TransactionChannel.valueOf(rs.getString(3)),
+                    rs.getBigDecimal(4),
+                    rs.getBigDecimal(5),
+                    rs.getString(6)));
+        }, accountId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+}
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -12,10 +13,52 @@ import com.example.banking.model.Transaction;
 import com.example.banking.model.TransactionType;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findByAccountAndTimestampBetweenOrderByTimestampAsc(Account account,
-            LocalDateTime start, LocalDateTime end);
+    /**
+     * Statement lines for {@code accountId} in {@code [start, end)}, oldest
+     * first. Filtering on the foreign key column avoids a join to accounts, and
+     * the constructor projection returns unmanaged rows, so nothing enters the
+     * persistence context.
+     */
+    @Query("select new com.example.banking.repository.StatementRow(t.timestamp, t.type, t.channel, t.amount, t.balance, t.remark) from Transaction t where t.account.id = :accountId and t.timestamp >= :start and t.timestamp < :end order by t.timestamp asc, t.id asc")
+    List<StatementRow> findStatementRows(Long accountId, LocalDateTime start, LocalDateTime end);
+
+    @Query("select distinct t.account.id from Transaction t where t.timestamp >= :start and t.timestamp < :end")
+    List<Long> findAccountIdsWithActivityBetween(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Page of {@code account}'s ledger in commit order, after the row with
+     * sync sequence number {@code syncSeq}. Rows not yet numbered by
+     * {@code LedgerSequencer} are left for a later page. A single range scan
+     * on {@code idx_transactions_account_sync}.
+     */
+    @Query("select t from Transaction t where t.account = :account and t.syncSeq > :syncSeq order by t.syncSeq asc")
+    List<Transaction> findPageAfter(Account account, long syncSeq, Pageable page);
+
+    /**
+     * Net effect on the balance of {@code accountId}'s ledger rows after sync
+     * sequence number {@code syncSeq}, including rows not numbered yet:
+     * credits count positive, debits negative.
+     */
+    @Query("select coalesce(sum(case when t.type = com.example.banking.model.TransactionType.TRANSFER_OUT then -t.amount else t.amount end), 0) from Transaction t where t.account.id = :accountId and (t.syncSeq > :syncSeq or t.syncSeq is null)")
+    BigDecimal sumSignedAmountAfterSyncSeq(Long accountId, long syncSeq);
+
+    /**
+     * Net effect on the balance of {@code accountId}'s ledger rows after
+     * {@code (timestamp, id)}: credits count positive, debits negative.
+     */
+    @Query("select coalesce(sum(case when t.type = com.example.banking.model.TransactionType.TRANSFER_OUT then -t.amount else t.amount end), 0) from Transaction t where t.account.id = :accountId and (t.timestamp > :timestamp or (t.timestamp = :timestamp and t.id > :id))")
+    BigDecimal sumSignedAmountAfter(Long accountId, LocalDateTime timestamp, Long id);
 
     @Query("select coalesce(sum(t.amount), 0) from Transaction t where t.account = :account and t.type = :type and t.timestamp >= :start and t.timestamp < :end")
     BigDecimal sumAmountByAccountAndTypeAndTimestampBetween(Account account,
             TransactionType type, LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+
+    @Query("select t.account.id as accountId, sum(t.amount) as total from Transaction t where t.type = :type and t.timestamp >= :start and t.timestamp < :end group by t.account.id")
+    List<AccountTotal> sumAmountByTypeAndTimestampBetweenGroupByAccount(TransactionType type,
+            LocalDateTime start, LocalDateTime end);
+
+    interface AccountTotal {
+        Long getAccountId();
+        BigDecimal getTotal();
+    }
+}
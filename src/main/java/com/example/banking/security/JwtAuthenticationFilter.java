@@ -36,6 +36,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         email,
                         null,
                         java.util.List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+                auth.setDetails(OwnershipClaims.fromClaims(claims));
                 SecurityContextHolder.getContext().setAuthentication(auth);
             } catch (JwtException e) {
                 // ignore invalid token
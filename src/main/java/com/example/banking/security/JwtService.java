@@ -1,42 +1,190 @@
 package com.example.banking.security;
 
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.example.banking.model.UserRole;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
+/**
+ * Issues and verifies RS256 tokens. Verified access token claims are cached
+ * by a SHA-256 digest of the token until the token expires, so a client
+ * reusing the same bearer token only pays for the RSA check once.
+ */
 @Component
 public class JwtService {
+    static final String SCOPE_CLAIM = "scope";
+    static final String STEP_UP_SCOPE = "pin";
+    static final String ACCOUNT_CLAIM = "acct";
+    static final String PIN_FINGERPRINT_CLAIM = "pfp";
+    static final String CITIZEN_ID_CLAIM = "cid";
+    static final String ACCOUNTS_CLAIM = "accts";
+    /** Customers with more accounts than this get only the citizen ID claim. */
+    static final int MAX_ACCOUNT_CLAIMS = 50;
+    private static final long DEFAULT_CACHE_SIZE = 10_000;
+    private static final Duration MAX_CACHE_TTL = Duration.ofHours(1);
+
     private final KeyPair keyPair;
+    private final JwtParser parser;
+    private final Cache<String, Claims> verified;
 
     public JwtService(KeyPair keyPair) {
+        this(keyPair, DEFAULT_CACHE_SIZE);
+    }
+
+    @Autowired
+    public JwtService(KeyPair keyPair, MeterRegistry meterRegistry,
+                      @Value("${banking.jwt.cache-size:10000}") long cacheSize) {
+        this(keyPair, cacheSize);
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+    }
+
+    private JwtService(KeyPair keyPair, long cacheSize) {
         this.keyPair = keyPair;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(keyPair.getPublic())
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
     }
 
     public String generateToken(String email, UserRole role) {
+        return generateToken(email, role, null, List.of());
+    }
+
+    /**
+     * Issues an access token that also carries the customer's citizen ID and
+     * owned account numbers, so ownership checks need no database lookup.
+     */
+    public String generateToken(String email, UserRole role, String citizenId, Collection<String> accountNumbers) {
         Instant now = Instant.now();
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(email)
                 .claim("role", role.name())
                 .setIssuedAt(Date.from(now))
-                .setExpiration(Date.from(now.plusSeconds(3600)))
+                .setExpiration(Date.from(now.plusSeconds(3600)));
+        if (citizenId != null) {
+            builder.claim(CITIZEN_ID_CLAIM, citizenId);
+            if (accountNumbers.size() <= MAX_ACCOUNT_CLAIMS) {
+                builder.claim(ACCOUNTS_CLAIM, List.copyOf(accountNumbers));
+            }
+        }
+        return builder.signWith(keyPair.getPrivate(), SignatureAlgorithm.RS256).compact();
+    }
+
+    /**
+     * Issues a PIN step-up token that is only valid for {@code accountNumber}
+     * and only while the user's PIN hash still has {@code pinFingerprint}.
+     */
+    public String generateStepUpToken(String email, String accountNumber, String pinFingerprint, Duration ttl) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .setSubject(email)
+                .claim(SCOPE_CLAIM, STEP_UP_SCOPE)
+                .claim(ACCOUNT_CLAIM, accountNumber)
+                .claim(PIN_FINGERPRINT_CLAIM, pinFingerprint)
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(ttl)))
                 .signWith(keyPair.getPrivate(), SignatureAlgorithm.RS256)
                 .compact();
     }
 
+    /**
+     * Parses an access token, returning cached claims when the same token
+     * was verified before and has not expired. Scoped tokens such as step-up
+     * tokens are rejected so they cannot be used as bearer credentials. The
+     * returned claims are shared and must not be modified.
+     */
     public Claims parse(String token) throws JwtException {
-        return Jwts.parserBuilder()
-                .setSigningKey(keyPair.getPublic())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        String key = digest(token);
+        Claims claims = verified.getIfPresent(key);
+        if (claims == null) {
+            claims = parseUncached(token);
+            verified.put(key, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Parses an access token with a full signature check, bypassing the cache.
+     */
+    public Claims parseUncached(String token) throws JwtException {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.get(SCOPE_CLAIM) != null) {
+            throw new UnsupportedJwtException("Scoped token is not an access token");
+        }
+        return claims;
+    }
+
+    public Claims parseStepUpToken(String token) throws JwtException {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (!STEP_UP_SCOPE.equals(claims.get(SCOPE_CLAIM, String.class))) {
+            throw new UnsupportedJwtException("Not a step-up token");
+        }
+        return claims;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keeps each entry until its token's {@code exp}, capped at one hour.
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return MAX_CACHE_TTL.toNanos();
+            }
+            Duration remaining = Duration.between(Instant.now(), expiration.toInstant());
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return Math.min(remaining.toNanos(), MAX_CACHE_TTL.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,42 @@
+package com.example.banking.security;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.security.core.Authentication;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Ownership facts signed into a customer's access token at login: the
+ * citizen ID and the account numbers owned at that time. Stored as the
+ * authentication details by {@link JwtAuthenticationFilter}.
+ *
+ * <p>The account list is only a positive hint. Accounts opened after login
+ * are not in it and are checked against the database by citizen ID.</p>
+ */
+public record OwnershipClaims(String citizenId, Set<String> accountNumbers) {
+    public boolean owns(String accountNumber) {
+        return accountNumbers.contains(accountNumber);
+    }
+
+    static OwnershipClaims fromClaims(Claims claims) {
+        String citizenId = claims.get(JwtService.CITIZEN_ID_CLAIM, String.class);
+        if (citizenId == null) {
+            return null;
+        }
+        Object accounts = claims.get(JwtService.ACCOUNTS_CLAIM);
+        Set<String> accountNumbers = accounts instanceof Collection<?> list
+                ? list.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet())
+                : Set.of();
+        return new OwnershipClaims(citizenId, accountNumbers);
+    }
+
+    public static Optional<OwnershipClaims> of(Authentication authentication) {
+        return authentication != null && authentication.getDetails() instanceof OwnershipClaims claims
+                ? Optional.of(claims)
+                : Optional.empty();
+    }
+}
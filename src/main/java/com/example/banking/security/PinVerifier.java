@@ -0,0 +1,121 @@
+package com.example.banking.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.User;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Verifies the PIN for transfers and statements, either with a BCrypt check
+ * or with a short-lived step-up token issued after an earlier BCrypt check.
+ *
+ * <p>Step-up tokens are bound to one account and to a fingerprint of the
+ * user's current PIN hash, so changing the PIN revokes every outstanding
+ * token.</p>
+ */
+@Component
+public class PinVerifier {
+    public static final String STEP_UP_HEADER = "X-Step-Up-Token";
+
+    private final PasswordEncoder passwordEncoder;
+    private final JwtService jwtService;
+    private final Duration stepUpTtl;
+    private final Counter bcryptVerifications;
+    private final Counter stepUpVerifications;
+    private final Counter stepUpRejections;
+    private final Counter stepUpIssued;
+
+    public PinVerifier(PasswordEncoder passwordEncoder,
+                       JwtService jwtService,
+                       MeterRegistry meterRegistry,
+                       @Value("${banking.step-up.ttl:PT5M}") Duration stepUpTtl) {
+        this.passwordEncoder = passwordEncoder;
+        this.jwtService = jwtService;
+        this.stepUpTtl = stepUpTtl;
+        this.bcryptVerifications = meterRegistry.counter("banking.pin.verifications", "method", "bcrypt");
+        this.stepUpVerifications = meterRegistry.counter("banking.pin.verifications", "method", "step_up");
+        this.stepUpRejections = meterRegistry.counter("banking.pin.step_up.rejected");
+        this.stepUpIssued = meterRegistry.counter("banking.pin.step_up.issued");
+    }
+
+    /**
+     * Checks {@code pin} with BCrypt and returns a step-up token for
+     * {@code accountNumber}. The caller must already have checked that the
+     * user owns the account.
+     */
+    public String issueStepUpToken(User user, String accountNumber, String pin) {
+        verifyPin(user, pin);
+        stepUpIssued.increment();
+        return jwtService.generateStepUpToken(user.getEmail(), accountNumber,
+                fingerprint(user.getPinHash()), stepUpTtl);
+    }
+
+    /**
+     * Accepts a valid step-up token for {@code accountNumber} without running
+     * BCrypt. Falls back to checking {@code pin} when no usable token is given.
+     */
+    public void verify(User user, String accountNumber, String pin, String stepUpToken) {
+        if (stepUpToken != null) {
+            if (isValidStepUpToken(user, accountNumber, stepUpToken)) {
+                stepUpVerifications.increment();
+                return;
+            }
+            stepUpRejections.increment();
+            if (pin == null) {
+                throw new IllegalArgumentException(ErrorMessages.INVALID_STEP_UP_TOKEN);
+            }
+        }
+        verifyPin(user, pin);
+    }
+
+    public Duration getStepUpTtl() {
+        return stepUpTtl;
+    }
+
+    private void verifyPin(User user, String pin) {
+        if (pin == null) {
+            throw new IllegalArgumentException(ErrorMessages.INVALID_PIN);
+        }
+        bcryptVerifications.increment();
+        if (!passwordEncoder.matches(pin, user.getPinHash())) {
+            throw new IllegalArgumentException(ErrorMessages.INVALID_PIN);
+        }
+    }
+
+    private boolean isValidStepUpToken(User user, String accountNumber, String token) {
+        try {
+            Claims claims = jwtService.parseStepUpToken(token);
+            return user.getEmail().equals(claims.getSubject())
+                    && accountNumber.equals(claims.get(JwtService.ACCOUNT_CLAIM, String.class))
+                    && MessageDigest.isEqual(
+                            fingerprint(user.getPinHash()).getBytes(StandardCharsets.US_ASCII),
+                            String.valueOf(claims.get(JwtService.PIN_FINGERPRINT_CLAIM))
+                                    .getBytes(StandardCharsets.US_ASCII));
+        } catch (JwtException e) {
+            return false;
+        }
+    }
+
+    static String fingerprint(String pinHash) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(pinHash.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
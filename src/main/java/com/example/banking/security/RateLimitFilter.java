@@ -2,54 +2,253 @@ package com.example.banking.security;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 /**
- * Simple in-memory rate limiting filter. Limits each remote address to
- * 100 requests per minute.
+ * In-memory rate limiting filter. Each request is counted against the first
+ * rule in {@code banking.rate-limit.rules} matching its method and path, or
+ * against {@code banking.rate-limit.default}. A rule is written
+ * {@code [METHOD ]PATTERN=KEY:LIMIT/PERIOD}, for example
+ * {@code POST /auth/**=ip:20/PT1M}, where {@code KEY} is {@code ip},
+ * {@code subject}, {@code path} or several of them joined with {@code +},
+ * each of which becomes part of the bucket key. {@code subject} is the email
+ * in a valid bearer token, so customers behind one address get separate
+ * limits; requests without one are keyed by address.
+ *
+ * <p>Every key has a token bucket holding {@code LIMIT} requests and refilled
+ * evenly over {@code PERIOD}, kept as the time the bucket will be full again
+ * and updated with a compare-and-set, so requests never wait on each other.
+ * At most {@code banking.rate-limit.max-keys} buckets are kept, and a bucket
+ * idle for the longest period is dropped, since it would be full by then
+ * anyway. Rejected requests get {@code 429} with {@code Retry-After} and are
+ * counted per rule in {@code banking.rate_limit.rejected}.</p>
  */
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE + 2)
 public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String DEFAULT_RULES = "POST /auth/**=ip:20/PT1M,GET /api/accounts/*=subject:600/PT1M";
+
+    private final JwtService jwtService;
+    private final LongSupplier nanoTime;
+    private final List<Rule> rules;
+    private final Rule defaultRule;
+    private final Cache<String, AtomicLong> buckets;
 
-    private static class Counter {
-        AtomicInteger count = new AtomicInteger();
-        Instant windowStart = Instant.now();
+    @Autowired
+    public RateLimitFilter(JwtService jwtService,
+                           MeterRegistry meterRegistry,
+                           @Value("${banking.rate-limit.rules:" + DEFAULT_RULES + "}") String rules,
+                           @Value("${banking.rate-limit.default:subject:100/PT1M}") String defaultRule,
+                           @Value("${banking.rate-limit.max-keys:100000}") long maxKeys) {
+        this(jwtService, meterRegistry, rules, defaultRule, maxKeys, System::nanoTime);
     }
 
-    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
-    private final Duration window = Duration.ofMinutes(1);
-    private final int limit = 100;
+    RateLimitFilter(JwtService jwtService, MeterRegistry meterRegistry, String rules, String defaultRule,
+                    long maxKeys, LongSupplier nanoTime) {
+        this.jwtService = jwtService;
+        this.nanoTime = nanoTime;
+        this.rules = new ArrayList<>();
+        for (String spec : StringUtils.commaDelimitedListToStringArray(rules)) {
+            if (StringUtils.hasText(spec)) {
+                String route = spec.substring(0, Math.max(spec.lastIndexOf('='), 0)).trim();
+                this.rules.add(Rule.parse(spec.trim(), this.rules.size(), route, meterRegistry));
+            }
+        }
+        this.defaultRule = Rule.parse("/**=" + defaultRule.trim(), this.rules.size(), "default", meterRegistry);
+        long longestPeriod = this.defaultRule.period;
+        for (Rule rule : this.rules) {
+            longestPeriod = Math.max(longestPeriod, rule.period);
+        }
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(longestPeriod, TimeUnit.NANOSECONDS)
+                .ticker(nanoTime::getAsLong)
+                // Every request reads a bucket; waking a pool thread to expire them costs more than doing it here.
+                .executor(Runnable::run)
+                .build();
+        meterRegistry.gauge("banking.rate_limit.keys", buckets, Cache::estimatedSize);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
             FilterChain filterChain) throws ServletException, IOException {
-        String key = request.getRemoteAddr();
-        Counter counter = counters.computeIfAbsent(key, k -> new Counter());
-        synchronized (counter) {
-            if (Duration.between(counter.windowStart, Instant.now()).compareTo(window) > 0) {
-                counter.count.set(0);
-                counter.windowStart = Instant.now();
+        Rule rule = ruleFor(request);
+        long now = nanoTime.getAsLong();
+        // Long.MIN_VALUE: full, whatever the time.
+        AtomicLong fullAt = buckets.get(rule.key(request, this), k -> new AtomicLong(Long.MIN_VALUE));
+        long wait = rule.acquire(fullAt, now);
+        if (wait > 0) {
+            rule.rejected.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    wait + TimeUnit.SECONDS.toNanos(1) - 1))));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Rule ruleFor(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (Rule rule : rules) {
+            if (rule.matches(request.getMethod(), path)) {
+                return rule;
             }
-            if (counter.count.incrementAndGet() > limit) {
-                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-                return;
+        }
+        return defaultRule;
+    }
+
+    /** The email in a valid bearer token, or null. */
+    private String subjectOf(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith("Bearer ")) {
+            try {
+                Claims claims = jwtService.parse(header.substring(7));
+                if (claims != null) {
+                    return claims.getSubject();
+                }
+            } catch (JwtException e) {
+                // keyed by address instead
+            }
+        }
+        return null;
+    }
+
+    /** Buckets currently kept, after pending evictions. */
+    long bucketCount() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private enum KeyPart { IP, SUBJECT, PATH }
+
+    private static final class Rule {
+        private static final PathMatcher PATHS = new AntPathMatcher();
+
+        final int index;
+        final String method;
+        final String pattern;
+        final String prefix;
+        final Set<KeyPart> keyParts;
+        final long period;
+        final long interval;
+        final long capacity;
+        final Counter rejected;
+
+        private Rule(int index, String method, String pattern, Set<KeyPart> keyParts, int limit, Duration period,
+                     Counter rejected) {
+            this.index = index;
+            this.method = method;
+            this.pattern = pattern;
+            // The matcher tokenizes every path; most paths are told apart by their start.
+            this.prefix = literalPrefix(pattern);
+            this.keyParts = keyParts;
+            this.period = period.toNanos();
+            this.interval = this.period / limit;
+            this.capacity = interval * limit;
+            this.rejected = rejected;
+        }
+
+        static Rule parse(String spec, int index, String name, MeterRegistry meterRegistry) {
+            try {
+                int equals = spec.lastIndexOf('=');
+                String route = spec.substring(0, equals).trim();
+                String[] keyAndRate = spec.substring(equals + 1).split(":", 2);
+                String[] limitAndPeriod = keyAndRate[1].split("/", 2);
+                int space = route.indexOf(' ');
+                String method = space < 0 ? null : route.substring(0, space).toUpperCase(Locale.ROOT);
+                String pattern = route.substring(space + 1).trim();
+                Set<KeyPart> keyParts = EnumSet.noneOf(KeyPart.class);
+                for (String part : keyAndRate[0].split("\\+")) {
+                    keyParts.add(KeyPart.valueOf(part.trim().toUpperCase(Locale.ROOT)));
+                }
+                int limit = Integer.parseInt(limitAndPeriod[0].trim());
+                Duration period = Duration.parse(limitAndPeriod[1].trim());
+                if (limit < 1 || period.toNanos() < limit || !pattern.startsWith("/")) {
+                    throw new IllegalArgumentException(spec);
+                }
+                return new Rule(index, method, pattern, keyParts, limit, period,
+                        meterRegistry.counter("banking.rate_limit.rejected", "rule", name));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid rate limit rule: " + spec, e);
+            }
+        }
+
+        private static String literalPrefix(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' || c == '?' || c == '{') {
+                    return pattern.substring(0, i);
+                }
+            }
+            return pattern;
+        }
+
+        boolean matches(String requestMethod, String path) {
+            return (method == null || method.equals(requestMethod)) && path.startsWith(prefix)
+                    && PATHS.match(pattern, path);
+        }
+
+        String key(HttpServletRequest request, RateLimitFilter filter) {
+            StringBuilder key = new StringBuilder().append(index);
+            String subject = keyParts.contains(KeyPart.SUBJECT) ? filter.subjectOf(request) : null;
+            if (keyParts.contains(KeyPart.IP) || keyParts.contains(KeyPart.SUBJECT) && subject == null) {
+                key.append("|ip:").append(request.getRemoteAddr());
+            }
+            if (subject != null) {
+                key.append("|sub:").append(subject);
+            }
+            if (keyParts.contains(KeyPart.PATH)) {
+                key.append('|').append(request.getRequestURI());
+            }
+            return key.toString();
+        }
+
+        /**
+         * Takes a request from the bucket, returning {@code 0}, or the
+         * nanoseconds until one is available if it is empty.
+         */
+        long acquire(AtomicLong fullAt, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + interval;
+                if (next - now > capacity) {
+                    return next - now - capacity;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
             }
         }
-        filterChain.doFilter(request, response);
     }
 }
@@ -0,0 +1,111 @@
+package com.example.banking.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.banking.dto.AccountSnapshot;
+import com.example.banking.model.Account;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of account snapshots keyed by account number. Writers hand
+ * it the accounts they changed and the new state is stored once the
+ * transaction commits; a rolled back change never reaches the cache.
+ * Entries only ever move forward in version, so an out-of-order commit
+ * callback or a load racing an update cannot reinstate an older balance.
+ *
+ * <p>The cache is local to each node. Updates made on another node show up
+ * when the entry expires after {@code banking.account-cache.ttl}.</p>
+ */
+@Component
+public class AccountCache {
+    private final Cache<String, AccountSnapshot> snapshots;
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public AccountCache(MeterRegistry meterRegistry,
+                        @Value("${banking.account-cache.size:100000}") long size,
+                        @Value("${banking.account-cache.ttl:PT10S}") Duration ttl) {
+        this(size, ttl);
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "accounts");
+    }
+
+    AccountCache(long size, Duration ttl) {
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached snapshot of {@code accountNumber}, loading it on a
+     * miss. The loader reads the database, so it runs outside the cache: a
+     * loader inside Caffeine's compute would hold a lock on the hash bin for
+     * the whole query, blocking other keys in it and pinning a virtual
+     * thread's carrier. Callers that miss together each load; the newer
+     * version is kept. A load that overlaps an eviction is returned but not
+     * stored, since it may have read the state the eviction dropped.
+     */
+    public AccountSnapshot get(String accountNumber, Function<String, AccountSnapshot> loader) {
+        AccountSnapshot cached = snapshots.getIfPresent(accountNumber);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = evictions.get();
+        AccountSnapshot loaded = loader.apply(accountNumber);
+        return evictions.get() == seen ? put(loaded) : loaded;
+    }
+
+    /**
+     * Stores the state of {@code account} after the current transaction
+     * commits, or immediately when there is none.
+     */
+    public void updateAfterCommit(Account account) {
+        afterCommit(() -> put(AccountSnapshot.of(account)));
+    }
+
+    /**
+     * Drops {@code accountNumber} after the current transaction commits, for
+     * writers that change an account without holding its entity.
+     */
+    public void evictAfterCommit(String accountNumber) {
+        afterCommit(() -> {
+            evictions.incrementAndGet();
+            snapshots.invalidate(accountNumber);
+        });
+    }
+
+    AccountSnapshot put(AccountSnapshot snapshot) {
+        return snapshots.asMap().merge(snapshot.accountNumber(), snapshot,
+                (cached, updated) -> isOlder(updated, cached) ? cached : updated);
+    }
+
+    private static boolean isOlder(AccountSnapshot updated, AccountSnapshot cached) {
+        return updated.version() != null && cached.version() != null && updated.version() < cached.version();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.banking.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs deposits and transfers in a transaction that matches
+ * {@code banking.concurrency.mode}.
+ *
+ * <ul>
+ *   <li>{@code PESSIMISTIC} (default): SERIALIZABLE, with the accounts locked
+ *   by {@code SELECT ... FOR UPDATE} before they are changed.</li>
+ *   <li>{@code OPTIMISTIC}: READ COMMITTED with plain reads. The
+ *   {@code @Version} check on update detects a concurrent change, and the
+ *   whole transaction is retried up to {@code banking.concurrency.max-attempts}
+ *   times. Retries use jittered exponential backoff starting at
+ *   {@code banking.concurrency.retry-backoff}.</li>
+ *   <li>{@code ATOMIC}: READ COMMITTED. Balances are changed by conditional
+ *   single-statement {@code UPDATE}s, so a row is locked only from its update
+ *   to the commit and nothing needs retrying.</li>
+ * </ul>
+ *
+ * <p>When a transaction is already active the work joins it, and retrying is
+ * left to whoever started it.</p>
+ */
+@Component
+public class AccountConcurrency {
+    public enum Mode {
+        PESSIMISTIC,
+        OPTIMISTIC,
+        ATOMIC
+    }
+
+    private final Mode mode;
+    private final TransactionTemplate template;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public AccountConcurrency(PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${banking.concurrency.mode:PESSIMISTIC}") Mode mode,
+                              @Value("${banking.concurrency.max-attempts:5}") int maxAttempts,
+                              @Value("${banking.concurrency.retry-backoff:PT0.005S}") Duration retryBackoff) {
+        this.mode = mode;
+        this.template = new TransactionTemplate(transactionManager);
+        this.template.setIsolationLevel(mode == Mode.PESSIMISTIC
+                ? TransactionDefinition.ISOLATION_SERIALIZABLE
+                : TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.retries = meterRegistry.counter("banking.concurrency.retries", "mode", mode.name());
+        this.exhausted = meterRegistry.counter("banking.concurrency.exhausted", "mode", mode.name());
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isOptimistic() {
+        return mode == Mode.OPTIMISTIC;
+    }
+
+    public boolean isAtomic() {
+        return mode == Mode.ATOMIC;
+    }
+
+    /**
+     * Whether accounts are read with {@code SELECT ... FOR UPDATE} before
+     * they are changed.
+     */
+    public boolean locksOnRead() {
+        return mode == Mode.PESSIMISTIC;
+    }
+
+    /**
+     * Runs {@code work} in a new transaction, or in the current one if there
+     * is one. In optimistic mode a version conflict rolls back and runs
+     * {@code work} again, so it must not have side effects outside the
+     * transaction.
+     */
+    public <T> T execute(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (mode != Mode.OPTIMISTIC || attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private void backOff(int attempt, OptimisticLockingFailureException conflict) {
+        long ceiling = retryBackoff.toNanos() << Math.min(attempt - 1, 10);
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            // Full jitter, so transactions that collided once do not collide again in lockstep.
+            long nanos = ThreadLocalRandom.current().nextLong(ceiling);
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
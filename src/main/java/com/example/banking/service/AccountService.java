@@ -2,65 +2,78 @@ package com.example.banking.service;
 
 import java.math.BigDecimal;
 import java.security.SecureRandom;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Optional;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.annotation.Isolation;
 
 import com.example.banking.ErrorMessages;
 import com.example.banking.dto.AccountRequest;
+import com.example.banking.dto.AccountSnapshot;
 import com.example.banking.dto.StatementEntry;
+import com.example.banking.dto.StepUpResponse;
+import com.example.banking.dto.TransactionSyncResponse;
 import com.example.banking.mapper.AccountMapper;
 import com.example.banking.mapper.TransactionMapper;
 import com.example.banking.model.Account;
 import com.example.banking.model.Transaction;
-import com.example.banking.model.TransactionChannel;
-import com.example.banking.model.TransactionType;
 import com.example.banking.repository.AccountRepository;
 import com.example.banking.repository.TransactionRepository;
 import com.example.banking.repository.UserRepository;
-import com.example.banking.repository.SettingRepository;
-import com.example.banking.model.Setting;
+import com.example.banking.security.PinVerifier;
 
 @Service
 public class AccountService {
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PinVerifier pinVerifier;
     private final AccountMapper accountMapper;
     private final TransactionMapper transactionMapper;
-    private final SettingRepository settingRepository;
+    private final StatementSnapshotService statementSnapshotService;
+    private final AccountCache accountCache;
+    private final AccountStripes accountStripes;
+    private final LedgerEngine ledgerEngine;
     private static final int ACCOUNT_NUMBER_LENGTH = 7;
+    static final int SYNC_DEFAULT_LIMIT = 100;
+    static final int SYNC_MAX_LIMIT = 500;
     private final SecureRandom random = new SecureRandom();
 
     public AccountService(AccountRepository accountRepository,
                          UserRepository userRepository,
                          TransactionRepository transactionRepository,
-                         PasswordEncoder passwordEncoder,
+                         PinVerifier pinVerifier,
                          AccountMapper accountMapper,
                          TransactionMapper transactionMapper,
-                         SettingRepository settingRepository) {
+                         StatementSnapshotService statementSnapshotService,
+                         AccountCache accountCache,
+                         AccountStripes accountStripes,
+                         LedgerEngine ledgerEngine) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.pinVerifier = pinVerifier;
         this.accountMapper = accountMapper;
         this.transactionMapper = transactionMapper;
-        this.settingRepository = settingRepository;
+        this.statementSnapshotService = statementSnapshotService;
+        this.accountCache = accountCache;
+        this.accountStripes = accountStripes;
+        this.ledgerEngine = ledgerEngine;
     }
 
-    private com.example.banking.model.User loadUserAndVerifyPin(String email, String pin) {
-        com.example.banking.model.User user = userRepository.findByEmail(email)
+    private com.example.banking.model.User loadUser(String email) {
+        return userRepository.findByEmail(email)
                 .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.USER_NOT_FOUND));
-        if (!passwordEncoder.matches(pin, user.getPinHash())) {
-            throw new IllegalArgumentException(ErrorMessages.INVALID_PIN);
-        }
+    }
+
+    private com.example.banking.model.User loadUserAndVerifyPin(String email, String accountNumber,
+                                                                String pin, String stepUpToken) {
+        com.example.banking.model.User user = loadUser(email);
+        pinVerifier.verify(user, accountNumber, pin, stepUpToken);
         return user;
     }
 
@@ -71,27 +84,14 @@ public class AccountService {
         return accountRepository.save(account);
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    /**
+     * Credits {@code amount} to the account through the {@link LedgerEngine}.
+     */
     public Account deposit(String accountNumber, BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ONE) < 0) {
             throw new IllegalArgumentException("Deposit must be at least 1 THB");
         }
-        Account account = accountRepository.findByAccountNumberForUpdate(accountNumber)
-                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
-        account.setBalance(account.getBalance().add(amount));
-        accountRepository.save(account);
-
-        Transaction tx = new Transaction();
-        tx.setAccount(account);
-        tx.setTimestamp(LocalDateTime.now());
-        tx.setType(TransactionType.DEPOSIT);
-        tx.setChannel(TransactionChannel.TELLER);
-        tx.setAmount(amount);
-        tx.setBalance(account.getBalance());
-        tx.setRemark("Deposit");
-        transactionRepository.save(tx);
-
-        return account;
+        return ledgerEngine.deposit(accountNumber, amount);
     }
 
     @Transactional(readOnly = true)
@@ -102,89 +102,152 @@ public class AccountService {
 
     @Transactional(readOnly = true)
     public Account getAccountForUser(String accountNumber, String email) {
+        return getAccountForCitizen(accountNumber, loadUser(email).getCitizenId());
+    }
+
+    /**
+     * Loads an account for a caller whose citizen ID is already known, for
+     * example from a signed token claim, without looking up the user.
+     */
+    @Transactional(readOnly = true)
+    public Account getAccountForCitizen(String accountNumber, String citizenId) {
         Account account = getAccount(accountNumber);
-        String citizenId = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.USER_NOT_FOUND))
-                .getCitizenId();
         if (!citizenId.equals(account.getCitizenId())) {
             throw new IllegalArgumentException(ErrorMessages.ACCESS_DENIED);
         }
         return account;
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public Account transfer(String fromAccountNumber, String toAccountNumber,
-                            BigDecimal amount, String email, String pin) {
-        if (amount.compareTo(BigDecimal.ONE) < 0) {
-            throw new IllegalArgumentException("Transfer must be at least 1 THB");
-        }
-
-        Account from = accountRepository.findByAccountNumberForUpdate(fromAccountNumber)
-                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
-        Account to = accountRepository.findByAccountNumberForUpdate(toAccountNumber)
-                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
-
-        com.example.banking.model.User user = loadUserAndVerifyPin(email, pin);
-
-        if (!from.getCitizenId().equals(user.getCitizenId())) {
+    /**
+     * Returns the cached view of an account owned by {@code citizenId},
+     * loading it on a miss. Deliberately not transactional, so a cache hit
+     * never borrows a database connection.
+     */
+    public AccountSnapshot getAccountSnapshot(String accountNumber, String citizenId) {
+        AccountSnapshot account = accountCache.get(accountNumber,
+                number -> accountStripes.snapshot(getAccount(number)));
+        if (!citizenId.equals(account.citizenId())) {
             throw new IllegalArgumentException(ErrorMessages.ACCESS_DENIED);
         }
-        if (from.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance");
-        }
+        return account;
+    }
 
-        LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.plusDays(1).atStartOfDay();
-        BigDecimal totalToday = transactionRepository
-                .sumAmountByAccountAndTypeAndTimestampBetween(from, TransactionType.TRANSFER_OUT,
-                        startOfDay, endOfDay);
-        BigDecimal dailyLimit = settingRepository.findById("DAILY_TRANSFER_LIMIT")
-                .map(Setting::getValue)
-                .orElse(new BigDecimal("50000"));
-        if (totalToday.add(amount).compareTo(dailyLimit) > 0) {
-            throw new IllegalArgumentException(ErrorMessages.DAILY_LIMIT_EXCEEDED);
-        }
+    public AccountSnapshot getAccountSnapshotForUser(String accountNumber, String email) {
+        return getAccountSnapshot(accountNumber, loadUser(email).getCitizenId());
+    }
 
-        from.setBalance(from.getBalance().subtract(amount));
-        to.setBalance(to.getBalance().add(amount));
-        accountRepository.save(to);
-        accountRepository.save(from);
+    /**
+     * Checks the PIN once and returns a short-lived token that can be sent
+     * instead of the PIN for transfers and statements on this account.
+     */
+    @Transactional(readOnly = true)
+    public StepUpResponse stepUp(String accountNumber, String email, String pin) {
+        com.example.banking.model.User user = loadUser(email);
+        getAccountForCitizen(accountNumber, user.getCitizenId());
+        String token = pinVerifier.issueStepUpToken(user, accountNumber, pin);
+        return new StepUpResponse(token, pinVerifier.getStepUpTtl().toSeconds());
+    }
 
-        LocalDateTime now = LocalDateTime.now();
+    public Account transfer(String fromAccountNumber, String toAccountNumber,
+                            BigDecimal amount, String email, String pin) {
+        return transfer(fromAccountNumber, toAccountNumber, amount, email, pin, null);
+    }
 
-        Transaction outTx = new Transaction();
-        outTx.setAccount(from);
-        outTx.setTimestamp(now);
-        outTx.setType(TransactionType.TRANSFER_OUT);
-        outTx.setChannel(TransactionChannel.ONLINE);
-        outTx.setAmount(amount);
-        outTx.setBalance(from.getBalance());
-        outTx.setRemark("To " + toAccountNumber);
-        transactionRepository.save(outTx);
+    /**
+     * Moves {@code amount} between two accounts through the
+     * {@link LedgerEngine}. The PIN is checked before the engine is called,
+     * so neither lock hold time nor optimistic retries pay for it.
+     */
+    public Account transfer(String fromAccountNumber, String toAccountNumber,
+                            BigDecimal amount, String email, String pin, String stepUpToken) {
+        String citizenId = authorizeTransfer(fromAccountNumber, amount, email, pin, stepUpToken);
+        return transferForCitizen(fromAccountNumber, toAccountNumber, amount, citizenId);
+    }
 
-        Transaction inTx = new Transaction();
-        inTx.setAccount(to);
-        inTx.setTimestamp(now);
-        inTx.setType(TransactionType.TRANSFER_IN);
-        inTx.setChannel(TransactionChannel.ONLINE);
-        inTx.setAmount(amount);
-        inTx.setBalance(to.getBalance());
-        inTx.setRemark("From " + fromAccountNumber);
-        transactionRepository.save(inTx);
+    /**
+     * Moves {@code amount} for a caller already checked by
+     * {@link #authorizeTransfer}, which returned {@code citizenId}.
+     */
+    public Account transferForCitizen(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                      String citizenId) {
+        return ledgerEngine.transfer(fromAccountNumber, toAccountNumber, amount, citizenId);
+    }
 
-        return from;
+    /**
+     * Runs the checks a transfer needs before it reaches the
+     * {@link LedgerEngine} and returns the citizen ID to pass to it.
+     */
+    public String authorizeTransfer(String fromAccountNumber, BigDecimal amount, String email, String pin,
+                                    String stepUpToken) {
+        if (amount.compareTo(BigDecimal.ONE) < 0) {
+            throw new IllegalArgumentException("Transfer must be at least 1 THB");
+        }
+        return loadUserAndVerifyPin(email, fromAccountNumber, pin, stepUpToken).getCitizenId();
     }
 
     @Transactional(readOnly = true)
     public List<StatementEntry> getStatement(String accountNumber, String email, String pin, YearMonth month) {
-        Account account = getAccountForUser(accountNumber, email);
-        loadUserAndVerifyPin(email, pin);
+        return getStatement(accountNumber, email, pin, null, month);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StatementEntry> getStatement(String accountNumber, String email, String pin,
+                                             String stepUpToken, YearMonth month) {
+        Account account = getAccountForStatement(accountNumber, email, pin, stepUpToken);
+        if (month.isBefore(YearMonth.now())) {
+            Optional<List<StatementEntry>> frozen = statementSnapshotService.find(account.getId(), month);
+            if (frozen.isPresent()) {
+                return frozen.get();
+            }
+        }
         LocalDateTime start = month.atDay(1).atStartOfDay();
         LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
-        List<Transaction> txs = transactionRepository
-                .findByAccountAndTimestampBetweenOrderByTimestampAsc(account, start, end);
-        return txs.stream().map(transactionMapper::toDto).toList();
+        List<StatementEntry> entries = transactionRepository.findStatementRows(account.getId(), start, end).stream()
+                .map(transactionMapper::toEntry)
+                .toList();
+        return accountStripes.withRunningBalances(account.getId(), entries, end, 0L);
+    }
+
+    /**
+     * Returns up to {@code limit} ledger entries after {@code cursor} in the
+     * order they committed, with the cursor for the next poll. Rows appear
+     * once {@link LedgerSequencer} has numbered them. A poll with nothing new
+     * is a single index probe and echoes the cursor back.
+     */
+    @Transactional(readOnly = true)
+    public TransactionSyncResponse syncTransactions(String accountNumber, String email, String pin,
+                                                    String stepUpToken, String cursor, Integer limit) {
+        int pageSize = limit == null ? SYNC_DEFAULT_LIMIT : limit;
+        if (pageSize < 1 || pageSize > SYNC_MAX_LIMIT) {
+            throw new IllegalArgumentException(ErrorMessages.INVALID_SYNC_LIMIT);
+        }
+        SyncCursor after = cursor == null || cursor.isEmpty() ? SyncCursor.START : SyncCursor.decode(cursor);
+        Account account = getAccountForStatement(accountNumber, email, pin, stepUpToken);
+        long afterSeq = after.syncSeq();
+        // One extra row tells us whether another page is waiting.
+        List<Transaction> txs = transactionRepository.findPageAfter(account, afterSeq,
+                PageRequest.ofSize(pageSize + 1));
+        boolean hasMore = txs.size() > pageSize;
+        if (hasMore) {
+            txs = txs.subList(0, pageSize);
+        }
+        List<StatementEntry> entries = txs.stream().map(transactionMapper::toDto).toList();
+        if (!txs.isEmpty()) {
+            afterSeq = txs.get(txs.size() - 1).getSyncSeq();
+            entries = accountStripes.withRunningBalances(account.getId(), entries, afterSeq);
+        }
+        String nextCursor = txs.isEmpty() ? cursor : new SyncCursor(afterSeq).encode();
+        return new TransactionSyncResponse(entries, nextCursor, hasMore);
+    }
+
+    /**
+     * Checks the PIN or step-up token and ownership for reading the statement
+     * of {@code accountNumber}, returning the account.
+     */
+    @Transactional(readOnly = true)
+    public Account getAccountForStatement(String accountNumber, String email, String pin, String stepUpToken) {
+        com.example.banking.model.User user = loadUserAndVerifyPin(email, accountNumber, pin, stepUpToken);
+        return getAccountForCitizen(accountNumber, user.getCitizenId());
     }
 
     private String generateAccountNumber() {
@@ -0,0 +1,253 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.dto.AccountSnapshot;
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.model.Account;
+import com.example.banking.model.AccountStripe;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.AccountStripeRepository;
+import com.example.banking.repository.TransactionRepository;
+
+/**
+ * Splits the balance of hot accounts, such as merchants paid by many
+ * customers at once, across {@code banking.striping.stripes} sub-balance rows.
+ * A transfer to a striped account adds to one random stripe instead of the
+ * account row, so concurrent payers only queue behind each other when they
+ * pick the same stripe.
+ *
+ * <p>The balance of a striped account is its own row plus all of its stripes.
+ * Debits take from the row and fold the stripes into it only when the row
+ * alone does not cover them. Because concurrent credits cannot agree on a
+ * running balance, the balance stored on their ledger rows is provisional;
+ * statements and sync pages of striped accounts recompute running balances
+ * backwards from the current total instead of reading it.</p>
+ *
+ * <p>The striped accounts are listed in {@code banking.striping.accounts} and
+ * given their stripes at startup. An account dropped from the list has its
+ * stripes folded back on the next startup. All nodes should run with the same
+ * list.</p>
+ */
+@Service
+public class AccountStripes {
+    private static final Logger log = LoggerFactory.getLogger(AccountStripes.class);
+
+    private final AccountStripeRepository stripeRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate template;
+    private final Set<String> configured;
+    private final int stripes;
+    private volatile Set<Long> striped = Set.of();
+
+    public AccountStripes(AccountStripeRepository stripeRepository,
+                          AccountRepository accountRepository,
+                          TransactionRepository transactionRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${banking.striping.accounts:}") Set<String> accounts,
+                          @Value("${banking.striping.stripes:16}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("banking.striping.stripes must be at least 1");
+        }
+        this.stripeRepository = stripeRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.template = new TransactionTemplate(transactionManager);
+        Set<String> numbers = new HashSet<>();
+        accounts.stream().map(String::trim).filter(number -> !number.isEmpty()).forEach(numbers::add);
+        this.configured = Collections.unmodifiableSet(numbers);
+        this.stripes = stripes;
+    }
+
+    /**
+     * Whether credits to {@code accountNumber} should go to a stripe, so the
+     * account row does not need to be locked for them.
+     */
+    public boolean isStriped(String accountNumber) {
+        return configured.contains(accountNumber);
+    }
+
+    /**
+     * Whether {@code accountId} has stripe rows, in which case its balance is
+     * not just the account row.
+     */
+    public boolean hasStripes(Long accountId) {
+        return accountId != null && striped.contains(accountId);
+    }
+
+    /**
+     * Adds {@code amount} to a random stripe of {@code account}. Returns
+     * false, having changed nothing, if the account is not striped or its
+     * stripes are not there yet; the caller then credits the account itself.
+     */
+    public boolean credit(Account account, BigDecimal amount) {
+        if (!isStriped(account.getAccountNumber()) || !hasStripes(account.getId())) {
+            return false;
+        }
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        return stripeRepository.credit(account.getId(), stripe, amount) > 0;
+    }
+
+    /**
+     * Moves the stripes of {@code accountId} into its account row, locking
+     * the row first and then the stripes, the same order a locked debit
+     * reaches them in. Must run in a transaction. Returns whether anything
+     * was moved; loaded entities of the account are stale if so.
+     */
+    public boolean fold(Long accountId) {
+        if (!hasStripes(accountId)) {
+            return false;
+        }
+        accountRepository.lockBalanceById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
+        BigDecimal total = BigDecimal.ZERO;
+        for (AccountStripe stripe : stripeRepository.findAllByAccountIdForUpdate(accountId)) {
+            if (stripe.getBalance().signum() != 0) {
+                total = total.add(stripe.getBalance());
+                stripe.setBalance(BigDecimal.ZERO);
+            }
+        }
+        if (total.signum() == 0) {
+            return false;
+        }
+        accountRepository.credit(accountId, total);
+        return true;
+    }
+
+    /**
+     * The view of {@code account}, including its stripes if it has any.
+     */
+    public AccountSnapshot snapshot(Account account) {
+        AccountSnapshot snapshot = AccountSnapshot.of(account);
+        if (!hasStripes(account.getId())) {
+            return snapshot;
+        }
+        AccountStripeRepository.StripeTotals totals = stripeRepository.sumByAccountId(account.getId());
+        return snapshot.withStripes(totals.getBalance(), totals.getVersion());
+    }
+
+    /**
+     * Recomputes the running balances of {@code entries}: consecutive ledger
+     * rows of {@code accountId}, oldest first, ending with the last row at or
+     * before {@code (timestamp, id)}. The last balance is the current total
+     * less whatever was booked after that point; each earlier one steps back
+     * by the amount of the entry after it. Accounts without stripes are
+     * returned as they are. The caller's transaction must give all reads one
+     * snapshot.
+     */
+    public List<StatementEntry> withRunningBalances(Long accountId, List<StatementEntry> entries,
+                                                    LocalDateTime timestamp, Long id) {
+        if (entries.isEmpty() || !hasStripes(accountId)) {
+            return entries;
+        }
+        return rebalance(accountId, entries, transactionRepository.sumSignedAmountAfter(accountId, timestamp, id));
+    }
+
+    /**
+     * Like {@link #withRunningBalances(Long, List, LocalDateTime, Long)} for
+     * entries in sync order, ending with the row numbered {@code syncSeq}.
+     */
+    public List<StatementEntry> withRunningBalances(Long accountId, List<StatementEntry> entries, long syncSeq) {
+        if (entries.isEmpty() || !hasStripes(accountId)) {
+            return entries;
+        }
+        return rebalance(accountId, entries, transactionRepository.sumSignedAmountAfterSyncSeq(accountId, syncSeq));
+    }
+
+    /**
+     * Running balances for entries of {@code accountId} streamed oldest first
+     * from {@code from}, as exports read them: the returned function gives
+     * each entry the balance before {@code from} plus every entry passed to it
+     * so far, so it must see all of them, in order. Accounts without stripes
+     * get their entries back as they are. The caller's transaction must give
+     * this and the streamed rows one snapshot.
+     */
+    public UnaryOperator<StatementEntry> runningBalancesFrom(Long accountId, LocalDateTime from) {
+        if (!hasStripes(accountId)) {
+            return UnaryOperator.identity();
+        }
+        // Ledger ids start at 1, so (from, 0) comes before every row at from.
+        BigDecimal[] balance = {
+                total(accountId).subtract(transactionRepository.sumSignedAmountAfter(accountId, from, 0L))};
+        return entry -> {
+            balance[0] = balance[0].add(entry.debitCredit());
+            return new StatementEntry(entry.date(), entry.time(), entry.code(), entry.channel(),
+                    entry.debitCredit(), balance[0], entry.remark());
+        };
+    }
+
+    private BigDecimal total(Long accountId) {
+        return accountRepository.findBalanceById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND))
+                .add(stripeRepository.sumByAccountId(accountId).getBalance());
+    }
+
+    private List<StatementEntry> rebalance(Long accountId, List<StatementEntry> entries, BigDecimal bookedAfter) {
+        BigDecimal balance = total(accountId).subtract(bookedAfter);
+        List<StatementEntry> rebalanced = new ArrayList<>(entries);
+        for (int i = rebalanced.size() - 1; i >= 0; i--) {
+            StatementEntry entry = rebalanced.get(i);
+            rebalanced.set(i, new StatementEntry(entry.date(), entry.time(), entry.code(), entry.channel(),
+                    entry.debitCredit(), balance, entry.remark()));
+            balance = balance.subtract(entry.debitCredit());
+        }
+        return rebalanced;
+    }
+
+    /**
+     * Creates missing stripes for the configured accounts and folds back the
+     * stripes of accounts no longer configured. Nodes starting together may
+     * race to create the same stripe; the loser leaves it to the winner.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void provision() {
+        Set<Long> configuredIds = new HashSet<>();
+        for (String number : configured) {
+            Long accountId = accountRepository.findByAccountNumber(number).map(Account::getId).orElse(null);
+            if (accountId == null) {
+                log.warn("Striped account {} does not exist", number);
+                continue;
+            }
+            configuredIds.add(accountId);
+            try {
+                template.executeWithoutResult(status -> {
+                    Set<Integer> existing = new HashSet<>(stripeRepository.findStripesByAccountId(accountId));
+                    for (int stripe = 0; stripe < stripes; stripe++) {
+                        if (!existing.contains(stripe)) {
+                            stripeRepository.saveAndFlush(new AccountStripe(accountId, stripe));
+                        }
+                    }
+                });
+            } catch (DataIntegrityViolationException e) {
+                log.info("Stripes of account {} were created concurrently", number);
+            }
+        }
+        striped = Set.copyOf(stripeRepository.findAccountIds());
+        for (Long accountId : striped) {
+            if (!configuredIds.contains(accountId) && Boolean.TRUE.equals(template.execute(status -> fold(accountId)))) {
+                log.info("Folded the stripes of account {}, which is no longer striped", accountId);
+            }
+        }
+        log.info("{} accounts striped {} ways", configuredIds.size(), stripes);
+    }
+}
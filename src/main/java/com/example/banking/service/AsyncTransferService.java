@@ -0,0 +1,393 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.config.WorkerThreads;
+import com.example.banking.dto.TransferJobResponse;
+import com.example.banking.dto.TransferJobResponse.Status;
+import com.example.banking.model.Account;
+import com.example.banking.model.AsyncTransfer;
+import com.example.banking.repository.AsyncTransferRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs transfers in the background so the request thread is not held for
+ * the transaction. Transfers are partitioned by sender account number over
+ * {@code banking.async-transfer.partitions} single-threaded queues, so each
+ * account's transfers are applied one at a time in the order they were
+ * accepted, and never wait on each other for the sender's row lock. The PIN
+ * is checked before a transfer is queued; everything else, including the
+ * balance check, happens when it runs. Transfers from different accounts
+ * can still meet on a receiver; one rolled back by a lock conflict is run
+ * again, up to {@code banking.async-transfer.max-attempts} times.
+ *
+ * <p>Each partition queues at most {@code banking.async-transfer.queue-capacity}
+ * transfers; a full queue answers {@code 503}. A transfer is stored in
+ * {@code async_transfers} before it is queued, and each run first claims its
+ * row. With an engine that joins the caller's transaction, the claim, the
+ * transfer and its outcome commit together, so a transfer is applied at most
+ * once however often it is queued. Otherwise the claim commits first, and a
+ * transfer found claimed at startup is failed as interrupted instead of being
+ * applied again. Finished transfers are kept for
+ * {@code banking.async-transfer.retention} and can be polled on any node.</p>
+ *
+ * <p>On shutdown, new transfers are refused with {@code 503} and queued ones
+ * get {@code banking.async-transfer.drain-timeout} to finish. Those still
+ * queued are resumed when a node with the same
+ * {@code banking.async-transfer.node} name starts again, so every node needs
+ * its own stable name.</p>
+ */
+@Service
+public class AsyncTransferService implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransferService.class);
+
+    private final AccountService accountService;
+    private final LedgerEngine ledgerEngine;
+    private final AsyncTransferRepository asyncTransferRepository;
+    private final TransactionTemplate template;
+    private final String node;
+    private final Duration retention;
+    private final Duration drainTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Clock clock;
+    private final ThreadPoolExecutor[] partitions;
+    private final Map<String, TransferJob> jobs = new ConcurrentHashMap<>();
+    private final Counter rejections;
+    private volatile boolean stopping;
+
+    @Autowired
+    public AsyncTransferService(AccountService accountService,
+                                LedgerEngine ledgerEngine,
+                                AsyncTransferRepository asyncTransferRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                WorkerThreads workerThreads,
+                                @Value("${banking.async-transfer.node:local}") String node,
+                                @Value("${banking.async-transfer.partitions:8}") int partitions,
+                                @Value("${banking.async-transfer.queue-capacity:1000}") int queueCapacity,
+                                @Value("${banking.async-transfer.retention:PT1H}") Duration retention,
+                                @Value("${banking.async-transfer.drain-timeout:PT10S}") Duration drainTimeout,
+                                @Value("${banking.async-transfer.max-attempts:3}") int maxAttempts,
+                                @Value("${banking.async-transfer.retry-backoff:PT0.01S}") Duration retryBackoff) {
+        this(accountService, ledgerEngine, asyncTransferRepository, transactionManager, meterRegistry, workerThreads,
+                node, partitions, queueCapacity, retention, drainTimeout, maxAttempts, retryBackoff, Clock.systemUTC());
+    }
+
+    AsyncTransferService(AccountService accountService, LedgerEngine ledgerEngine,
+                         AsyncTransferRepository asyncTransferRepository, PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry, WorkerThreads workerThreads, String node, int partitions,
+                         int queueCapacity, Duration retention, Duration drainTimeout, int maxAttempts,
+                         Duration retryBackoff, Clock clock) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("banking.async-transfer.partitions must be at least 1");
+        }
+        this.accountService = accountService;
+        this.ledgerEngine = ledgerEngine;
+        this.asyncTransferRepository = asyncTransferRepository;
+        this.template = new TransactionTemplate(transactionManager);
+        this.node = node;
+        this.retention = retention;
+        this.drainTimeout = drainTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.clock = clock;
+        this.partitions = new ThreadPoolExecutor[partitions];
+        ThreadFactory threadFactory = workerThreads.factory("async-transfer-");
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            new ExecutorServiceMetrics(this.partitions[i], "async-transfers", Tags.of("partition", String.valueOf(i)))
+                    .bindTo(meterRegistry);
+        }
+        meterRegistry.gaugeMapSize("banking.async_transfers.jobs", Tags.empty(), jobs);
+        this.rejections = meterRegistry.counter("banking.async_transfers.rejected");
+    }
+
+    /**
+     * Checks the PIN, stores the transfer, queues it behind earlier ones from
+     * the same account and returns its initial state. Fails with {@code 503}
+     * when the account's partition is full or the node is shutting down; the
+     * transfer is then not stored either.
+     */
+    public TransferJobResponse submit(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                      String email, String pin, String stepUpToken) {
+        if (stopping) {
+            rejections.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.TRANSFERS_STOPPING);
+        }
+        String citizenId = accountService.authorizeTransfer(fromAccountNumber, amount, email, pin, stepUpToken);
+        TransferJob job = new TransferJob(UUID.randomUUID().toString(), email, citizenId, fromAccountNumber,
+                toAccountNumber, amount, clock.instant());
+        asyncTransferRepository.save(new AsyncTransfer(job.id, node, email, citizenId, fromAccountNumber,
+                toAccountNumber, amount, utc(job.submittedAt)));
+        jobs.put(job.id, job);
+        if (!enqueue(job)) {
+            jobs.remove(job.id);
+            asyncTransferRepository.deleteById(job.id);
+            rejections.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    stopping ? ErrorMessages.TRANSFERS_STOPPING : ErrorMessages.TRANSFER_BUSY);
+        }
+        return job.toResponse();
+    }
+
+    private boolean enqueue(TransferJob job) {
+        try {
+            partitionOf(job.fromAccount).execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Queues the transfers this node had stored but not finished when it
+     * stopped, oldest first. Transfers it had claimed can only be left behind
+     * by an engine that commits on its own; whether they were applied is not
+     * known, so they are failed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        List<AsyncTransfer> unfinished = asyncTransferRepository.findAllByNodeAndStatusInOrderBySubmittedAt(
+                node, List.of(Status.QUEUED, Status.RUNNING));
+        int resumed = 0;
+        for (AsyncTransfer row : unfinished) {
+            TransferJob job = TransferJob.of(row);
+            if (row.getStatus() == Status.RUNNING) {
+                log.warn("Transfer {} from account {} was interrupted by a restart", job.id, job.fromAccount);
+                fail(job, ErrorMessages.TRANSFER_INTERRUPTED);
+                continue;
+            }
+            jobs.put(job.id, job);
+            if (!enqueue(job)) {
+                jobs.remove(job.id);
+                log.warn("Async transfer queues are full; the remaining stored transfers wait for the next start");
+                break;
+            }
+            resumed++;
+        }
+        if (resumed > 0) {
+            log.info("Resumed {} async transfers", resumed);
+        }
+    }
+
+    /**
+     * Returns the state of {@code id}. Transfers submitted by someone else are
+     * reported as not found.
+     */
+    public TransferJobResponse status(String id, String owner) {
+        TransferJob job = jobs.get(id);
+        if (job == null) {
+            job = asyncTransferRepository.findById(id).map(TransferJob::of).orElse(null);
+        }
+        if (job == null || !job.owner.equals(owner)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ErrorMessages.TRANSFER_NOT_FOUND);
+        }
+        return job.toResponse();
+    }
+
+    private ThreadPoolExecutor partitionOf(String accountNumber) {
+        return partitions[Math.floorMod(accountNumber.hashCode(), partitions.length)];
+    }
+
+    void run(TransferJob job) {
+        job.status = Status.RUNNING;
+        try {
+            Account from;
+            if (ledgerEngine.joinsTransaction()) {
+                from = retrying(() -> template.execute(status -> claim(job) ? complete(job, transfer(job)) : null));
+            } else if (Boolean.TRUE.equals(template.execute(status -> claim(job)))) {
+                from = retrying(() -> transfer(job));
+                try {
+                    template.executeWithoutResult(status -> complete(job, from));
+                } catch (DataAccessException e) {
+                    // Applied all the same; the next start reports it as interrupted.
+                    log.warn("Could not store the outcome of transfer {}", job.id, e);
+                }
+            } else {
+                from = null;
+            }
+            if (from == null) {
+                // Already run, or failed at startup; the stored row has its outcome.
+                jobs.remove(job.id);
+                return;
+            }
+            job.balance = from.getBalance();
+            job.completedAt = clock.instant();
+            job.status = Status.COMPLETED;
+        } catch (IllegalArgumentException e) {
+            fail(job, e.getMessage());
+        } catch (ResponseStatusException e) {
+            fail(job, e.getReason());
+        } catch (RuntimeException e) {
+            log.warn("Transfer {} from account {} failed", job.id, job.fromAccount, e);
+            fail(job, ErrorMessages.TRANSFER_FAILED);
+        }
+    }
+
+    private boolean claim(TransferJob job) {
+        return asyncTransferRepository.changeStatus(job.id, Status.QUEUED, Status.RUNNING) > 0;
+    }
+
+    private Account transfer(TransferJob job) {
+        return ledgerEngine.transfer(job.fromAccount, job.toAccount, job.amount, job.citizenId);
+    }
+
+    private Account complete(TransferJob job, Account from) {
+        asyncTransferRepository.finish(job.id, Status.COMPLETED, from.getBalance(), null, utc(clock.instant()));
+        return from;
+    }
+
+    private <T> T retrying(Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (ConcurrencyFailureException e) {
+                if (i >= maxAttempts) {
+                    throw e;
+                }
+                backOff(i, e);
+            }
+        }
+    }
+
+    private void backOff(int attempt, ConcurrencyFailureException conflict) {
+        long ceiling = retryBackoff.toNanos() << Math.min(attempt - 1, 10);
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            long nanos = ThreadLocalRandom.current().nextLong(ceiling);
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private void fail(TransferJob job, String error) {
+        job.error = error;
+        job.completedAt = clock.instant();
+        job.status = Status.FAILED;
+        try {
+            template.executeWithoutResult(status ->
+                    asyncTransferRepository.finish(job.id, Status.FAILED, null, error, utc(job.completedAt)));
+        } catch (DataAccessException e) {
+            // The transfer runs again at the next start, or is failed then if it was claimed.
+            log.warn("Could not store the failure of transfer {}", job.id, e);
+        }
+    }
+
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    /**
+     * Drops finished transfers older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${banking.async-transfer.cleanup-interval:PT5M}")
+    public void purgeExpired() {
+        Instant cutoff = clock.instant().minus(retention);
+        jobs.values().removeIf(job -> job.completedAt != null && !job.completedAt.isAfter(cutoff));
+        template.executeWithoutResult(status -> asyncTransferRepository.deleteCompletedBefore(utc(cutoff)));
+    }
+
+    @Override
+    public void close() {
+        stopping = true;
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        try {
+            for (ThreadPoolExecutor partition : partitions) {
+                if (!partition.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log.warn("Async transfers still queued at shutdown will resume on the next start");
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdownNow();
+        }
+    }
+
+    static final class TransferJob {
+        final String id;
+        final String owner;
+        final String citizenId;
+        final String fromAccount;
+        final String toAccount;
+        final BigDecimal amount;
+        final Instant submittedAt;
+        volatile Status status = Status.QUEUED;
+        volatile BigDecimal balance;
+        volatile Instant completedAt;
+        volatile String error;
+
+        TransferJob(String id, String owner, String citizenId, String fromAccount, String toAccount,
+                    BigDecimal amount, Instant submittedAt) {
+            this.id = id;
+            this.owner = owner;
+            this.citizenId = citizenId;
+            this.fromAccount = fromAccount;
+            this.toAccount = toAccount;
+            this.amount = amount;
+            this.submittedAt = submittedAt;
+        }
+
+        static TransferJob of(AsyncTransfer row) {
+            TransferJob job = new TransferJob(row.getId(), row.getOwner(), row.getCitizenId(), row.getFromAccount(),
+                    row.getToAccount(), row.getAmount(), row.getSubmittedAt().toInstant(ZoneOffset.UTC));
+            job.status = row.getStatus();
+            job.balance = row.getBalance();
+            job.completedAt = row.getCompletedAt() == null ? null : row.getCompletedAt().toInstant(ZoneOffset.UTC);
+            job.error = row.getError();
+            return job;
+        }
+
+        TransferJobResponse toResponse() {
+            return new TransferJobResponse(id, fromAccount, toAccount, amount, status, balance, submittedAt,
+                    completedAt, error);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.dto.BatchTransferItem;
+import com.example.banking.dto.BatchTransferRequest;
+import com.example.banking.dto.BatchTransferResponse;
+import com.example.banking.dto.BatchTransferResponse.ItemResult;
+import com.example.banking.dto.BatchTransferResponse.ItemStatus;
+import com.example.banking.model.Account;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.model.User;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.TransactionRepository;
+import com.example.banking.repository.UserRepository;
+import com.example.banking.security.PinVerifier;
+
+/**
+ * Applies many transfers from one account with a single PIN check.
+ *
+ * <p>Items are applied in chunks of {@code banking.batch.chunk-size}. Each
+ * chunk is one transaction that locks every account it touches with a single
+ * canonically ordered {@code SELECT ... FOR UPDATE}; its ledger rows are
+ * flushed as JDBC batches of {@code hibernate.jdbc.batch_size} on commit.
+ * {@code ATOMIC} batches are applied as a single chunk and rolled back
+ * entirely if any item fails.</p>
+ */
+@Service
+public class BatchTransferService {
+    static final String CHUNK_FAILED = "Could not be applied, please retry";
+
+    private final AccountRepository accountRepository;
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final PinVerifier pinVerifier;
+    private final SettingsService settingsService;
+    private final DailyTransferTotalService dailyTransferTotalService;
+    private final AccountCache accountCache;
+    private final AccountStripes accountStripes;
+    private final LedgerEngine ledgerEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxItems;
+    private final int chunkSize;
+
+    public BatchTransferService(AccountRepository accountRepository,
+                                UserRepository userRepository,
+                                TransactionRepository transactionRepository,
+                                PinVerifier pinVerifier,
+                                SettingsService settingsService,
+                                DailyTransferTotalService dailyTransferTotalService,
+                                AccountCache accountCache,
+                                AccountStripes accountStripes,
+                                LedgerEngine ledgerEngine,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${banking.batch.max-items:500}") int maxItems,
+                                @Value("${banking.batch.chunk-size:100}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.pinVerifier = pinVerifier;
+        this.settingsService = settingsService;
+        this.dailyTransferTotalService = dailyTransferTotalService;
+        this.accountCache = accountCache;
+        this.accountStripes = accountStripes;
+        this.ledgerEngine = ledgerEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+    }
+
+    public BatchTransferResponse transfer(BatchTransferRequest request, String email, String stepUpToken) {
+        if (!ledgerEngine.sharesAccountRows()) {
+            // Balances are owned by the ledger engine, so writing the rows here would be overwritten.
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.BATCH_UNSUPPORTED);
+        }
+        List<BatchTransferItem> items = request.items();
+        if (request.mode() == null || items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch must have a mode and at least one item");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Batch must not exceed " + maxItems + " items");
+        }
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.USER_NOT_FOUND));
+        pinVerifier.verify(user, request.fromAccount(), request.pin(), stepUpToken);
+
+        ItemResult[] results = new ItemResult[items.size()];
+        boolean atomic = request.mode() == BatchTransferRequest.Mode.ATOMIC;
+        BigDecimal balance;
+        if (atomic) {
+            balance = applyChunk(request.fromAccount(), user.getCitizenId(), items, 0, results, true);
+        } else {
+            balance = null;
+            for (int start = 0; start < items.size(); start += chunkSize) {
+                List<BatchTransferItem> chunk = items.subList(start, Math.min(start + chunkSize, items.size()));
+                try {
+                    balance = applyChunk(request.fromAccount(), user.getCitizenId(), chunk, start, results, false);
+                } catch (DataAccessException | TransactionException e) {
+                    for (int i = start; i < start + chunk.size(); i++) {
+                        results[i] = new ItemResult(i, ItemStatus.FAILED, CHUNK_FAILED);
+                    }
+                }
+            }
+            if (balance == null) {
+                balance = accountRepository.findByAccountNumber(request.fromAccount())
+                        .map(Account::getBalance)
+                        .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
+            }
+        }
+        return response(request.mode(), balance, results);
+    }
+
+    /**
+     * Applies {@code items} in one transaction and returns the source balance
+     * afterwards. In atomic mode the first failing item rolls back the whole
+     * chunk and every other item is reported as not applied.
+     */
+    private BigDecimal applyChunk(String fromNumber, String citizenId, List<BatchTransferItem> items,
+                                  int offset, ItemResult[] results, boolean atomic) {
+        return transactionTemplate.execute(status -> {
+            Set<String> numbers = new TreeSet<>();
+            numbers.add(fromNumber);
+            items.forEach(item -> numbers.add(item.toAccount()));
+            Map<String, Account> locked = accountRepository.findAllByAccountNumberInForUpdate(numbers).stream()
+                    .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+            Account from = locked.get(fromNumber);
+            if (from == null) {
+                throw new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND);
+            }
+            if (!from.getCitizenId().equals(citizenId)) {
+                throw new IllegalArgumentException(ErrorMessages.ACCESS_DENIED);
+            }
+            // A striped payer pays out of everything it holds, so fold its stripes in once per chunk.
+            if (accountStripes.fold(from.getId())) {
+                accountRepository.refresh(from);
+            }
+            BigDecimal startBalance = from.getBalance();
+            BigDecimal limit = settingsService.getDailyTransferLimit();
+            LocalDate today = LocalDate.now();
+            LocalDateTime now = LocalDateTime.now();
+            List<Transaction> ledger = new ArrayList<>(items.size() * 2);
+
+            for (int i = 0; i < items.size(); i++) {
+                BatchTransferItem item = items.get(i);
+                try {
+                    apply(from, locked.get(item.toAccount()), item, limit, today, now, ledger);
+                    results[offset + i] = new ItemResult(offset + i, ItemStatus.APPLIED, null);
+                } catch (IllegalArgumentException e) {
+                    results[offset + i] = new ItemResult(offset + i, ItemStatus.FAILED, e.getMessage());
+                    if (atomic) {
+                        status.setRollbackOnly();
+                        for (int j = 0; j < items.size(); j++) {
+                            if (j != i) {
+                                results[offset + j] = new ItemResult(offset + j, ItemStatus.NOT_APPLIED, null);
+                            }
+                        }
+                        return startBalance;
+                    }
+                }
+            }
+            transactionRepository.saveAll(ledger);
+            for (Account account : locked.values()) {
+                if (accountStripes.hasStripes(account.getId())) {
+                    accountCache.evictAfterCommit(account.getAccountNumber());
+                } else {
+                    accountCache.updateAfterCommit(account);
+                }
+            }
+            return from.getBalance();
+        });
+    }
+
+    private void apply(Account from, Account to, BatchTransferItem item, BigDecimal limit,
+                       LocalDate today, LocalDateTime now, List<Transaction> ledger) {
+        BigDecimal amount = item.amount();
+        if (amount == null || amount.compareTo(BigDecimal.ONE) < 0) {
+            throw new IllegalArgumentException("Transfer must be at least 1 THB");
+        }
+        if (to == null) {
+            throw new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND);
+        }
+        if (to == from) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        if (from.getBalance().compareTo(amount) < 0) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        dailyTransferTotalService.recordTransfer(from, amount, limit, today);
+
+        from.setBalance(from.getBalance().subtract(amount));
+        to.setBalance(to.getBalance().add(amount));
+        ledger.add(entry(from, TransactionType.TRANSFER_OUT, amount, "To " + to.getAccountNumber(), now));
+        ledger.add(entry(to, TransactionType.TRANSFER_IN, amount, "From " + from.getAccountNumber(), now));
+    }
+
+    private static Transaction entry(Account account, TransactionType type, BigDecimal amount,
+                                     String remark, LocalDateTime now) {
+        Transaction tx = new Transaction();
+        tx.setAccount(account);
+        tx.setTimestamp(now);
+        tx.setType(type);
+        tx.setChannel(TransactionChannel.ONLINE);
+        tx.setAmount(amount);
+        tx.setBalance(account.getBalance());
+        tx.setRemark(remark);
+        return tx;
+    }
+
+    private static BatchTransferResponse response(BatchTransferRequest.Mode mode, BigDecimal balance,
+                                                  ItemResult[] results) {
+        int applied = (int) Arrays.stream(results).filter(r -> r.status() == ItemStatus.APPLIED).count();
+        int failed = (int) Arrays.stream(results).filter(r -> r.status() == ItemStatus.FAILED).count();
+        BatchTransferResponse.Status status;
+        if (failed == 0) {
+            status = BatchTransferResponse.Status.COMPLETED;
+        } else if (mode == BatchTransferRequest.Mode.ATOMIC) {
+            status = BatchTransferResponse.Status.ROLLED_BACK;
+        } else {
+            status = BatchTransferResponse.Status.PARTIAL;
+        }
+        return new BatchTransferResponse(mode, status, applied, failed, balance, List.of(results));
+    }
+}
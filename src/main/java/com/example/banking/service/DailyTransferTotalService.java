@@ -0,0 +1,171 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.Account;
+import com.example.banking.model.DailyTransferTotal;
+import com.example.banking.model.DailyTransferTotalId;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.DailyTransferTotalRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Maintains the per-account, per-day outgoing transfer totals used to enforce
+ * the daily transfer limit, and periodically checks them against the ledger.
+ */
+@Service
+public class DailyTransferTotalService {
+    private static final Logger log = LoggerFactory.getLogger(DailyTransferTotalService.class);
+
+    private final DailyTransferTotalRepository totalRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final boolean autoRepair;
+    private final int retentionDays;
+    private final AtomicInteger mismatches = new AtomicInteger();
+    private final Counter repairs;
+
+    public DailyTransferTotalService(DailyTransferTotalRepository totalRepository,
+                                     TransactionRepository transactionRepository,
+                                     AccountRepository accountRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${banking.daily-totals.auto-repair:true}") boolean autoRepair,
+                                     @Value("${banking.daily-totals.retention-days:7}") int retentionDays) {
+        this.totalRepository = totalRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.autoRepair = autoRepair;
+        this.retentionDays = retentionDays;
+        meterRegistry.gauge("banking.daily_totals.mismatches", mismatches);
+        this.repairs = meterRegistry.counter("banking.daily_totals.repairs");
+    }
+
+    /**
+     * Adds {@code amount} to the account's total for {@code day}, rejecting the
+     * transfer if that would exceed {@code dailyLimit}. Must run inside the
+     * transfer transaction while the account row is locked, which serializes
+     * all updates to the same counter.
+     */
+    public void recordTransfer(Account account, BigDecimal amount, BigDecimal dailyLimit, LocalDate day) {
+        DailyTransferTotal total = totalRepository.findById(new DailyTransferTotalId(account.getId(), day))
+                .orElseGet(() -> new DailyTransferTotal(account.getId(), day));
+        BigDecimal updated = total.getTotal().add(amount);
+        if (updated.compareTo(dailyLimit) > 0) {
+            throw new IllegalArgumentException(ErrorMessages.DAILY_LIMIT_EXCEEDED);
+        }
+        total.setTotal(updated);
+        totalRepository.save(total);
+    }
+
+    /**
+     * Compares the counters for {@code day} with the TRANSFER_OUT ledger rows
+     * using a single consistent snapshot.
+     */
+    public List<Mismatch> findMismatches(LocalDate day) {
+        return snapshotTemplate.execute(status -> {
+            Map<Long, BigDecimal> ledger = ledgerTotals(day);
+            Map<Long, BigDecimal> counters = new HashMap<>();
+            totalRepository.findByBusinessDate(day)
+                    .forEach(total -> counters.put(total.getAccountId(), total.getTotal()));
+            Set<Long> accountIds = new TreeSet<>(ledger.keySet());
+            accountIds.addAll(counters.keySet());
+            return accountIds.stream()
+                    .map(id -> new Mismatch(id, counters.getOrDefault(id, BigDecimal.ZERO),
+                            ledger.getOrDefault(id, BigDecimal.ZERO)))
+                    .filter(m -> m.counter().compareTo(m.ledger()) != 0)
+                    .toList();
+        });
+    }
+
+    /**
+     * Recomputes every counter for {@code day} from the ledger. Each account is
+     * rebuilt in its own short transaction under its row lock so the job can
+     * run while transfers are in flight. Returns the number of accounts rebuilt.
+     */
+    public int rebuild(LocalDate day) {
+        Set<Long> accountIds = snapshotTemplate.execute(status -> {
+            Set<Long> ids = new TreeSet<>(ledgerTotals(day).keySet());
+            totalRepository.findByBusinessDate(day).forEach(total -> ids.add(total.getAccountId()));
+            return ids;
+        });
+        accountIds.forEach(id -> rebuildAccount(id, day));
+        return accountIds.size();
+    }
+
+    public void rebuildAccount(Long accountId, LocalDate day) {
+        writeTemplate.executeWithoutResult(status -> accountRepository.findByIdForUpdate(accountId)
+                .ifPresent(account -> {
+                    BigDecimal ledger = transactionRepository.sumAmountByAccountAndTypeAndTimestampBetween(
+                            account, TransactionType.TRANSFER_OUT, day.atStartOfDay(),
+                            day.plusDays(1).atStartOfDay());
+                    DailyTransferTotal total = totalRepository.findById(new DailyTransferTotalId(accountId, day))
+                            .orElseGet(() -> new DailyTransferTotal(accountId, day));
+                    total.setTotal(ledger);
+                    totalRepository.save(total);
+                }));
+    }
+
+    @Scheduled(cron = "${banking.daily-totals.check-cron:0 */15 * * * *}")
+    public void checkConsistency() {
+        LocalDate today = LocalDate.now();
+        List<Mismatch> found = findMismatches(today);
+        mismatches.set(found.size());
+        for (Mismatch mismatch : found) {
+            log.warn("Daily transfer total for account {} on {} is {} but ledger says {}",
+                    mismatch.accountId(), today, mismatch.counter(), mismatch.ledger());
+            if (autoRepair) {
+                rebuildAccount(mismatch.accountId(), today);
+                repairs.increment();
+            }
+        }
+    }
+
+    @Scheduled(cron = "${banking.daily-totals.purge-cron:0 30 0 * * *}")
+    public void purgeExpired() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        Integer purged = writeTemplate.execute(status -> totalRepository.deleteByBusinessDateBefore(cutoff));
+        log.info("Purged {} daily transfer totals before {}", purged, cutoff);
+    }
+
+    private Map<Long, BigDecimal> ledgerTotals(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        transactionRepository.sumAmountByTypeAndTimestampBetweenGroupByAccount(
+                TransactionType.TRANSFER_OUT, start, end)
+                .forEach(row -> totals.put(row.getAccountId(), row.getTotal()));
+        return totals;
+    }
+
+    public record Mismatch(Long accountId, BigDecimal counter, BigDecimal ledger) {
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.banking.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.IdempotencyRecord;
+import com.example.banking.model.IdempotencyRecordId;
+import com.example.banking.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Runs a write at most once per {@code Idempotency-Key} and caller. The first
+ * request inserts its key, runs the operation and stores the JSON response in
+ * the same transaction; retries get that response back without touching
+ * locks or limits. Callers check credentials before calling, so the check
+ * stays out of the transaction.
+ *
+ * <p>A duplicate arriving on the same node while the first request is still
+ * running waits for its result (up to {@code banking.idempotency.wait-timeout})
+ * rather than racing it. On another node the duplicate's insert blocks on the
+ * primary key until the first transaction ends and then replays the stored
+ * response. Failed requests store nothing, so the key can be retried. With
+ * a ledger engine that does not join the transaction the key is committed
+ * before the posting and completed after it; see {@link #runAroundEngine}.
+ * Completed responses are also kept in a local cache so hot retries skip the
+ * database, and are purged after {@code banking.idempotency.retention}.</p>
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final AccountConcurrency accountConcurrency;
+    private final LedgerEngine ledgerEngine;
+    private final TransactionTemplate template;
+    private final Duration retention;
+    private final Duration waitTimeout;
+    private final Cache<IdempotencyRecordId, Stored> completed;
+    private final Map<IdempotencyRecordId, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter replayed;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              AccountConcurrency accountConcurrency,
+                              LedgerEngine ledgerEngine,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${banking.idempotency.cache-size:100000}") long cacheSize,
+                              @Value("${banking.idempotency.retention:PT24H}") Duration retention,
+                              @Value("${banking.idempotency.wait-timeout:PT30S}") Duration waitTimeout) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.accountConcurrency = accountConcurrency;
+        this.ledgerEngine = ledgerEngine;
+        this.template = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.waitTimeout = waitTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+        meterRegistry.gaugeMapSize("banking.idempotency.in-flight", Tags.empty(), inFlight);
+        this.executed = meterRegistry.counter("banking.idempotency.requests", "result", "executed");
+        this.replayed = meterRegistry.counter("banking.idempotency.requests", "result", "replayed");
+    }
+
+    /**
+     * Runs {@code action} in a ledger write transaction (see
+     * {@link AccountConcurrency}), or outside one for a ledger engine that
+     * does not join it, unless {@code scope} already completed a request
+     * with {@code key}, in which case the stored response is returned
+     * instead. Without a key the action simply runs. Reusing a key for a
+     * request with a different {@code fingerprint} fails with {@code 422}.
+     */
+    public Result execute(String key, String scope, String fingerprint, Supplier<?> action) {
+        if (key == null) {
+            return new Result(action.get(), false);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(ErrorMessages.INVALID_IDEMPOTENCY_KEY);
+        }
+        IdempotencyRecordId id = new IdempotencyRecordId(scope, key);
+        while (true) {
+            Stored stored = completed.getIfPresent(id);
+            if (stored != null) {
+                return replay(stored, fingerprint);
+            }
+            CompletableFuture<Stored> mine = new CompletableFuture<>();
+            CompletableFuture<Stored> running = inFlight.putIfAbsent(id, mine);
+            if (running == null) {
+                try {
+                    return runFirst(id, fingerprint, action, mine);
+                } finally {
+                    // Waiters see null and run the request themselves if this one failed.
+                    mine.complete(null);
+                    inFlight.remove(id, mine);
+                }
+            }
+            stored = await(running);
+            if (stored != null) {
+                return replay(stored, fingerprint);
+            }
+        }
+    }
+
+    private Result runFirst(IdempotencyRecordId id, String fingerprint, Supplier<?> action,
+                            CompletableFuture<Stored> mine) {
+        Stored stored = repository.findById(id).map(IdempotencyService::toStored).orElse(null);
+        if (stored == null) {
+            try {
+                Executed result = ledgerEngine.joinsTransaction()
+                        ? runInTransaction(id, fingerprint, action)
+                        : runAroundEngine(id, fingerprint, action);
+                completed.put(id, result.stored());
+                mine.complete(result.stored());
+                executed.increment();
+                return new Result(result.body(), false);
+            } catch (DataIntegrityViolationException e) {
+                // Another node committed the same key while this insert waited on it.
+                stored = repository.findById(id).map(IdempotencyService::toStored)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                                ErrorMessages.IDEMPOTENCY_KEY_IN_PROGRESS));
+            }
+        }
+        if (stored.response() != null) {
+            completed.put(id, stored);
+            mine.complete(stored);
+        }
+        return replay(stored, fingerprint);
+    }
+
+    private Executed runInTransaction(IdempotencyRecordId id, String fingerprint, Supplier<?> action) {
+        return accountConcurrency.execute(() -> {
+            IdempotencyRecord record = new IdempotencyRecord(id.getScope(), id.getKey(), fingerprint);
+            repository.saveAndFlush(record);
+            Object body = action.get();
+            // Flush first so the response carries the versions this commit will write.
+            repository.flush();
+            record.complete(serialize(body));
+            return new Executed(body, toStored(record));
+        });
+    }
+
+    /**
+     * For a ledger engine that commits to its own journal, where the key
+     * cannot commit together with the change: the key is committed first,
+     * unfinished, the action runs outside any database transaction, and the
+     * response is stored afterwards. A request rejected with
+     * {@link IllegalArgumentException} changed nothing and releases the key.
+     * After any other failure the change may have been journaled, so the key
+     * stays unfinished and retries get {@code 409} instead of a second
+     * posting.
+     */
+    private Executed runAroundEngine(IdempotencyRecordId id, String fingerprint, Supplier<?> action) {
+        IdempotencyRecord record = template.execute(status ->
+                repository.saveAndFlush(new IdempotencyRecord(id.getScope(), id.getKey(), fingerprint)));
+        Object body;
+        try {
+            body = action.get();
+        } catch (IllegalArgumentException e) {
+            template.executeWithoutResult(status -> repository.deleteById(id));
+            throw e;
+        }
+        record.complete(serialize(body));
+        try {
+            template.executeWithoutResult(status -> repository.save(record));
+        } catch (DataAccessException e) {
+            // The posting is durable either way; retries on other nodes get 409 until the key is purged.
+            log.error("Could not store the response for idempotency key {} of {}", id.getKey(), id.getScope(), e);
+        }
+        return new Executed(body, toStored(record));
+    }
+
+    private Stored await(CompletableFuture<Stored> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ErrorMessages.IDEMPOTENCY_KEY_IN_PROGRESS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ErrorMessages.IDEMPOTENCY_KEY_IN_PROGRESS);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private Result replay(Stored stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, ErrorMessages.IDEMPOTENCY_KEY_REUSED);
+        }
+        if (stored.response() == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ErrorMessages.IDEMPOTENCY_KEY_IN_PROGRESS);
+        }
+        replayed.increment();
+        try {
+            return new Result(objectMapper.readTree(stored.response()), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Integer purged = template.execute(status -> repository.deleteCreatedBefore(cutoff));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} idempotency keys created before {}", purged, cutoff);
+        }
+    }
+
+    /**
+     * Hashes the operation name and request fields that must match for a key
+     * to be replayed. Amounts are compared by value, so {@code 10} and
+     * {@code 10.00} are the same request.
+     */
+    public static String fingerprint(Object... parts) {
+        StringBuilder text = new StringBuilder();
+        for (Object part : parts) {
+            text.append(part instanceof BigDecimal amount ? amount.stripTrailingZeros().toPlainString() : part)
+                    .append('\n');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Stored toStored(IdempotencyRecord record) {
+        return new Stored(record.getFingerprint(), record.getResponse());
+    }
+
+    /**
+     * The response to send and whether it was replayed from an earlier request.
+     */
+    public record Result(Object body, boolean replayed) {
+    }
+
+    private record Stored(String fingerprint, byte[] response) {
+    }
+
+    private record Executed(Object body, Stored stored) {
+    }
+}
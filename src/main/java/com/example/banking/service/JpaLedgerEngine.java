@@ -0,0 +1,240 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.Account;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.TransactionRepository;
+
+/**
+ * The default {@link LedgerEngine}: every deposit and transfer is one
+ * database transaction, run the way {@link AccountConcurrency} chooses.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.ledger.engine", havingValue = "JPA", matchIfMissing = true)
+public class JpaLedgerEngine implements LedgerEngine {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final SettingsService settingsService;
+    private final DailyTransferTotalService dailyTransferTotalService;
+    private final AccountCache accountCache;
+    private final AccountConcurrency accountConcurrency;
+    private final AccountStripes accountStripes;
+    private final TransferCoalescer transferCoalescer;
+
+    public JpaLedgerEngine(AccountRepository accountRepository,
+                           TransactionRepository transactionRepository,
+                           SettingsService settingsService,
+                           DailyTransferTotalService dailyTransferTotalService,
+                           AccountCache accountCache,
+                           AccountConcurrency accountConcurrency,
+                           AccountStripes accountStripes,
+                           TransferCoalescer transferCoalescer) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.settingsService = settingsService;
+        this.dailyTransferTotalService = dailyTransferTotalService;
+        this.accountCache = accountCache;
+        this.accountConcurrency = accountConcurrency;
+        this.accountStripes = accountStripes;
+        this.transferCoalescer = transferCoalescer;
+    }
+
+    /**
+     * Deposits go to the account row even when the account is striped, so the
+     * teller sees the balance it ends up with.
+     */
+    @Override
+    public Account deposit(String accountNumber, BigDecimal amount) {
+        return accountConcurrency.execute(() -> {
+            Account account = (accountConcurrency.locksOnRead()
+                    ? accountRepository.findByAccountNumberForUpdate(accountNumber)
+                    : accountRepository.findByAccountNumber(accountNumber))
+                    .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
+            if (accountConcurrency.isAtomic()) {
+                accountRepository.credit(account.getId(), amount);
+                accountRepository.refresh(account);
+            } else {
+                account.setBalance(account.getBalance().add(amount));
+                accountRepository.save(account);
+            }
+
+            Transaction tx = new Transaction();
+            tx.setAccount(account);
+            tx.setTimestamp(LocalDateTime.now());
+            tx.setType(TransactionType.DEPOSIT);
+            tx.setChannel(TransactionChannel.TELLER);
+            tx.setAmount(amount);
+            tx.setBalance(account.getBalance());
+            tx.setRemark("Deposit");
+            transactionRepository.save(tx);
+            cacheAfterCommit(account);
+
+            return account;
+        });
+    }
+
+    /**
+     * A striped destination (see {@link AccountStripes}) is neither locked
+     * nor updated; the amount goes to one of its stripes instead. Other
+     * transfers are grouped by the {@link TransferCoalescer} when it is
+     * enabled, unless the caller already has a transaction, such as the one
+     * storing an idempotency key, that the transfer has to be part of.
+     */
+    @Override
+    public Account transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String citizenId) {
+        if (transferCoalescer.isEnabled() && !accountStripes.isStriped(toAccountNumber)
+                && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transferCoalescer.transfer(fromAccountNumber, toAccountNumber, amount, citizenId);
+        }
+        return accountConcurrency.execute(() -> {
+            boolean striped = accountStripes.isStriped(toAccountNumber);
+            Map<String, Account> accounts = loadAccounts(striped
+                    ? List.of(fromAccountNumber)
+                    : List.of(fromAccountNumber, toAccountNumber));
+            Account from = accounts.get(fromAccountNumber);
+            Account to = striped
+                    ? accountRepository.findByAccountNumber(toAccountNumber).orElse(null)
+                    : accounts.get(toAccountNumber);
+            if (from == null || to == null) {
+                throw new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND);
+            }
+
+            if (!from.getCitizenId().equals(citizenId)) {
+                throw new IllegalArgumentException(ErrorMessages.ACCESS_DENIED);
+            }
+            BigDecimal dailyLimit = settingsService.getDailyTransferLimit();
+            LocalDate today = LocalDate.now();
+            boolean credited;
+            if (accountConcurrency.isAtomic()) {
+                credited = moveAtomically(from, to, amount, striped);
+                // The debit holds the sender's row lock from here on, which the daily counter relies on.
+                dailyTransferTotalService.recordTransfer(from, amount, dailyLimit, today);
+            } else {
+                if (from.getBalance().compareTo(amount) < 0 && accountStripes.fold(from.getId())) {
+                    accountRepository.refresh(from);
+                }
+                if (from.getBalance().compareTo(amount) < 0) {
+                    throw new IllegalArgumentException("Insufficient balance");
+                }
+                if (!accountConcurrency.isOptimistic()) {
+                    dailyTransferTotalService.recordTransfer(from, amount, dailyLimit, today);
+                }
+
+                from.setBalance(from.getBalance().subtract(amount));
+                accountRepository.save(from);
+                credited = striped && accountStripes.credit(to, amount);
+                if (!credited) {
+                    to.setBalance(to.getBalance().add(amount));
+                    accountRepository.save(to);
+                }
+
+                if (accountConcurrency.isOptimistic()) {
+                    // The version-checked UPDATE is what locks the account rows here, so run it
+                    // before touching the daily counter, which relies on the sender being locked.
+                    accountRepository.flush();
+                    dailyTransferTotalService.recordTransfer(from, amount, dailyLimit, today);
+                }
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+
+            Transaction outTx = new Transaction();
+            outTx.setAccount(from);
+            outTx.setTimestamp(now);
+            outTx.setType(TransactionType.TRANSFER_OUT);
+            outTx.setChannel(TransactionChannel.ONLINE);
+            outTx.setAmount(amount);
+            outTx.setBalance(from.getBalance());
+            outTx.setRemark("To " + toAccountNumber);
+            transactionRepository.save(outTx);
+
+            Transaction inTx = new Transaction();
+            inTx.setAccount(to);
+            inTx.setTimestamp(now);
+            inTx.setType(TransactionType.TRANSFER_IN);
+            inTx.setChannel(TransactionChannel.ONLINE);
+            inTx.setAmount(amount);
+            // Provisional when credited to a stripe; statements recompute it.
+            inTx.setBalance(credited ? to.getBalance().add(amount) : to.getBalance());
+            inTx.setRemark("From " + fromAccountNumber);
+            transactionRepository.save(inTx);
+            cacheAfterCommit(from);
+            cacheAfterCommit(to);
+
+            return from;
+        });
+    }
+
+    @Override
+    public boolean sharesAccountRows() {
+        return true;
+    }
+
+    @Override
+    public boolean joinsTransaction() {
+        return true;
+    }
+
+    private Map<String, Account> loadAccounts(Collection<String> accountNumbers) {
+        List<Account> accounts = accountConcurrency.locksOnRead()
+                ? accountRepository.findAllByAccountNumberInForUpdate(accountNumbers)
+                : accountRepository.findAllByAccountNumberIn(accountNumbers);
+        return accounts.stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+    }
+
+    /**
+     * Debits {@code from} and credits {@code to} with one conditional
+     * {@code UPDATE} each, then reloads both so their balances and versions
+     * are the ones just written. The rows are updated in account number
+     * order, like the pessimistic lock query, so opposing transfers cannot
+     * deadlock. A debit the row cannot cover is retried once after folding
+     * in the sender's stripes. Returns whether {@code to} was credited
+     * through a stripe, which always happens after the debit.
+     */
+    private boolean moveAtomically(Account from, Account to, BigDecimal amount, boolean striped) {
+        boolean debitFirst = striped || from.getAccountNumber().compareTo(to.getAccountNumber()) < 0;
+        if (!debitFirst) {
+            accountRepository.credit(to.getId(), amount);
+        }
+        if (accountRepository.debit(from.getId(), amount) == 0
+                && (!accountStripes.fold(from.getId()) || accountRepository.debit(from.getId(), amount) == 0)) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        boolean credited = striped && accountStripes.credit(to, amount);
+        if (debitFirst && !credited) {
+            accountRepository.credit(to.getId(), amount);
+        }
+        accountRepository.refresh(from);
+        accountRepository.refresh(to);
+        return credited;
+    }
+
+    /**
+     * Caches the new state of {@code account} on commit, or drops it if part
+     * of its balance lives in stripes the entity does not see.
+     */
+    private void cacheAfterCommit(Account account) {
+        if (accountStripes.hasStripes(account.getId())) {
+            accountCache.evictAfterCommit(account.getAccountNumber());
+        } else {
+            accountCache.updateAfterCommit(account);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+
+import com.example.banking.model.Account;
+
+/**
+ * Applies balance changes and records them in the ledger, chosen with
+ * {@code banking.ledger.engine}. Callers have already validated amounts and
+ * checked the PIN.
+ *
+ * <ul>
+ *   <li>{@code JPA} (default, {@link JpaLedgerEngine}): each change is a
+ *   database transaction on the {@code accounts} and {@code transactions}
+ *   tables.</li>
+ *   <li>{@code MEMORY} ({@link MemoryLedgerEngine}): balances live in memory
+ *   and changes are journaled to local disk, then copied to the database
+ *   asynchronously.</li>
+ * </ul>
+ */
+public interface LedgerEngine {
+    /**
+     * Credits {@code amount} to the account and returns its new state.
+     */
+    Account deposit(String accountNumber, BigDecimal amount);
+
+    /**
+     * Moves {@code amount} from an account owned by {@code citizenId} and
+     * returns the sender's new state.
+     */
+    Account transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String citizenId);
+
+    /**
+     * Whether balances are read and written in the {@code accounts} table,
+     * so other database writers such as batch transfers may change them.
+     */
+    boolean sharesAccountRows();
+
+    /**
+     * Whether a change is made in the caller's database transaction, so it
+     * commits or rolls back with whatever else that transaction writes.
+     */
+    boolean joinsTransaction();
+}
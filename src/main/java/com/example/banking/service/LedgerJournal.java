@@ -0,0 +1,332 @@
+package com.example.banking.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.banking.model.Account;
+import com.example.banking.model.TransactionType;
+
+/**
+ * Write-ahead journal of the {@link MemoryLedgerEngine}, kept in
+ * memory-mapped segment files named after the sequence number of their first
+ * record. Each record is {@code [length][crc32][payload]}; a zero length or a
+ * checksum mismatch ends the journal, so a record torn by a crash is dropped
+ * when the journal is opened again.
+ *
+ * <p>{@link #append} only writes to the mapping. {@link #sync} forces
+ * everything appended so far to disk at once, so appends from all shards
+ * share one fsync. Appended records are queued in sequence order for
+ * {@link #drainAppended}, which the caller follows with a sync before
+ * acknowledging them.</p>
+ */
+class LedgerJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(LedgerJournal.class);
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER = 8;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+    private final BlockingQueue<Appended> appended = new LinkedBlockingQueue<>();
+    private final List<Entry> recovered = new ArrayList<>();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private int syncedTo;
+    private volatile long lastSeq;
+
+    /**
+     * A ledger change. {@code counterparty} is the other account of a
+     * transfer and empty for deposits; {@code origin} is the sequence number
+     * of the debit a {@code TRANSFER_IN} credits, and 0 otherwise.
+     * {@code balance} and {@code version} are the account's after the change.
+     */
+    record Entry(long seq, TransactionType type, LocalDateTime timestamp, long accountId, String accountNumber,
+                 String counterparty, BigDecimal amount, BigDecimal balance, long version, long origin) {
+
+        Entry withSeq(long seq) {
+            return new Entry(seq, type, timestamp, accountId, accountNumber, counterparty, amount, balance,
+                    version, origin);
+        }
+    }
+
+    /**
+     * An appended entry and the caller waiting for it to become durable,
+     * if any, with the response it should get.
+     */
+    record Appended(Entry entry, CompletableFuture<Account> result, Account response) {
+    }
+
+    private LedgerJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in {@code directory}, reading the records after
+     * {@code checkpoint} into {@link #recovered()}. Appending continues after
+     * the last intact record, numbered after it or after the checkpoint,
+     * whichever is higher.
+     */
+    static LedgerJournal open(Path directory, int segmentSize, long checkpoint) throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, segmentSize);
+        journal.recover(checkpoint);
+        return journal;
+    }
+
+    private void recover(long checkpoint) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(file -> segments.put(firstSeq(file), file));
+        }
+        lastSeq = checkpoint;
+        for (Map.Entry<Long, Path> file : segments.entrySet()) {
+            boolean last = file.getKey().equals(segments.lastKey());
+            channel = FileChannel.open(file.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            position = 0;
+            Entry entry;
+            while ((entry = read()) != null) {
+                if (entry.seq() > checkpoint) {
+                    recovered.add(entry);
+                }
+                lastSeq = Math.max(lastSeq, entry.seq());
+            }
+            if (!last) {
+                if (position + HEADER <= segmentSize && segment.getInt(position) != 0) {
+                    throw new IllegalStateException("Journal segment " + file.getValue() + " is corrupt at " + position);
+                }
+                channel.close();
+            } else if (position + HEADER <= segmentSize && segment.getInt(position) != 0) {
+                log.warn("Dropping torn record at {} of {}", position, file.getValue());
+                zero(position, segmentSize);
+                segment.force();
+            }
+        }
+        if (segment == null) {
+            roll();
+        }
+        syncedTo = position;
+    }
+
+    List<Entry> recovered() {
+        return recovered;
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Numbers {@code entry}, writes it and queues it for
+     * {@link #drainAppended}. Returns the numbered entry.
+     */
+    synchronized Entry append(Entry entry, CompletableFuture<Account> result, Account response) {
+        Entry numbered = entry.withSeq(lastSeq + 1);
+        byte[] payload = encode(numbered);
+        if (payload.length + HEADER > segmentSize) {
+            throw new IllegalArgumentException("Journal record larger than a segment");
+        }
+        if (position + HEADER + payload.length > segmentSize) {
+            segment.force();
+            try {
+                channel.close();
+                roll();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        segment.put(position + HEADER, payload);
+        segment.putInt(position + 4, (int) crc.getValue());
+        segment.putInt(position, payload.length);
+        position += HEADER + payload.length;
+        lastSeq = numbered.seq();
+        appended.add(new Appended(numbered, result, response));
+        return numbered;
+    }
+
+    /**
+     * Waits up to {@code timeout} for appended entries and moves all of them
+     * to {@code into}, oldest first. Returns whether there were any.
+     */
+    boolean drainAppended(List<Appended> into, long timeout, TimeUnit unit) throws InterruptedException {
+        Appended first = appended.poll(timeout, unit);
+        if (first == null) {
+            return false;
+        }
+        into.add(first);
+        appended.drainTo(into);
+        return true;
+    }
+
+    /**
+     * Forces every record appended so far to disk. Segments are forced as
+     * they fill up, so only the current one can have unsynced records.
+     */
+    void sync() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        synchronized (this) {
+            target = segment;
+            from = syncedTo;
+            to = position;
+            syncedTo = to;
+        }
+        if (to > from) {
+            target.force(from, to - from);
+        }
+    }
+
+    /**
+     * Deletes the segments whose records are all at or before
+     * {@code checkpoint}. The current segment is always kept.
+     */
+    synchronized void trim(long checkpoint) {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            Long next = segments.higherKey(oldest.getKey());
+            if (next > checkpoint + 1) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(oldest.getValue());
+            } catch (IOException e) {
+                log.warn("Could not delete journal segment {}", oldest.getValue(), e);
+                return;
+            }
+            segments.remove(oldest.getKey());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segment.force();
+        channel.close();
+    }
+
+    private void roll() throws IOException {
+        long first = lastSeq + 1;
+        Path file = directory.resolve(String.format("%020d%s", first, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+        syncedTo = 0;
+        segments.put(first, file);
+    }
+
+    /**
+     * Reads the record at {@code position} and moves past it, or returns
+     * null at the end of the journal.
+     */
+    private Entry read() {
+        if (position + HEADER > segmentSize) {
+            return null;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || length > segmentSize - position - HEADER) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        segment.get(position + HEADER, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != segment.getInt(position + 4)) {
+            return null;
+        }
+        position += HEADER + length;
+        return decode(ByteBuffer.wrap(payload));
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[64 * 1024];
+        for (int offset = from; offset < to; offset += zeros.length) {
+            segment.put(offset, zeros, 0, Math.min(zeros.length, to - offset));
+        }
+    }
+
+    private static long firstSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    static byte[] encode(Entry entry) {
+        byte[] number = entry.accountNumber().getBytes(StandardCharsets.UTF_8);
+        byte[] counterparty = entry.counterparty().getBytes(StandardCharsets.UTF_8);
+        byte[] amount = entry.amount().unscaledValue().toByteArray();
+        byte[] balance = entry.balance().unscaledValue().toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 1 + 8 + 4 + 8 + 2 + number.length + 2 + counterparty.length
+                + 6 + amount.length + 6 + balance.length + 8 + 8);
+        buffer.putLong(entry.seq());
+        buffer.put((byte) entry.type().ordinal());
+        buffer.putLong(entry.timestamp().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(entry.timestamp().getNano());
+        buffer.putLong(entry.accountId());
+        putBytes(buffer, number);
+        putBytes(buffer, counterparty);
+        buffer.putInt(entry.amount().scale());
+        putBytes(buffer, amount);
+        buffer.putInt(entry.balance().scale());
+        putBytes(buffer, balance);
+        buffer.putLong(entry.version());
+        buffer.putLong(entry.origin());
+        return buffer.array();
+    }
+
+    static Entry decode(ByteBuffer buffer) {
+        long seq = buffer.getLong();
+        TransactionType type = TYPES[buffer.get()];
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        long accountId = buffer.getLong();
+        String number = new String(getBytes(buffer), StandardCharsets.UTF_8);
+        String counterparty = new String(getBytes(buffer), StandardCharsets.UTF_8);
+        int amountScale = buffer.getInt();
+        BigDecimal amount = new BigDecimal(new BigInteger(getBytes(buffer)), amountScale);
+        int balanceScale = buffer.getInt();
+        BigDecimal balance = new BigDecimal(new BigInteger(getBytes(buffer)), balanceScale);
+        return new Entry(seq, type, timestamp, accountId, number, counterparty, amount, balance,
+                buffer.getLong(), buffer.getLong());
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
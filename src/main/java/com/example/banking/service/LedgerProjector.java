@@ -0,0 +1,230 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.model.DailyTransferTotal;
+import com.example.banking.model.DailyTransferTotalId;
+import com.example.banking.model.LedgerCheckpoint;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.DailyTransferTotalRepository;
+import com.example.banking.repository.LedgerCheckpointRepository;
+import com.example.banking.repository.TransactionRepository;
+
+/**
+ * Copies durable journal records of the {@link MemoryLedgerEngine} into the
+ * database on a background thread: one {@code transactions} row per record,
+ * the latest balance and version of each account, and the daily transfer
+ * totals. Each batch is one database transaction that also moves the
+ * checkpoint, so a record is projected exactly once across restarts.
+ *
+ * <p>A debit is only projected together with its credit, which may reach
+ * the journal a little later from another shard. Records from the oldest
+ * unmatched debit on are held back, so the checkpoint never passes a transfer
+ * that is only half in the database. Failed batches are retried with
+ * backoff.</p>
+ */
+class LedgerProjector {
+    private static final Logger log = LoggerFactory.getLogger(LedgerProjector.class);
+    private static final long MIN_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final DailyTransferTotalRepository totalRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final AccountCache accountCache;
+    private final TransactionTemplate template;
+    private final LedgerJournal journal;
+    private final String checkpointName;
+    private final int batchSize;
+    private final BlockingQueue<LedgerJournal.Entry> queue = new LinkedBlockingQueue<>();
+    private final Deque<LedgerJournal.Entry> held = new ArrayDeque<>();
+    private final TreeSet<Long> openDebits = new TreeSet<>();
+    private volatile long checkpoint;
+    private volatile boolean running;
+    private Thread thread;
+
+    LedgerProjector(AccountRepository accountRepository,
+                    TransactionRepository transactionRepository,
+                    DailyTransferTotalRepository totalRepository,
+                    LedgerCheckpointRepository checkpointRepository,
+                    AccountCache accountCache,
+                    TransactionTemplate template,
+                    LedgerJournal journal,
+                    String checkpointName,
+                    int batchSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.totalRepository = totalRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.accountCache = accountCache;
+        this.template = template;
+        this.journal = journal;
+        this.checkpointName = checkpointName;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queues a durable record. Records must be submitted in sequence order.
+     */
+    void submit(LedgerJournal.Entry entry) {
+        queue.add(entry);
+    }
+
+    long checkpoint() {
+        return checkpoint;
+    }
+
+    void start(long checkpoint) {
+        this.checkpoint = checkpoint;
+        running = true;
+        thread = new Thread(this::run, "ledger-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Projects what it can of the records already submitted, waiting up to
+     * {@code timeout}. Anything left is replayed from the journal on the
+     * next start.
+     */
+    void stop(Duration timeout) throws InterruptedException {
+        running = false;
+        thread.join(timeout.toMillis());
+        if (thread.isAlive()) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private void run() {
+        long backoff = MIN_BACKOFF_MS;
+        try {
+            while (true) {
+                LedgerJournal.Entry next = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    List<LedgerJournal.Entry> received = new ArrayList<>();
+                    received.add(next);
+                    queue.drainTo(received);
+                    received.forEach(this::hold);
+                }
+                List<LedgerJournal.Entry> batch = committable();
+                if (batch.isEmpty()) {
+                    if (!running && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    project(batch);
+                    batch.forEach(entry -> held.removeFirst());
+                    checkpoint = batch.get(batch.size() - 1).seq();
+                    journal.trim(checkpoint);
+                    backoff = MIN_BACKOFF_MS;
+                } catch (RuntimeException e) {
+                    log.warn("Could not project {} ledger records, retrying in {} ms", batch.size(), backoff, e);
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("Ledger projection stopped with {} records pending", held.size() + queue.size());
+        }
+    }
+
+    private void hold(LedgerJournal.Entry entry) {
+        if (entry.type() == TransactionType.TRANSFER_OUT) {
+            openDebits.add(entry.seq());
+        } else if (entry.type() == TransactionType.TRANSFER_IN) {
+            openDebits.remove(entry.origin());
+        }
+        held.addLast(entry);
+    }
+
+    /**
+     * The held records before the oldest debit still waiting for its credit,
+     * at most {@code batchSize} of them.
+     */
+    private List<LedgerJournal.Entry> committable() {
+        long limit = openDebits.isEmpty() ? Long.MAX_VALUE : openDebits.first();
+        List<LedgerJournal.Entry> batch = new ArrayList<>();
+        for (LedgerJournal.Entry entry : held) {
+            if (entry.seq() >= limit || batch.size() == batchSize) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    void project(List<LedgerJournal.Entry> batch) {
+        template.executeWithoutResult(status -> {
+            List<Transaction> rows = new ArrayList<>(batch.size());
+            Map<Long, LedgerJournal.Entry> latest = new LinkedHashMap<>();
+            Map<DailyTransferTotalId, BigDecimal> sent = new HashMap<>();
+            for (LedgerJournal.Entry entry : batch) {
+                rows.add(row(entry));
+                latest.put(entry.accountId(), entry);
+                if (entry.type() == TransactionType.TRANSFER_OUT) {
+                    sent.merge(new DailyTransferTotalId(entry.accountId(), entry.timestamp().toLocalDate()),
+                            entry.amount(), BigDecimal::add);
+                }
+            }
+            transactionRepository.saveAll(rows);
+            for (LedgerJournal.Entry entry : latest.values()) {
+                accountRepository.overwriteBalance(entry.accountId(), entry.balance(), entry.version());
+                accountCache.evictAfterCommit(entry.accountNumber());
+            }
+            sent.forEach((id, amount) -> {
+                DailyTransferTotal total = totalRepository.findById(id)
+                        .orElseGet(() -> new DailyTransferTotal(id.getAccountId(), id.getBusinessDate()));
+                total.setTotal(total.getTotal().add(amount));
+                totalRepository.save(total);
+            });
+            checkpointRepository.save(new LedgerCheckpoint(checkpointName, batch.get(batch.size() - 1).seq()));
+        });
+    }
+
+    private Transaction row(LedgerJournal.Entry entry) {
+        Transaction tx = new Transaction();
+        tx.setAccount(accountRepository.getReferenceById(entry.accountId()));
+        tx.setTimestamp(entry.timestamp());
+        tx.setType(entry.type());
+        tx.setAmount(entry.amount());
+        tx.setBalance(entry.balance());
+        switch (entry.type()) {
+            case DEPOSIT -> {
+                tx.setChannel(TransactionChannel.TELLER);
+                tx.setRemark("Deposit");
+            }
+            case TRANSFER_OUT -> {
+                tx.setChannel(TransactionChannel.ONLINE);
+                tx.setRemark("To " + entry.counterparty());
+            }
+            case TRANSFER_IN -> {
+                tx.setChannel(TransactionChannel.ONLINE);
+                tx.setRemark("From " + entry.counterparty());
+            }
+        }
+        return tx;
+    }
+}
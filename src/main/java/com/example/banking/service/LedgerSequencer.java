@@ -0,0 +1,71 @@
+package com.example.banking.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.model.LedgerCheckpoint;
+import com.example.banking.repository.LedgerCheckpointRepository;
+import com.example.banking.repository.LedgerSequenceRepository;
+
+/**
+ * Numbers ledger rows in the order they become visible, for the sync
+ * endpoint. Ids and timestamps are taken before a row commits, so a poll
+ * paging by them can pass a row that commits later with a lower value. This
+ * only numbers rows that have already committed, holding the
+ * {@code sync-sequence} checkpoint row locked so runs on different nodes take
+ * turns: anything committing afterwards gets a higher number.
+ */
+@Service
+public class LedgerSequencer {
+    static final String CHECKPOINT = "sync-sequence";
+
+    private final LedgerSequenceRepository sequenceRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final TransactionTemplate template;
+    private final int batchSize;
+
+    public LedgerSequencer(LedgerSequenceRepository sequenceRepository,
+                           LedgerCheckpointRepository checkpointRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${banking.sync.sequence-batch-size:1000}") int batchSize) {
+        this.sequenceRepository = sequenceRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.template = new TransactionTemplate(transactionManager);
+        // Each read after the lock must see every row committed so far.
+        this.template.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.batchSize = batchSize;
+    }
+
+    /** Numbers every row committed so far. */
+    @Scheduled(fixedDelayString = "${banking.sync.sequence-interval:PT0.1S}")
+    public void sequenceCommitted() {
+        if (!sequenceRepository.hasUnsequenced()) {
+            return;
+        }
+        int numbered;
+        do {
+            numbered = sequenceBatch();
+        } while (numbered == batchSize);
+    }
+
+    /** Numbers up to one batch of committed rows, returning how many. */
+    int sequenceBatch() {
+        return template.execute(status -> {
+            LedgerCheckpoint counter = checkpointRepository.findByNameForUpdate(CHECKPOINT)
+                    // Only schemas generated without the migrations lack the row.
+                    .orElseGet(() -> checkpointRepository.save(new LedgerCheckpoint(CHECKPOINT, 0)));
+            List<Long> ids = sequenceRepository.findUnsequencedIds(batchSize);
+            if (!ids.isEmpty()) {
+                sequenceRepository.assign(ids, counter.getPosition() + 1);
+                counter.setPosition(counter.getPosition() + ids.size());
+            }
+            return ids.size();
+        });
+    }
+}
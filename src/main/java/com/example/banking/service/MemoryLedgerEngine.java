@@ -0,0 +1,508 @@
+package com.example.banking.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.Account;
+import com.example.banking.model.DailyTransferTotal;
+import com.example.banking.model.DailyTransferTotalId;
+import com.example.banking.model.LedgerCheckpoint;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.DailyTransferTotalRepository;
+import com.example.banking.repository.LedgerCheckpointRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link LedgerEngine} that keeps balances in memory. Accounts are spread
+ * over {@code banking.ledger.shards} shards by account number, and each shard
+ * is owned by one thread that takes requests from a bounded queue of
+ * {@code banking.ledger.queue-capacity}, so balance updates need no locks.
+ *
+ * <p>Every change is appended to a {@link LedgerJournal} under
+ * {@code banking.ledger.journal.dir}, and a flusher thread acknowledges
+ * changes once a single fsync has made a whole group of them durable. A
+ * transfer debits the sender on its shard and hands the credit to the
+ * receiver's shard; the transfer is acknowledged when the debit is durable,
+ * and a crash before the credit is journaled is repaired on startup by
+ * issuing the credit again.</p>
+ *
+ * <p>The {@link LedgerProjector} copies durable changes into the database
+ * for statements and account views, which therefore lag a little behind. On
+ * startup the journal is replayed from the projector's checkpoint, so the
+ * engine must own the balances of its accounts: only one node may run it,
+ * and batch transfers and balance striping are not available.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "banking.ledger.engine", havingValue = "MEMORY")
+public class MemoryLedgerEngine implements LedgerEngine, SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(MemoryLedgerEngine.class);
+    static final String CHECKPOINT = "memory-ledger";
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final DailyTransferTotalRepository totalRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final SettingsService settingsService;
+    private final AccountCache accountCache;
+    private final TransactionTemplate template;
+    private final MeterRegistry meterRegistry;
+    private final Shard[] shards;
+    private final Duration timeout;
+    private final Path journalDirectory;
+    private final int segmentSize;
+    private final int projectionBatchSize;
+    private final Map<String, Boolean> knownAccounts = new ConcurrentHashMap<>();
+    private final Counter rejected;
+    private final DistributionSummary groupSize;
+    private LedgerJournal journal;
+    private LedgerProjector projector;
+    private Thread flusher;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile boolean flushing;
+
+    public MemoryLedgerEngine(AccountRepository accountRepository,
+                              TransactionRepository transactionRepository,
+                              DailyTransferTotalRepository totalRepository,
+                              LedgerCheckpointRepository checkpointRepository,
+                              SettingsService settingsService,
+                              AccountCache accountCache,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${banking.ledger.shards:4}") int shards,
+                              @Value("${banking.ledger.queue-capacity:8192}") int queueCapacity,
+                              @Value("${banking.ledger.timeout:PT5S}") Duration timeout,
+                              @Value("${banking.ledger.journal.dir:journal}") Path journalDirectory,
+                              @Value("${banking.ledger.journal.segment-size:64MB}") DataSize segmentSize,
+                              @Value("${banking.ledger.projection.batch-size:500}") int projectionBatchSize) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("banking.ledger.shards must be at least 1");
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.totalRepository = totalRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.settingsService = settingsService;
+        this.accountCache = accountCache;
+        this.template = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(queueCapacity);
+        }
+        this.timeout = timeout;
+        this.journalDirectory = journalDirectory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.projectionBatchSize = projectionBatchSize;
+        this.rejected = meterRegistry.counter("banking.ledger.rejected");
+        this.groupSize = DistributionSummary.builder("banking.ledger.fsync.group_size").register(meterRegistry);
+    }
+
+    @Override
+    public Account deposit(String accountNumber, BigDecimal amount) {
+        CompletableFuture<Account> result = new CompletableFuture<>();
+        return submit(accountNumber, new Deposit(accountNumber, amount, result), result);
+    }
+
+    @Override
+    public Account transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String citizenId) {
+        CompletableFuture<Account> result = new CompletableFuture<>();
+        return submit(fromAccountNumber, new Debit(fromAccountNumber, toAccountNumber, amount, citizenId, result),
+                result);
+    }
+
+    @Override
+    public boolean sharesAccountRows() {
+        return false;
+    }
+
+    @Override
+    public boolean joinsTransaction() {
+        return false;
+    }
+
+    /**
+     * Replays the journal from the projector's checkpoint into memory, then
+     * starts the shard, flusher and projector threads and credits transfers
+     * whose credit did not make it to the journal.
+     */
+    @Override
+    public void start() {
+        long checkpoint = checkpointRepository.findById(CHECKPOINT).map(LedgerCheckpoint::getPosition).orElse(0L);
+        try {
+            journal = LedgerJournal.open(journalDirectory, segmentSize, checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        projector = new LedgerProjector(accountRepository, transactionRepository, totalRepository,
+                checkpointRepository, accountCache, template, journal, CHECKPOINT, projectionBatchSize);
+        Map<Long, LedgerJournal.Entry> uncredited = new TreeMap<>();
+        LocalDate today = LocalDate.now();
+        for (LedgerJournal.Entry entry : journal.recovered()) {
+            Slot slot = shardOf(entry.accountNumber()).slot(entry.accountNumber());
+            slot.balance = entry.balance();
+            slot.version = entry.version();
+            if (entry.type() == TransactionType.TRANSFER_OUT) {
+                uncredited.put(entry.seq(), entry);
+                if (entry.timestamp().toLocalDate().equals(today)) {
+                    slot.sentOn(today);
+                    slot.sentToday = slot.sentToday.add(entry.amount());
+                }
+            } else if (entry.type() == TransactionType.TRANSFER_IN) {
+                uncredited.remove(entry.origin());
+            }
+            projector.submit(entry);
+        }
+        log.info("Replayed {} journal records after checkpoint {}", journal.recovered().size(), checkpoint);
+
+        running = true;
+        flushing = true;
+        for (int i = 0; i < shards.length; i++) {
+            Thread thread = new Thread(shards[i], "ledger-shard-" + i);
+            thread.setDaemon(true);
+            shards[i].thread = thread;
+            thread.start();
+        }
+        flusher = new Thread(this::flush, "ledger-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        projector.start(checkpoint);
+        Gauge.builder("banking.ledger.projection.lag", this, engine -> engine.journal.lastSeq()
+                - engine.projector.checkpoint()).register(meterRegistry);
+        for (LedgerJournal.Entry debit : uncredited.values()) {
+            log.warn("Crediting {} to {} for journal record {} again", debit.amount(), debit.counterparty(),
+                    debit.seq());
+            shardOf(debit.counterparty()).credits.add(new Credit(debit.counterparty(), debit.accountNumber(),
+                    debit.amount(), debit.seq(), debit.timestamp()));
+        }
+        accepting = true;
+    }
+
+    /**
+     * Stops taking requests, lets the shards finish the ones queued, makes
+     * them durable and gives the projector a moment to catch up.
+     */
+    @Override
+    public void stop() {
+        accepting = false;
+        for (Shard shard : shards) {
+            while (!shard.inbox.isEmpty()) {
+                Thread.onSpinWait();
+            }
+        }
+        running = false;
+        try {
+            for (Shard shard : shards) {
+                shard.thread.join();
+            }
+            flushing = false;
+            flusher.join();
+            projector.stop(timeout);
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so no request finds the
+     * engine stopped.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private Account submit(String accountNumber, Command command, CompletableFuture<Account> result) {
+        if (!accepting || !shardOf(accountNumber).inbox.offer(command)) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.LEDGER_BUSY);
+        }
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.LEDGER_TIMEOUT);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.LEDGER_TIMEOUT);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Syncs the journal once per group of appended records, then answers
+     * their callers and passes them on to the projector. If a sync fails the
+     * journal can no longer be trusted, so the engine stops taking requests
+     * until it is restarted and replays what did reach the disk.
+     */
+    private void flush() {
+        List<LedgerJournal.Appended> group = new ArrayList<>();
+        try {
+            while (flushing || !group.isEmpty() || journal.drainAppended(group, 0, TimeUnit.MILLISECONDS)) {
+                if (group.isEmpty() && !journal.drainAppended(group, 10, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                try {
+                    journal.sync();
+                } catch (RuntimeException e) {
+                    log.error("Could not sync the ledger journal, no longer taking requests", e);
+                    accepting = false;
+                    group.forEach(appended -> fail(appended, new ResponseStatusException(
+                            HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.LEDGER_BUSY)));
+                    group.clear();
+                    continue;
+                }
+                groupSize.record(group.size());
+                for (LedgerJournal.Appended appended : group) {
+                    if (appended.result() != null) {
+                        appended.result().complete(appended.response());
+                    }
+                    projector.submit(appended.entry());
+                }
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void fail(LedgerJournal.Appended appended, RuntimeException e) {
+        if (appended.result() != null) {
+            appended.result().completeExceptionally(e);
+        }
+    }
+
+    private Shard shardOf(String accountNumber) {
+        return shards[Math.floorMod(accountNumber.hashCode(), shards.length)];
+    }
+
+    /**
+     * Whether {@code accountNumber} exists. Accounts are never deleted, so
+     * only positive answers are remembered.
+     */
+    private boolean accountExists(String accountNumber) {
+        if (knownAccounts.containsKey(accountNumber)) {
+            return true;
+        }
+        if (!accountRepository.existsByAccountNumber(accountNumber)) {
+            return false;
+        }
+        knownAccounts.put(accountNumber, Boolean.TRUE);
+        return true;
+    }
+
+    private interface Command {
+    }
+
+    private record Deposit(String accountNumber, BigDecimal amount, CompletableFuture<Account> result)
+            implements Command {
+    }
+
+    private record Debit(String from, String to, BigDecimal amount, String citizenId,
+                         CompletableFuture<Account> result) implements Command {
+    }
+
+    private record Credit(String to, String from, BigDecimal amount, long origin, LocalDateTime timestamp)
+            implements Command {
+    }
+
+    /**
+     * An account as its shard sees it. Only the owning shard's thread touches
+     * it once the engine has started.
+     */
+    private static final class Slot {
+        final Account account;
+        BigDecimal balance;
+        long version;
+        LocalDate day;
+        BigDecimal sentToday;
+
+        Slot(Account account, LocalDate day, BigDecimal sentToday) {
+            this.account = account;
+            this.balance = account.getBalance();
+            this.version = account.getVersion() == null ? 0 : account.getVersion();
+            this.day = day;
+            this.sentToday = sentToday;
+        }
+
+        /**
+         * Starts a new daily total if {@code today} is a new day.
+         */
+        void sentOn(LocalDate today) {
+            if (!today.equals(day)) {
+                day = today;
+                sentToday = BigDecimal.ZERO;
+            }
+        }
+    }
+
+    private final class Shard implements Runnable {
+        final BlockingQueue<Command> inbox;
+        final Queue<Credit> credits = new ConcurrentLinkedQueue<>();
+        final Map<String, Slot> slots = new HashMap<>();
+        Thread thread;
+
+        Shard(int capacity) {
+            this.inbox = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Applies credits from other shards ahead of new requests, so a busy
+         * shard cannot hold back money already taken from a sender.
+         */
+        @Override
+        public void run() {
+            while (running || !inbox.isEmpty() || !credits.isEmpty()) {
+                Command command = credits.poll();
+                if (command == null) {
+                    try {
+                        command = inbox.poll(1, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (command instanceof Deposit deposit) {
+                    deposit(deposit);
+                } else if (command instanceof Debit debit) {
+                    debit(debit);
+                } else if (command instanceof Credit credit) {
+                    credit(credit);
+                }
+            }
+        }
+
+        private void deposit(Deposit deposit) {
+            try {
+                Slot slot = slot(deposit.accountNumber());
+                BigDecimal balance = slot.balance.add(deposit.amount());
+                long version = slot.version + 1;
+                journal.append(new LedgerJournal.Entry(0, TransactionType.DEPOSIT, LocalDateTime.now(),
+                        slot.account.getId(), deposit.accountNumber(), "", deposit.amount(), balance, version, 0),
+                        deposit.result(), slot.account.withBalance(balance, version));
+                slot.balance = balance;
+                slot.version = version;
+            } catch (RuntimeException e) {
+                deposit.result().completeExceptionally(e);
+            }
+        }
+
+        private void debit(Debit debit) {
+            try {
+                Slot slot = slot(debit.from());
+                if (!accountExists(debit.to())) {
+                    throw new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND);
+                }
+                if (!slot.account.getCitizenId().equals(debit.citizenId())) {
+                    throw new IllegalArgumentException(ErrorMessages.ACCESS_DENIED);
+                }
+                if (slot.balance.compareTo(debit.amount()) < 0) {
+                    throw new IllegalArgumentException("Insufficient balance");
+                }
+                LocalDateTime now = LocalDateTime.now();
+                slot.sentOn(now.toLocalDate());
+                BigDecimal sentToday = slot.sentToday.add(debit.amount());
+                if (sentToday.compareTo(settingsService.getDailyTransferLimit()) > 0) {
+                    throw new IllegalArgumentException(ErrorMessages.DAILY_LIMIT_EXCEEDED);
+                }
+                BigDecimal balance = slot.balance.subtract(debit.amount());
+                long version = slot.version + 1;
+                LedgerJournal.Entry entry = journal.append(new LedgerJournal.Entry(0, TransactionType.TRANSFER_OUT,
+                        now, slot.account.getId(), debit.from(), debit.to(), debit.amount(), balance, version, 0),
+                        debit.result(), slot.account.withBalance(balance, version));
+                slot.balance = balance;
+                slot.version = version;
+                slot.sentToday = sentToday;
+                // Journaled after the debit, so the credit can never be durable without it.
+                shardOf(debit.to()).credits.add(new Credit(debit.to(), debit.from(), debit.amount(), entry.seq(), now));
+            } catch (RuntimeException e) {
+                debit.result().completeExceptionally(e);
+            }
+        }
+
+        private void credit(Credit credit) {
+            try {
+                Slot slot = slot(credit.to());
+                BigDecimal balance = slot.balance.add(credit.amount());
+                long version = slot.version + 1;
+                journal.append(new LedgerJournal.Entry(0, TransactionType.TRANSFER_IN, credit.timestamp(),
+                        slot.account.getId(), credit.to(), credit.from(), credit.amount(), balance, version,
+                        credit.origin()), null, null);
+                slot.balance = balance;
+                slot.version = version;
+            } catch (RuntimeException e) {
+                log.error("Could not credit {} to {} for journal record {}; it is credited on the next start",
+                        credit.amount(), credit.to(), credit.origin(), e);
+            }
+        }
+
+        /**
+         * The slot of {@code accountNumber}, loaded from the database the
+         * first time the account is used.
+         */
+        Slot slot(String accountNumber) {
+            Slot slot = slots.get(accountNumber);
+            if (slot == null) {
+                Account account = accountRepository.findByAccountNumber(accountNumber)
+                        .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
+                LocalDate today = LocalDate.now();
+                BigDecimal sentToday = totalRepository.findById(new DailyTransferTotalId(account.getId(), today))
+                        .map(DailyTransferTotal::getTotal)
+                        .orElse(BigDecimal.ZERO);
+                slot = new Slot(account, today, sentToday);
+                slots.put(accountNumber, slot);
+                knownAccounts.put(accountNumber, Boolean.TRUE);
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.banking.model.Setting;
+import com.example.banking.repository.SettingRepository;
+
+/**
+ * In-memory snapshot of the {@code settings} table. Reads never touch the
+ * database once the snapshot is loaded; each node polls a row count and
+ * last-updated timestamp on a timer and reloads only when they change.
+ */
+@Service
+public class SettingsService {
+    public static final String DAILY_TRANSFER_LIMIT = "DAILY_TRANSFER_LIMIT";
+    private static final BigDecimal DEFAULT_DAILY_TRANSFER_LIMIT = new BigDecimal("50000");
+    private static final Logger log = LoggerFactory.getLogger(SettingsService.class);
+
+    private final SettingRepository settingRepository;
+    private volatile Snapshot snapshot;
+    private volatile Instant lastChecked;
+
+    public SettingsService(SettingRepository settingRepository) {
+        this.settingRepository = settingRepository;
+    }
+
+    public BigDecimal getDailyTransferLimit() {
+        return getDecimal(DAILY_TRANSFER_LIMIT, DEFAULT_DAILY_TRANSFER_LIMIT);
+    }
+
+    public BigDecimal getDecimal(String name, BigDecimal defaultValue) {
+        return snapshot().values().getOrDefault(name, defaultValue);
+    }
+
+    public long getLong(String name, long defaultValue) {
+        BigDecimal value = snapshot().values().get(name);
+        return value != null ? value.longValueExact() : defaultValue;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload(settingRepository.findVersion());
+    }
+
+    public Instant getLastChecked() {
+        return lastChecked;
+    }
+
+    /**
+     * Reloads the snapshot if the table changed since it was taken. Concurrent
+     * refreshes are harmless because a reload only ever installs what it read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${banking.settings.refresh-interval:PT30S}",
+            initialDelayString = "${banking.settings.refresh-interval:PT30S}")
+    public void refresh() {
+        SettingRepository.SettingsVersion version = settingRepository.findVersion();
+        Snapshot current = snapshot;
+        if (current == null || !current.matches(version)) {
+            reload(version);
+        }
+        lastChecked = Instant.now();
+    }
+
+    private Snapshot reload(SettingRepository.SettingsVersion version) {
+        Map<String, BigDecimal> values = new TreeMap<>();
+        for (Setting setting : settingRepository.findAll()) {
+            values.put(setting.getName(), setting.getValue());
+        }
+        Snapshot loaded = new Snapshot(Map.copyOf(values), version.getCount(), version.getLastUpdated(),
+                Instant.now());
+        snapshot = loaded;
+        lastChecked = loaded.loadedAt();
+        log.info("Loaded {} settings (last updated {})", values.size(), loaded.lastUpdated());
+        return loaded;
+    }
+
+    public record Snapshot(Map<String, BigDecimal> values, long count, Instant lastUpdated, Instant loadedAt) {
+        boolean matches(SettingRepository.SettingsVersion version) {
+            return count == version.getCount() && Objects.equals(lastUpdated, version.getLastUpdated());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.banking.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.config.WorkerThreads;
+import com.example.banking.dto.ExportJobRequest;
+import com.example.banking.dto.ExportJobResponse;
+import com.example.banking.dto.ExportJobResponse.Status;
+import com.example.banking.dto.StatementExportRequest.Format;
+import com.example.banking.model.Account;
+import com.example.banking.repository.AccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs long statement exports in the background. Jobs are queued on a small
+ * fixed pool, so at most {@code banking.export.threads} exports hold a
+ * database connection at once and the rest of the Hikari pool stays free
+ * for transfers. Each job streams rows from the cursor to a file in
+ * {@code banking.export.directory}; finished files are kept for
+ * {@code banking.export.retention} and then deleted with their job.
+ *
+ * <p>Jobs live in memory on the node that accepted them, so polls and
+ * downloads must reach the same node.</p>
+ */
+@Service
+public class StatementExportJobService implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(StatementExportJobService.class);
+
+    private final AccountRepository accountRepository;
+    private final StatementExportService statementExportService;
+    private final Path directory;
+    private final Duration retention;
+    private final Clock clock;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Counter rejections;
+
+    @Autowired
+    public StatementExportJobService(AccountRepository accountRepository,
+                                     StatementExportService statementExportService,
+                                     MeterRegistry meterRegistry,
+                                     WorkerThreads workerThreads,
+                                     @Value("${banking.export.directory:${java.io.tmpdir}/banking-exports}") Path directory,
+                                     @Value("${banking.export.threads:2}") int threads,
+                                     @Value("${banking.export.queue-capacity:100}") int queueCapacity,
+                                     @Value("${banking.export.retention:PT1H}") Duration retention) {
+        this(accountRepository, statementExportService, meterRegistry, workerThreads, directory, threads, queueCapacity,
+                retention, Clock.systemUTC());
+    }
+
+    StatementExportJobService(AccountRepository accountRepository, StatementExportService statementExportService,
+                              MeterRegistry meterRegistry, WorkerThreads workerThreads, Path directory, int threads,
+                              int queueCapacity, Duration retention, Clock clock) {
+        this.accountRepository = accountRepository;
+        this.statementExportService = statementExportService;
+        this.directory = directory;
+        this.retention = retention;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreads.factory("export-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "exports", Tags.empty()).bindTo(meterRegistry);
+        meterRegistry.gaugeMapSize("banking.exports.jobs", Tags.empty(), jobs);
+        this.rejections = meterRegistry.counter("banking.exports.rejected");
+    }
+
+    /**
+     * Queues an export for {@code owner} and returns its initial state. Fails
+     * with {@code 503} when the queue is full.
+     */
+    public ExportJobResponse submit(ExportJobRequest request, String owner) {
+        StatementExportService.checkRange(request.from(), request.to());
+        Account account = accountRepository.findByAccountNumber(request.accountNumber())
+                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND));
+        Format format = request.format() == null ? Format.CSV : request.format();
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), owner, account.getId(), request.accountNumber(),
+                request.from(), request.to(), format, clock.instant());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            rejections.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ErrorMessages.EXPORT_BUSY);
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Returns the state of {@code id}. Jobs belonging to someone else are
+     * reported as not found.
+     */
+    public ExportJobResponse status(String id, String owner) {
+        return find(id, owner).toResponse();
+    }
+
+    /**
+     * Returns the finished file of {@code id}, or fails with {@code 409} while
+     * the job is still queued or running.
+     */
+    public Path file(String id, String owner) {
+        ExportJob job = find(id, owner);
+        if (job.status != Status.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, ErrorMessages.EXPORT_NOT_READY);
+        }
+        return job.file;
+    }
+
+    private ExportJob find(String id, String owner) {
+        ExportJob job = jobs.get(id);
+        if (job == null || !job.owner.equals(owner)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ErrorMessages.EXPORT_NOT_FOUND);
+        }
+        return job;
+    }
+
+    void run(ExportJob job) {
+        job.status = Status.RUNNING;
+        Path target = directory.resolve(job.id + "." + job.format.name().toLowerCase());
+        Path partial = directory.resolve(job.id + ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                statementExportService.write(job.accountId, job.from, job.to, job.format, out);
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            job.file = target;
+            job.completedAt = clock.instant();
+            job.status = Status.COMPLETED;
+        } catch (IllegalArgumentException e) {
+            fail(job, partial, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Export {} for account {} failed", job.id, job.accountNumber, e);
+            fail(job, partial, ErrorMessages.EXPORT_FAILED);
+        }
+    }
+
+    private void fail(ExportJob job, Path partial, String error) {
+        deleteQuietly(partial);
+        job.error = error;
+        job.completedAt = clock.instant();
+        job.status = Status.FAILED;
+    }
+
+    /**
+     * Drops finished jobs older than the retention period together with their
+     * files.
+     */
+    @Scheduled(fixedDelayString = "${banking.export.cleanup-interval:PT5M}")
+    public void purgeExpired() {
+        Instant cutoff = clock.instant().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (job.completedAt == null || job.completedAt.isAfter(cutoff)) {
+                return false;
+            }
+            if (job.file != null) {
+                deleteQuietly(job.file);
+            }
+            return true;
+        });
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}", path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    static final class ExportJob {
+        final String id;
+        final String owner;
+        final Long accountId;
+        final String accountNumber;
+        final LocalDateTime from;
+        final LocalDateTime to;
+        final Format format;
+        final Instant submittedAt;
+        volatile Status status = Status.QUEUED;
+        volatile Path file;
+        volatile Instant completedAt;
+        volatile String error;
+
+        ExportJob(String id, String owner, Long accountId, String accountNumber, LocalDateTime from,
+                  LocalDateTime to, Format format, Instant submittedAt) {
+            this.id = id;
+            this.owner = owner;
+            this.accountId = accountId;
+            this.accountNumber = accountNumber;
+            this.from = from;
+            this.to = to;
+            this.format = format;
+            this.submittedAt = submittedAt;
+        }
+
+        ExportJobResponse toResponse() {
+            return new ExportJobResponse(id, accountNumber, from, to, format, status, submittedAt, completedAt, error);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.banking.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.dto.StatementExportRequest.Format;
+import com.example.banking.repository.StatementStreamRepository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes statement lines straight from the database cursor to the response,
+ * so memory use does not grow with the number of rows exported. The balance
+ * stored on the rows of striped accounts is provisional, so theirs are
+ * recomputed as they stream, in one read-only snapshot with the rows.
+ */
+@Service
+public class StatementExportService {
+    static final String CSV_HEADER = "date,time,code,channel,debitCredit,balance,remark";
+
+    private final StatementStreamRepository statementStreamRepository;
+    private final ObjectMapper objectMapper;
+    private final AccountStripes accountStripes;
+    private final TransactionTemplate snapshotTemplate;
+
+    public StatementExportService(StatementStreamRepository statementStreamRepository, ObjectMapper objectMapper,
+                                  AccountStripes accountStripes, PlatformTransactionManager transactionManager) {
+        this.statementStreamRepository = statementStreamRepository;
+        this.objectMapper = objectMapper;
+        this.accountStripes = accountStripes;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Returns a body that streams the statement for {@code [from, to)}. The
+     * caller must already have checked ownership and the PIN; the query only
+     * runs once the response starts being written.
+     */
+    public StreamingResponseBody export(Long accountId, LocalDateTime from, LocalDateTime to, Format format) {
+        checkRange(from, to);
+        return out -> write(accountId, from, to, format, out);
+    }
+
+    static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+    }
+
+    void write(Long accountId, LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        if (!accountStripes.hasStripes(accountId)) {
+            write(accountId, from, to, format, out, UnaryOperator.identity());
+            return;
+        }
+        try {
+            snapshotTemplate.executeWithoutResult(status -> {
+                try {
+                    write(accountId, from, to, format, out, accountStripes.runningBalancesFrom(accountId, from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void write(Long accountId, LocalDateTime from, LocalDateTime to, Format format, OutputStream out,
+                       UnaryOperator<StatementEntry> balances) throws IOException {
+        if (format == Format.CSV) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            forEach(accountId, from, to, balances, entry -> writeCsv(writer, entry));
+            writer.flush();
+        } else {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            forEach(accountId, from, to, balances, entry -> {
+                try {
+                    writer.writeValue(generator, entry);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        }
+    }
+
+    private void forEach(Long accountId, LocalDateTime from, LocalDateTime to, UnaryOperator<StatementEntry> balances,
+                         Consumer<StatementEntry> action) {
+        statementStreamRepository.forEach(accountId, from, to, entry -> action.accept(balances.apply(entry)));
+    }
+
+    private static void writeCsv(Writer writer, StatementEntry entry) {
+        try {
+            writer.write(entry.date());
+            writer.write(',');
+            writer.write(entry.time());
+            writer.write(',');
+            writer.write(entry.code());
+            writer.write(',');
+            writer.write(entry.channel());
+            writer.write(',');
+            writer.write(entry.debitCredit().toPlainString());
+            writer.write(',');
+            writer.write(entry.balance().toPlainString());
+            writer.write(',');
+            writer.write(csvField(entry.remark()));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.banking.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.mapper.TransactionMapper;
+import com.example.banking.model.StatementSnapshot;
+import com.example.banking.model.StatementSnapshotId;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.StatementSnapshotRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Freezes the statements of closed months into compressed snapshots and
+ * serves them back. A closed month's statement only changes through a
+ * back-dated correction, which removes the snapshot (see
+ * {@link com.example.banking.repository.StatementSnapshotInvalidator}).
+ */
+@Service
+public class StatementSnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(StatementSnapshotService.class);
+    private static final TypeReference<List<StatementEntry>> ENTRIES = new TypeReference<>() {
+    };
+
+    private final StatementSnapshotRepository snapshotRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final ObjectMapper objectMapper;
+    private final AccountStripes accountStripes;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate readTemplate;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StatementSnapshotService(StatementSnapshotRepository snapshotRepository,
+                                    AccountRepository accountRepository,
+                                    TransactionRepository transactionRepository,
+                                    TransactionMapper transactionMapper,
+                                    ObjectMapper objectMapper,
+                                    AccountStripes accountStripes,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.snapshotRepository = snapshotRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionMapper = transactionMapper;
+        this.objectMapper = objectMapper;
+        this.accountStripes = accountStripes;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.hits = meterRegistry.counter("banking.statements.snapshots", "result", "hit");
+        this.misses = meterRegistry.counter("banking.statements.snapshots", "result", "miss");
+    }
+
+    /**
+     * Returns the frozen statement of {@code accountId} for {@code month}, or
+     * empty if the month has not been frozen.
+     */
+    public Optional<List<StatementEntry>> find(Long accountId, YearMonth month) {
+        Optional<List<StatementEntry>> entries = snapshotRepository
+                .findById(new StatementSnapshotId(accountId, month.atDay(1)))
+                .map(snapshot -> decode(snapshot.getContent()));
+        (entries.isPresent() ? hits : misses).increment();
+        return entries;
+    }
+
+    /**
+     * Freezes the statement of {@code accountId} for {@code month}, replacing
+     * any existing snapshot. The month must be over. The account row is locked
+     * before the month is read, so a back-dated row being written now either
+     * lands before the read or drops the snapshot once this commits (see
+     * {@link com.example.banking.repository.StatementSnapshotInvalidator}).
+     */
+    public void freeze(Long accountId, YearMonth month) {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Only closed months can be frozen");
+        }
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        writeTemplate.executeWithoutResult(status -> {
+            // Taken before the first plain read, which fixes the snapshot this transaction sees.
+            accountRepository.lockBalanceById(accountId);
+            List<StatementEntry> entries = accountStripes.withRunningBalances(accountId, transactionRepository
+                    .findStatementRows(accountId, month.atDay(1).atStartOfDay(), end)
+                    .stream()
+                    .map(transactionMapper::toEntry)
+                    .toList(), end, 0L);
+            snapshotRepository.save(new StatementSnapshot(accountId, month.atDay(1), entries.size(),
+                    encode(entries)));
+        });
+    }
+
+    /**
+     * Freezes {@code month} for every account with activity in it that has no
+     * snapshot yet. Each account is frozen in its own short transaction; a
+     * failure is logged and the account is retried on the next run. Returns
+     * the number of accounts frozen.
+     */
+    public int freezeMonth(YearMonth month) {
+        LocalDate first = month.atDay(1);
+        Set<Long> pending = readTemplate.execute(status -> {
+            Set<Long> ids = new HashSet<>(transactionRepository.findAccountIdsWithActivityBetween(
+                    first.atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay()));
+            snapshotRepository.findAccountIdsByMonth(first).forEach(ids::remove);
+            return ids;
+        });
+        int frozen = 0;
+        for (Long accountId : pending) {
+            try {
+                freeze(accountId, month);
+                frozen++;
+            } catch (DataAccessException e) {
+                log.warn("Could not freeze {} statement for account {}", month, accountId, e);
+            }
+        }
+        return frozen;
+    }
+
+    @Scheduled(cron = "${banking.statements.freeze-cron:0 15 0 1 * *}")
+    public void freezeLastMonth() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        log.info("Froze {} statements for {}", freezeMonth(month), month);
+    }
+
+    byte[] encode(List<StatementEntry> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, entries);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    List<StatementEntry> decode(byte[] content) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return objectMapper.readValue(in, ENTRIES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.banking.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.example.banking.ErrorMessages;
+
+/**
+ * Position in an account's ledger: the sync sequence number of the last row
+ * handed out. Clients only ever see the encoded form and send it back
+ * unchanged.
+ */
+record SyncCursor(long syncSeq) {
+    static final SyncCursor START = new SyncCursor(0);
+
+    String encode() {
+        byte[] raw = Long.toString(syncSeq).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    static SyncCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            long syncSeq = Long.parseLong(raw);
+            if (syncSeq < 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new SyncCursor(syncSeq);
+        } catch (IllegalArgumentException e) {
+            // Covers bad Base64 and bad numbers, which are IllegalArgumentExceptions too.
+            throw new IllegalArgumentException(ErrorMessages.INVALID_SYNC_CURSOR, e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.banking.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.config.WorkerThreads;
+import com.example.banking.model.Account;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Group commit for single transfers. When {@code banking.group-commit.enabled}
+ * is set, transfers arriving within {@code banking.group-commit.window} of
+ * each other, up to {@code banking.group-commit.max-items}, are applied in one
+ * database transaction, so they share one commit and one redo log flush. The
+ * transaction locks every account in the group with a single canonically
+ * ordered {@code SELECT ... FOR UPDATE}, like a batch transfer.
+ *
+ * <p>Each transfer is checked in full before it changes anything, so one
+ * that fails, for example for lack of funds, simply drops out and the rest
+ * commit. Savepoints would roll back the rows but not the loaded entities,
+ * so they are not used; instead a group whose transaction fails in the
+ * database is run again one transfer per transaction, so the failure only
+ * reaches the transfer that causes it.</p>
+ *
+ * <p>A transfer not picked up by a collector thread within the window is
+ * taken back and run on its own by the caller, which bounds the added
+ * latency.</p>
+ */
+@Service
+public class TransferCoalescer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(TransferCoalescer.class);
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final SettingsService settingsService;
+    private final DailyTransferTotalService dailyTransferTotalService;
+    private final AccountCache accountCache;
+    private final AccountStripes accountStripes;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxItems;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService collectors;
+    private final DistributionSummary groupSize;
+    private final Timer addedLatency;
+    private final Counter reruns;
+    private volatile boolean closed;
+
+    public TransferCoalescer(AccountRepository accountRepository,
+                             TransactionRepository transactionRepository,
+                             SettingsService settingsService,
+                             DailyTransferTotalService dailyTransferTotalService,
+                             AccountCache accountCache,
+                             AccountStripes accountStripes,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             WorkerThreads workerThreads,
+                             @Value("${banking.group-commit.enabled:false}") boolean enabled,
+                             @Value("${banking.group-commit.window:PT0.002S}") Duration window,
+                             @Value("${banking.group-commit.max-items:32}") int maxItems,
+                             @Value("${banking.group-commit.threads:2}") int threads) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.settingsService = settingsService;
+        this.dailyTransferTotalService = dailyTransferTotalService;
+        this.accountCache = accountCache;
+        this.accountStripes = accountStripes;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        this.enabled = enabled;
+        this.window = window;
+        this.maxItems = maxItems;
+        this.groupSize = DistributionSummary.builder("banking.group_commit.size").register(meterRegistry);
+        this.addedLatency = Timer.builder("banking.group_commit.wait")
+                .description("Time a transfer waited for its group to start")
+                .register(meterRegistry);
+        this.reruns = meterRegistry.counter("banking.group_commit.reruns");
+        if (enabled) {
+            collectors = Executors.newFixedThreadPool(threads, workerThreads.factory("group-commit-"));
+            for (int i = 0; i < threads; i++) {
+                collectors.execute(this::collect);
+            }
+        } else {
+            collectors = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies the transfer in the next group and returns the sender's state
+     * right after it. Must not be called inside a transaction, which the
+     * group could not join.
+     */
+    public Account transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String citizenId) {
+        Pending pending = new Pending(fromAccountNumber, toAccountNumber, amount, citizenId, System.nanoTime());
+        queue.add(pending);
+        try {
+            try {
+                return pending.result.get(window.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (pending.claim()) {
+                    addedLatency.record(System.nanoTime() - pending.queuedAt, TimeUnit.NANOSECONDS);
+                    run(List.of(pending));
+                }
+                return pending.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Takes the first waiting transfer, then whatever else arrives within
+     * the window, and runs them as one group.
+     */
+    private void collect() {
+        while (!closed) {
+            try {
+                Pending first = queue.take();
+                if (!first.claim()) {
+                    continue;
+                }
+                List<Pending> group = new ArrayList<>(maxItems);
+                group.add(first);
+                long deadline = first.queuedAt + window.toNanos();
+                while (group.size() < maxItems) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.claim()) {
+                        group.add(next);
+                    }
+                }
+                long started = System.nanoTime();
+                group.forEach(p -> addedLatency.record(started - p.queuedAt, TimeUnit.NANOSECONDS));
+                run(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Group commit collector failed", e);
+            }
+        }
+    }
+
+    /**
+     * Applies {@code group} in one transaction and completes every caller,
+     * re-running each transfer on its own if the transaction fails.
+     */
+    void run(List<Pending> group) {
+        groupSize.record(group.size());
+        Map<Pending, Object> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> apply(group));
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.warn("Group of {} transfers failed, running them one by one", group.size(), e);
+            reruns.increment();
+            group.forEach(pending -> run(List.of(pending)));
+            return;
+        }
+        for (Pending pending : group) {
+            Object outcome = outcomes.get(pending);
+            if (outcome instanceof Applied applied) {
+                pending.result.complete(applied.from().withBalance(applied.balance(), applied.from().getVersion()));
+            } else {
+                pending.result.completeExceptionally((RuntimeException) outcome);
+            }
+        }
+    }
+
+    private Map<Pending, Object> apply(List<Pending> group) {
+        Set<String> numbers = new TreeSet<>();
+        group.forEach(pending -> {
+            numbers.add(pending.from);
+            numbers.add(pending.to);
+        });
+        Map<String, Account> locked = accountRepository.findAllByAccountNumberInForUpdate(numbers).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+        BigDecimal limit = settingsService.getDailyTransferLimit();
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> ledger = new ArrayList<>(group.size() * 2);
+        Map<Pending, Object> outcomes = new IdentityHashMap<>();
+        for (Pending pending : group) {
+            try {
+                outcomes.put(pending, apply(pending, locked, limit, today, now, ledger));
+            } catch (IllegalArgumentException e) {
+                outcomes.put(pending, e);
+            }
+        }
+        transactionRepository.saveAll(ledger);
+        for (Account account : locked.values()) {
+            if (accountStripes.hasStripes(account.getId())) {
+                accountCache.evictAfterCommit(account.getAccountNumber());
+            } else {
+                accountCache.updateAfterCommit(account);
+            }
+        }
+        return outcomes;
+    }
+
+    private Applied apply(Pending pending, Map<String, Account> locked, BigDecimal limit, LocalDate today,
+                          LocalDateTime now, List<Transaction> ledger) {
+        Account from = locked.get(pending.from);
+        Account to = locked.get(pending.to);
+        if (from == null || to == null) {
+            throw new IllegalArgumentException(ErrorMessages.ACCOUNT_NOT_FOUND);
+        }
+        if (!from.getCitizenId().equals(pending.citizenId)) {
+            throw new IllegalArgumentException(ErrorMessages.ACCESS_DENIED);
+        }
+        // Folding writes through a native query, which flushes the group's changes before the refresh.
+        if (from.getBalance().compareTo(pending.amount) < 0 && accountStripes.fold(from.getId())) {
+            accountRepository.refresh(from);
+        }
+        if (from.getBalance().compareTo(pending.amount) < 0) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        dailyTransferTotalService.recordTransfer(from, pending.amount, limit, today);
+
+        from.setBalance(from.getBalance().subtract(pending.amount));
+        BigDecimal balance = from.getBalance();
+        ledger.add(entry(from, TransactionType.TRANSFER_OUT, pending.amount, "To " + pending.to, now));
+        to.setBalance(to.getBalance().add(pending.amount));
+        ledger.add(entry(to, TransactionType.TRANSFER_IN, pending.amount, "From " + pending.from, now));
+        return new Applied(from, balance);
+    }
+
+    private static Transaction entry(Account account, TransactionType type, BigDecimal amount,
+                                     String remark, LocalDateTime now) {
+        Transaction tx = new Transaction();
+        tx.setAccount(account);
+        tx.setTimestamp(now);
+        tx.setType(type);
+        tx.setChannel(TransactionChannel.ONLINE);
+        tx.setAmount(amount);
+        tx.setBalance(account.getBalance());
+        tx.setRemark(remark);
+        return tx;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (collectors != null) {
+            collectors.shutdownNow();
+        }
+    }
+
+    /**
+     * The sender of an applied transfer and its balance right after it;
+     * later transfers in the group may change the entity again.
+     */
+    private record Applied(Account from, BigDecimal balance) {
+    }
+
+    static final class Pending {
+        final String from;
+        final String to;
+        final BigDecimal amount;
+        final String citizenId;
+        final long queuedAt;
+        final CompletableFuture<Account> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Pending(String from, String to, BigDecimal amount, String citizenId, long queuedAt) {
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+            this.citizenId = citizenId;
+            this.queuedAt = queuedAt;
+        }
+
+        /**
+         * Whether the caller or a collector got to run this transfer first.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.banking.ErrorMessages;
 import com.example.banking.dto.RegistrationRequest;
 import com.example.banking.model.User;
 import com.example.banking.model.UserRole;
@@ -34,4 +35,22 @@ public class UserService {
         user.setRole(UserRole.CUSTOMER);
         return userRepository.save(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces the user's PIN. The new BCrypt hash has a fresh salt, so any
+     * step-up tokens issued for the old PIN stop being accepted.
+     */
+    @Transactional
+    public void changePin(String email, String currentPin, String newPin) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new IllegalArgumentException(ErrorMessages.USER_NOT_FOUND));
+        if (currentPin == null || !passwordEncoder.matches(currentPin, user.getPinHash())) {
+            throw new IllegalArgumentException(ErrorMessages.INVALID_PIN);
+        }
+        if (newPin == null || !newPin.matches("\\d{6}")) {
+            throw new IllegalArgumentException("PIN must be six digits");
+        }
+        user.setPinHash(passwordEncoder.encode(newPin));
+        userRepository.save(user);
+    }
+}
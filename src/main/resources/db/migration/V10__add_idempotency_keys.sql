@@ -0,0 +1,13 @@
+-- Responses of transfers and deposits sent with an Idempotency-Key header,
+-- kept so a retried request is answered without being applied twice. The
+-- row is inserted before the request runs and completed in the same
+-- transaction, so committed rows always carry a response.
+CREATE TABLE idempotency_keys (
+    scope           VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    fingerprint     VARCHAR(64)  NOT NULL,
+    response        MEDIUMBLOB,
+    created_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (scope, idempotency_key),
+    INDEX idx_idempotency_keys_created_at (created_at)
+);
@@ -0,0 +1,10 @@
+-- Sub-balances of striped (hot) accounts, see banking.striping.accounts.
+-- Such an account's balance is accounts.balance plus the sum of its stripes;
+-- incoming transfers credit one stripe so they do not queue on the account row.
+CREATE TABLE account_stripes (
+    account_id BIGINT        NOT NULL,
+    stripe     INT           NOT NULL,
+    balance    DECIMAL(19,2) NOT NULL,
+    version    BIGINT        NOT NULL,
+    PRIMARY KEY (account_id, stripe)
+);
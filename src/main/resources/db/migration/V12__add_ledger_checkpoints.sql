@@ -0,0 +1,7 @@
+-- Journal position up to which the memory ledger engine (banking.ledger.engine=MEMORY)
+-- has copied its records into accounts, transactions and daily_transfer_totals.
+-- Written in the same transaction as the rows it covers.
+CREATE TABLE ledger_checkpoints (
+    name     VARCHAR(50) NOT NULL PRIMARY KEY,
+    position BIGINT      NOT NULL
+);
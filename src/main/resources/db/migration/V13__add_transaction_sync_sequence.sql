@@ -0,0 +1,10 @@
+-- Order in which ledger rows became visible, read by the sync endpoint.
+-- Ids and timestamps are taken before commit, so rows can commit out of
+-- that order; LedgerSequencer numbers rows only once they have committed.
+-- Rows written before this migration are numbered by id.
+ALTER TABLE transactions ADD COLUMN sync_seq BIGINT NULL;
+UPDATE transactions SET sync_seq = id;
+CREATE INDEX idx_transactions_account_sync ON transactions (account_id, sync_seq);
+CREATE INDEX idx_transactions_sync_seq ON transactions (sync_seq);
+INSERT INTO ledger_checkpoints (name, position)
+SELECT 'sync-sequence', COALESCE(MAX(sync_seq), 0) FROM transactions;
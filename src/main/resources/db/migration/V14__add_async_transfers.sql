@@ -0,0 +1,20 @@
+-- Transfers accepted for background processing (Prefer: respond-async).
+-- A row is inserted before the transfer is queued and claimed (QUEUED to
+-- RUNNING) when it runs, so transfers still queued when a node stops are
+-- resumed by that node's next start and none is applied twice.
+CREATE TABLE async_transfers (
+    id           VARCHAR(36)   NOT NULL PRIMARY KEY,
+    node         VARCHAR(100)  NOT NULL,
+    owner        VARCHAR(255)  NOT NULL,
+    citizen_id   VARCHAR(255)  NOT NULL,
+    from_account VARCHAR(7)    NOT NULL,
+    to_account   VARCHAR(7)    NOT NULL,
+    amount       DECIMAL(19,2) NOT NULL,
+    status       VARCHAR(20)   NOT NULL,
+    balance      DECIMAL(19,2),
+    error        VARCHAR(255),
+    submitted_at DATETIME(6)   NOT NULL,
+    completed_at DATETIME(6),
+    INDEX idx_async_transfers_node_status (node, status, submitted_at),
+    INDEX idx_async_transfers_completed_at (completed_at)
+);
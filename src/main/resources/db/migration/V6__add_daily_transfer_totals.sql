@@ -0,0 +1,15 @@
+CREATE TABLE daily_transfer_totals (
+    account_id    BIGINT        NOT NULL,
+    business_date DATE          NOT NULL,
+    total_amount  DECIMAL(19,2) NOT NULL,
+    PRIMARY KEY (account_id, business_date)
+);
+
+-- Seed the counters for the days that can still be limited so the first
+-- transfers after the upgrade see the amounts already sent today.
+INSERT INTO daily_transfer_totals (account_id, business_date, total_amount)
+SELECT account_id, DATE(`timestamp`), SUM(amount)
+FROM transactions
+WHERE type = 'TRANSFER_OUT'
+  AND `timestamp` >= CURRENT_DATE - INTERVAL 2 DAY
+GROUP BY account_id, DATE(`timestamp`);
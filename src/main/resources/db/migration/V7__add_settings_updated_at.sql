@@ -0,0 +1,5 @@
+-- Lets every node detect setting changes with one cheap query instead of
+-- re-reading the table.
+ALTER TABLE settings
+    ADD COLUMN updated_at TIMESTAMP(6) NOT NULL
+        DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
@@ -0,0 +1,15 @@
+-- Hibernate emulates sequences with single-row tables on MySQL. Ids are
+-- handed out in blocks of 50 (pooled-lo), so ledger inserts can be batched.
+-- The AUTO_INCREMENT columns are kept; all inserts must now go through JPA
+-- so they take ids from these tables.
+CREATE TABLE transactions_seq (
+    next_val BIGINT NOT NULL
+);
+INSERT INTO transactions_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 1 FROM transactions;
+
+CREATE TABLE accounts_seq (
+    next_val BIGINT NOT NULL
+);
+INSERT INTO accounts_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 1 FROM accounts;
@@ -0,0 +1,10 @@
+-- Frozen statements for closed months: one gzip-compressed JSON array of
+-- statement lines per account and month.
+CREATE TABLE statement_snapshots (
+    account_id      BIGINT     NOT NULL,
+    statement_month DATE       NOT NULL,
+    entry_count     INT        NOT NULL,
+    content         MEDIUMBLOB NOT NULL,
+    created_at      DATETIME(6) NOT NULL,
+    PRIMARY KEY (account_id, statement_month)
+);
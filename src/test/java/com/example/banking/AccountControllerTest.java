@@ -1,27 +1,39 @@
 package com.example.banking;
 
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.example.banking.controller.AccountController;
 import com.example.banking.dto.AccountRequest;
+import com.example.banking.dto.AccountSnapshot;
 import com.example.banking.dto.StatementRequest;
+import com.example.banking.dto.StepUpResponse;
+import com.example.banking.dto.TransferJobResponse;
 import com.example.banking.model.Account;
 import com.example.banking.dto.StatementEntry;
 import com.example.banking.service.AccountService;
+import com.example.banking.service.AsyncTransferService;
+import com.example.banking.service.IdempotencyService;
 import com.example.banking.config.AccountSecurity;
 import com.example.banking.security.JwtService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import static org.mockito.Mockito.*;
 
 @WebMvcTest(AccountController.class)
-@Import(com.example.banking.config.SecurityConfig.class)
+@Import({com.example.banking.config.SecurityConfig.class, SimpleMeterRegistry.class})
 class AccountControllerTest {
 
     @Autowired
@@ -30,8 +42,11 @@ class AccountControllerTest {
     @MockBean
     private AccountService accountService;
 
-
     @MockBean
+    private com.example.banking.service.StatementExportService statementExportService;
+
+
+    @MockBean(name = "accountSecurity")
     private AccountSecurity accountSecurity;
 
     @MockBean
@@ -40,6 +55,17 @@ class AccountControllerTest {
     @MockBean
     private com.example.banking.repository.UserRepository userRepository;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private AsyncTransferService asyncTransferService;
+
+    @BeforeEach
+    void runActionsDirectly() {
+        when(idempotencyService.execute(any(), any(), any(), any()))
+            .thenAnswer(inv -> new IdempotencyService.Result(inv.<Supplier<?>>getArgument(3).get(), false));
+    }
 
     @Test
     void createAccount() throws Exception {
@@ -112,13 +138,11 @@ class AccountControllerTest {
 
     @Test
     void viewOwnAccount() throws Exception {
-        Account account = new Account();
-        account.setAccountNumber("1234567");
-        account.setCitizenId("987654321");
-        account.setBalance(new java.math.BigDecimal("100"));
-        when(accountService.getAccountForUser("1234567", "test@example.com"))
+        AccountSnapshot account = new AccountSnapshot(1L, 4L, "1234567", "987654321", "Thai", "English",
+                new java.math.BigDecimal("100"));
+        when(accountService.getAccountSnapshotForUser("1234567", "test@example.com"))
             .thenReturn(account);
-        when(accountSecurity.isOwner("1234567", "test@example.com")).thenReturn(true);
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
         io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
         claims.put("role", "CUSTOMER");
         when(jwtService.parse("token")).thenReturn(claims);
@@ -126,7 +150,14 @@ class AccountControllerTest {
         mockMvc.perform(MockMvcRequestBuilders.get("/api/accounts/1234567")
                 .header("Authorization", "Bearer token"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
                 .andExpect(jsonPath("$.accountNumber").value("1234567"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/accounts/1234567")
+                .header("Authorization", "Bearer token")
+                .header("If-None-Match", "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 
     @Test
@@ -146,9 +177,12 @@ class AccountControllerTest {
 
         Account account = new Account();
         account.setAccountNumber("1234567");
-        when(accountService.transfer(eq("1234567"), eq("7654321"), any(), eq("test@example.com"), eq("123456")))
+        when(accountService.authorizeTransfer(eq("1234567"), any(), eq("test@example.com"), eq("123456"),
+                isNull()))
+            .thenReturn("111");
+        when(accountService.transferForCitizen(eq("1234567"), eq("7654321"), any(), eq("111")))
             .thenReturn(account);
-        when(accountSecurity.isOwner("1234567", "test@example.com")).thenReturn(true);
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
         io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
         claims.put("role", "CUSTOMER");
         when(jwtService.parse("token")).thenReturn(claims);
@@ -161,6 +195,85 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.accountNumber").value("1234567"));
     }
 
+    @Test
+    void replayedTransferIsMarked() throws Exception {
+        String json = "{\"toAccount\":\"7654321\",\"amount\":50.0,\"pin\":\"123456\"}";
+
+        doReturn(new IdempotencyService.Result(java.util.Map.of("accountNumber", "1234567"), true))
+            .when(idempotencyService).execute(eq("key-1"), eq("test@example.com"),
+                eq(IdempotencyService.fingerprint("transfer", "1234567", "7654321", new java.math.BigDecimal("50"))),
+                any());
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/1234567/transfer")
+                .header("Authorization", "Bearer token")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.accountNumber").value("1234567"));
+        verify(accountService).authorizeTransfer(eq("1234567"), any(), eq("test@example.com"), eq("123456"),
+                isNull());
+        verify(accountService, never()).transferForCitizen(any(), any(), any(), any());
+    }
+
+    @Test
+    void transferPreferringAsyncIsAccepted() throws Exception {
+        String json = "{\"toAccount\":\"7654321\",\"amount\":50.0,\"pin\":\"123456\"}";
+
+        when(asyncTransferService.submit(eq("1234567"), eq("7654321"), any(), eq("test@example.com"), eq("123456"),
+                isNull()))
+            .thenReturn(new TransferJobResponse("job-1", "1234567", "7654321", new java.math.BigDecimal("50"),
+                TransferJobResponse.Status.QUEUED, null, java.time.Instant.now(), null, null));
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/1234567/transfer")
+                .header("Authorization", "Bearer token")
+                .header("Prefer", "respond-async, wait=10")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/transfers/job-1"))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        verifyNoInteractions(accountService);
+    }
+
+    @Test
+    void keyedTransferIgnoresAsyncPreference() throws Exception {
+        String json = "{\"toAccount\":\"7654321\",\"amount\":50.0,\"pin\":\"123456\"}";
+
+        Account account = new Account();
+        account.setAccountNumber("1234567");
+        when(accountService.authorizeTransfer(eq("1234567"), any(), eq("test@example.com"), eq("123456"),
+                isNull()))
+            .thenReturn("111");
+        when(accountService.transferForCitizen(eq("1234567"), eq("7654321"), any(), eq("111")))
+            .thenReturn(account);
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/1234567/transfer")
+                .header("Authorization", "Bearer token")
+                .header("Prefer", "respond-async")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Preference-Applied"))
+                .andExpect(jsonPath("$.accountNumber").value("1234567"));
+        verifyNoInteractions(asyncTransferService);
+    }
+
     @Test
     void tellerCannotTransfer() throws Exception {
         String json = "{\"toAccount\":\"7654321\",\"amount\":50.0,\"pin\":\"123456\"}";
@@ -183,9 +296,9 @@ class AccountControllerTest {
                 "15/12/2023", "10:30", "A0", "ATS", new java.math.BigDecimal("100"),
                 new java.math.BigDecimal("200"), "Deposit");
         java.util.List<com.example.banking.dto.StatementEntry> list = java.util.Collections.singletonList(entry);
-        when(accountService.getStatement(eq("1234567"), eq("test@example.com"), eq("123456"), any()))
+        when(accountService.getStatement(eq("1234567"), eq("test@example.com"), eq("123456"), isNull(), any()))
             .thenReturn(list);
-        when(accountSecurity.isOwner("1234567", "test@example.com")).thenReturn(true);
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
         io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
         claims.put("role", "CUSTOMER");
         when(jwtService.parse("token")).thenReturn(claims);
@@ -211,4 +324,95 @@ class AccountControllerTest {
                 .content(json))
                 .andExpect(status().isForbidden());
     }
-}
\ No newline at end of file
+
+    @Test
+    void stepUpIssuesToken() throws Exception {
+        when(accountService.stepUp("1234567", "test@example.com", "123456"))
+            .thenReturn(new StepUpResponse("step-up", 300));
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/1234567/step-up")
+                .header("Authorization", "Bearer token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"pin\":\"123456\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("step-up"))
+                .andExpect(jsonPath("$.expiresIn").value(300));
+    }
+
+    @Test
+    void transferWithStepUpToken() throws Exception {
+        String json = "{\"toAccount\":\"7654321\",\"amount\":50.0}";
+
+        Account account = new Account();
+        account.setAccountNumber("1234567");
+        when(accountService.authorizeTransfer(eq("1234567"), any(), eq("test@example.com"), isNull(),
+                eq("step-up")))
+            .thenReturn("111");
+        when(accountService.transferForCitizen(eq("1234567"), eq("7654321"), any(), eq("111")))
+            .thenReturn(account);
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/accounts/1234567/transfer")
+                .header("Authorization", "Bearer token")
+                .header("X-Step-Up-Token", "step-up")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1234567"));
+    }
+
+    @Test
+    void viewOwnAccountUsesCitizenIdClaim() throws Exception {
+        AccountSnapshot account = new AccountSnapshot(1L, 0L, "1234567", "987654321", "Thai", "English",
+                java.math.BigDecimal.ZERO);
+        when(accountService.getAccountSnapshot("1234567", "987654321")).thenReturn(account);
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        claims.put("cid", "987654321");
+        claims.put("accts", java.util.List.of("1234567"));
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/accounts/1234567")
+                .header("Authorization", "Bearer token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1234567"));
+        verify(accountService, never()).getAccountSnapshotForUser(any(), any());
+    }
+
+    @Test
+    void exportStatementStreamsCsv() throws Exception {
+        Account account = new Account();
+        account.setAccountNumber("1234567");
+        when(accountService.getAccountForStatement("1234567", "test@example.com", "123456", null))
+            .thenReturn(account);
+        when(statementExportService.export(any(), any(), any(),
+                eq(com.example.banking.dto.StatementExportRequest.Format.CSV)))
+            .thenReturn(out -> out.write("date,time\n".getBytes()));
+        when(accountSecurity.isOwner(eq("1234567"), any(Authentication.class))).thenReturn(true);
+        io.jsonwebtoken.Claims claims = io.jsonwebtoken.Jwts.claims().setSubject("test@example.com");
+        claims.put("role", "CUSTOMER");
+        when(jwtService.parse("token")).thenReturn(claims);
+
+        org.springframework.test.web.servlet.MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/accounts/1234567/statement/export")
+                .header("Authorization", "Bearer token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"from\":\"2025-01-01T00:00:00\",\"to\":\"2025-07-01T00:00:00\","
+                        + "\"format\":\"CSV\",\"pin\":\"123456\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("date,time\n"));
+    }
+}
@@ -17,7 +17,7 @@ import com.example.banking.service.AccountService;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@Testcontainers
+@Testcontainers(disabledWithoutDocker = true)
 @SpringBootTest
 @Transactional
 class AccountServiceIntegrationTest {
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -12,11 +13,15 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.example.banking.controller.RegistrationController;
 import com.example.banking.dto.RegistrationRequest;
 import com.example.banking.model.User;
+import com.example.banking.security.JwtService;
 import com.example.banking.service.UserService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import static org.mockito.Mockito.*;
 
 @WebMvcTest(RegistrationController.class)
+@Import({com.example.banking.config.SecurityConfig.class, SimpleMeterRegistry.class})
 class RegistrationControllerTest {
 
     @Autowired
@@ -25,6 +30,12 @@ class RegistrationControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private JwtService jwtService;
+
+    @MockBean
+    private com.example.banking.repository.UserRepository userRepository;
+
     @Test
     void registerUser() throws Exception {
         String json = "{\"email\":\"test@example.com\",\"password\":\"pass\",\"citizenId\":\"12345\",\"thaiName\":\"Thai\",\"englishName\":\"English\",\"pin\":\"123456\"}";
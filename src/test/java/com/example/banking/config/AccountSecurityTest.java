@@ -3,14 +3,18 @@ package com.example.banking.config;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
 import com.example.banking.model.Account;
 import com.example.banking.model.User;
 import com.example.banking.repository.AccountRepository;
 import com.example.banking.repository.UserRepository;
+import com.example.banking.security.OwnershipClaims;
 
 class AccountSecurityTest {
     @Test
@@ -57,4 +61,44 @@ class AccountSecurityTest {
 
         assertFalse(security.isOwner("A1", "user@test.com"));
     }
+
+    private UsernamePasswordAuthenticationToken auth(OwnershipClaims claims) {
+        UsernamePasswordAuthenticationToken auth =
+                new UsernamePasswordAuthenticationToken("user@test.com", null, List.of());
+        auth.setDetails(claims);
+        return auth;
+    }
+
+    @Test
+    void ownedAccountClaimSkipsDatabase() {
+        AccountRepository accRepo = mock(AccountRepository.class);
+        UserRepository userRepo = mock(UserRepository.class);
+        AccountSecurity security = new AccountSecurity(accRepo, userRepo);
+
+        assertTrue(security.isOwner("A1", auth(new OwnershipClaims("111", Set.of("A1")))));
+        verifyNoInteractions(accRepo, userRepo);
+    }
+
+    @Test
+    void accountOpenedAfterLoginIsCheckedByCitizenId() {
+        AccountRepository accRepo = mock(AccountRepository.class);
+        UserRepository userRepo = mock(UserRepository.class);
+        AccountSecurity security = new AccountSecurity(accRepo, userRepo);
+        when(accRepo.findCitizenIdByAccountNumber("A2")).thenReturn(Optional.of("111"));
+        when(accRepo.findCitizenIdByAccountNumber("B1")).thenReturn(Optional.of("222"));
+
+        assertTrue(security.isOwner("A2", auth(new OwnershipClaims("111", Set.of("A1")))));
+        assertFalse(security.isOwner("B1", auth(new OwnershipClaims("111", Set.of("A1")))));
+        verifyNoInteractions(userRepo);
+    }
+
+    @Test
+    void claimsIgnoredWhenNotTrusted() {
+        AccountRepository accRepo = mock(AccountRepository.class);
+        UserRepository userRepo = mock(UserRepository.class);
+        AccountSecurity security = new AccountSecurity(accRepo, userRepo, false);
+        when(accRepo.findByAccountNumber("A1")).thenReturn(Optional.empty());
+
+        assertFalse(security.isOwner("A1", auth(new OwnershipClaims("111", Set.of("A1")))));
+    }
 }
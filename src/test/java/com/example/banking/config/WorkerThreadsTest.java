@@ -0,0 +1,27 @@
+package com.example.banking.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class WorkerThreadsTest {
+    @Test
+    void platformThreadsUnlessEnabled() {
+        WorkerThreads workerThreads = new WorkerThreads(false);
+
+        Thread thread = workerThreads.factory("worker-").newThread(() -> { });
+
+        assertFalse(workerThreads.isVirtual());
+        assertEquals("worker-1", thread.getName());
+    }
+
+    @Test
+    void virtualThreadsOnlyWhereTheJvmHasThem() {
+        WorkerThreads workerThreads = new WorkerThreads(true);
+
+        Thread thread = workerThreads.factory("worker-").newThread(() -> { });
+
+        assertEquals(Runtime.version().feature() >= 21, workerThreads.isVirtual());
+        assertTrue(thread.getName().startsWith("worker-"));
+    }
+}
@@ -53,4 +53,19 @@ class TransactionMapperTest {
         assertEquals("ATS", entry.channel());
         assertEquals(new BigDecimal("-20"), entry.debitCredit());
     }
+
+    @Test
+    void toEntryMatchesToDto() {
+        Transaction tx = new Transaction();
+        tx.setAccount(new Account());
+        tx.setTimestamp(LocalDateTime.of(2024, 5, 1, 13, 0));
+        tx.setType(TransactionType.TRANSFER_OUT);
+        tx.setChannel(TransactionChannel.ONLINE);
+        tx.setAmount(new BigDecimal("20"));
+        tx.setBalance(new BigDecimal("80"));
+        tx.setRemark("To 123");
+
+        assertEquals(mapper.toDto(tx), mapper.toEntry(tx.getTimestamp(), tx.getType(), tx.getChannel(),
+                tx.getAmount(), tx.getBalance(), tx.getRemark()));
+    }
 }
@@ -0,0 +1,169 @@
+package com.example.banking.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.banking.model.Account;
+import com.example.banking.service.AccountStripes;
+
+/**
+ * Hammers the conditional balance updates from several threads, each in its
+ * own committed READ COMMITTED transaction, on an embedded H2 database.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:accounts;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountRepositoryTest {
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountStripeRepository stripeRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate template;
+    private Account from;
+    private Account to;
+
+    @BeforeEach
+    void setup() {
+        template = new TransactionTemplate(transactionManager);
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        from = accountRepository.save(account("1000001", "100"));
+        to = accountRepository.save(account("1000002", "0"));
+    }
+
+    @AfterEach
+    void cleanup() {
+        stripeRepository.deleteAll();
+        accountRepository.deleteAll();
+    }
+
+    private static Account account(String number, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(number);
+        account.setCitizenId("1" + number);
+        account.setThaiName("Thai");
+        account.setEnglishName("English");
+        account.setBalance(new BigDecimal(balance));
+        return account;
+    }
+
+    @Test
+    void concurrentTransfersNeitherLoseUpdatesNorOverdraw() throws Exception {
+        AtomicInteger moved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        template.executeWithoutResult(status -> {
+                            if (accountRepository.debit(from.getId(), BigDecimal.ONE) == 1) {
+                                accountRepository.credit(to.getId(), BigDecimal.ONE);
+                                moved.incrementAndGet();
+                            }
+                        });
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Account debited = accountRepository.findById(from.getId()).orElseThrow();
+        Account credited = accountRepository.findById(to.getId()).orElseThrow();
+        assertEquals(100, moved.get());
+        assertEquals(0, debited.getBalance().compareTo(BigDecimal.ZERO));
+        assertEquals(0, credited.getBalance().compareTo(new BigDecimal("100")));
+        assertEquals(from.getVersion() + 100, debited.getVersion());
+        assertEquals(to.getVersion() + 100, credited.getVersion());
+    }
+
+    @Test
+    void stripedCreditsAndFoldsNeitherLoseNorDoubleCount() throws Exception {
+        AccountStripes stripes = new AccountStripes(stripeRepository, accountRepository, transactionRepository,
+                transactionManager, Set.of(to.getAccountNumber()), 4);
+        stripes.provision();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                boolean folder = t == 0;
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        template.executeWithoutResult(status -> {
+                            if (folder) {
+                                stripes.fold(to.getId());
+                            } else {
+                                assertTrue(stripes.credit(to, BigDecimal.ONE));
+                            }
+                        });
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Account credited = accountRepository.findById(to.getId()).orElseThrow();
+        AccountStripeRepository.StripeTotals totals = stripeRepository.sumByAccountId(to.getId());
+        assertEquals(4, totals.getStripes());
+        assertEquals(0, credited.getBalance().add(totals.getBalance())
+                .compareTo(BigDecimal.valueOf((THREADS - 1) * ATTEMPTS_PER_THREAD)));
+    }
+
+    @Test
+    void refreshLoadsBalanceWrittenByUpdate() {
+        Account reloaded = template.execute(status -> {
+            Account account = accountRepository.findById(from.getId()).orElseThrow();
+            assertEquals(0, accountRepository.debit(account.getId(), new BigDecimal("101")));
+            assertEquals(1, accountRepository.debit(account.getId(), new BigDecimal("40")));
+            accountRepository.refresh(account);
+            return account;
+        });
+
+        assertEquals(0, reloaded.getBalance().compareTo(new BigDecimal("60")));
+        assertEquals(from.getVersion() + 1, reloaded.getVersion());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.banking.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+
+import com.example.banking.model.Account;
+import com.example.banking.model.StatementSnapshot;
+import com.example.banking.model.StatementSnapshotId;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.service.LedgerSequencer;
+
+/**
+ * Runs the statement and sync queries on an embedded H2 database with
+ * Hibernate statistics enabled to count the SQL it issues.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:repository;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "banking.sync.sequence-batch-size=3"
+})
+@Import({LedgerSequenceRepository.class, LedgerSequencer.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TransactionRepositoryTest {
+    private static final LocalDateTime MAY = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private StatementSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private LedgerSequencer ledgerSequencer;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private Account account;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        account = new Account();
+        account.setAccountNumber("1234567");
+        account.setCitizenId("1111111111111");
+        account.setThaiName("Thai");
+        account.setEnglishName("English");
+        account.setBalance(BigDecimal.ZERO);
+        entityManager.persist(account);
+        ledger(MAY.minusSeconds(1), TransactionType.DEPOSIT, "April");
+        ledger(MAY.plusDays(2), TransactionType.TRANSFER_OUT, "Second");
+        ledger(MAY.plusDays(1), TransactionType.DEPOSIT, "First");
+        ledger(MAY.plusMonths(1), TransactionType.DEPOSIT, "June");
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    private Transaction ledger(LocalDateTime timestamp, TransactionType type, String remark) {
+        Transaction tx = new Transaction();
+        tx.setAccount(account);
+        tx.setTimestamp(timestamp);
+        tx.setType(type);
+        tx.setChannel(TransactionChannel.TELLER);
+        tx.setAmount(BigDecimal.TEN);
+        tx.setBalance(BigDecimal.TEN);
+        tx.setRemark(remark);
+        entityManager.persist(tx);
+        return tx;
+    }
+
+    @Test
+    void statementIsOneQueryWithoutEntities() {
+        List<StatementRow> rows = transactionRepository.findStatementRows(account.getId(), MAY, MAY.plusMonths(1));
+
+        assertEquals(List.of("First", "Second"), rows.stream().map(StatementRow::remark).toList());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void signedSumCountsDebitsNegative() {
+        assertEquals(0, new BigDecimal("10").compareTo(
+                transactionRepository.sumSignedAmountAfter(account.getId(), MAY, 0L)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(
+                transactionRepository.sumSignedAmountAfter(account.getId(), MAY.plusMonths(1).plusSeconds(1), 0L)));
+    }
+
+    @Test
+    void syncPagesInTheOrderRowsWereSequenced() {
+        ledgerSequencer.sequenceCommitted();
+        List<Transaction> seen = transactionRepository.findPageAfter(account, 0L, Pageable.ofSize(10));
+        assertEquals(List.of("April", "Second", "First", "June"), seen.stream().map(Transaction::getRemark).toList());
+        long cursor = seen.get(seen.size() - 1).getSyncSeq();
+
+        // Back-dated and committed after the poll: still after the cursor.
+        account = entityManager.find(Account.class, account.getId());
+        ledger(MAY.minusDays(1), TransactionType.TRANSFER_OUT, "Late");
+        entityManager.flush();
+        assertEquals(0, new BigDecimal("-10").compareTo(
+                transactionRepository.sumSignedAmountAfterSyncSeq(account.getId(), cursor)));
+        assertTrue(transactionRepository.findPageAfter(account, cursor, Pageable.ofSize(10)).isEmpty());
+
+        ledgerSequencer.sequenceCommitted();
+        entityManager.clear();
+        List<Transaction> next = transactionRepository.findPageAfter(account, cursor, Pageable.ofSize(10));
+        assertEquals(List.of("Late"), next.stream().map(Transaction::getRemark).toList());
+        assertEquals(cursor + 1, next.get(0).getSyncSeq());
+    }
+
+    @Test
+    void backDatedLedgerRowDropsSnapshot() {
+        YearMonth closed = YearMonth.now().minusMonths(2);
+        StatementSnapshotId id = new StatementSnapshotId(account.getId(), closed.atDay(1));
+        snapshotRepository.saveAndFlush(new StatementSnapshot(account.getId(), closed.atDay(1), 0, new byte[0]));
+        account = entityManager.find(Account.class, account.getId());
+
+        ledger(closed.atDay(15).atStartOfDay(), TransactionType.DEPOSIT, "Correction");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(snapshotRepository.findById(id).isEmpty());
+    }
+
+    @Test
+    void currentMonthLedgerRowKeepsSnapshots() {
+        YearMonth closed = YearMonth.now().minusMonths(1);
+        StatementSnapshotId id = new StatementSnapshotId(account.getId(), closed.atDay(1));
+        snapshotRepository.saveAndFlush(new StatementSnapshot(account.getId(), closed.atDay(1), 0, new byte[0]));
+        account = entityManager.find(Account.class, account.getId());
+
+        ledger(LocalDateTime.now(), TransactionType.DEPOSIT, "Today");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(snapshotRepository.findById(id).isPresent());
+    }
+}
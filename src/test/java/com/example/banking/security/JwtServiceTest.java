@@ -0,0 +1,107 @@
+package com.example.banking.security;
+
+import com.example.banking.model.UserRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+    private static KeyPair keyPair;
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtService jwtService;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService(keyPair, meterRegistry, 100);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt").tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    void repeatedParseIsServedFromCache() {
+        String token = jwtService.generateToken("a@b.com", UserRole.CUSTOMER);
+
+        Claims first = jwtService.parse(token);
+        Claims second = jwtService.parse(token);
+
+        assertSame(first, second);
+        assertEquals("a@b.com", second.getSubject());
+        assertEquals(1, gets("miss"));
+        assertEquals(1, gets("hit"));
+    }
+
+    @Test
+    void tamperedTokenIsRejectedAfterCachingOriginal() {
+        String token = jwtService.generateToken("a@b.com", UserRole.CUSTOMER);
+        jwtService.parse(token);
+        int dot = token.lastIndexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        // Flip a whole byte; the last base64 character also carries padding bits the decoder ignores.
+        signature[signature.length / 2] ^= 0x01;
+        String tampered = token.substring(0, dot + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+
+        assertThrows(JwtException.class, () -> jwtService.parse(tampered));
+    }
+
+    @Test
+    void expiredTokenIsNotCached() {
+        Instant past = Instant.now().minus(Duration.ofMinutes(5));
+        String token = Jwts.builder()
+                .setSubject("a@b.com")
+                .claim("role", "CUSTOMER")
+                .setExpiration(Date.from(past))
+                .signWith(keyPair.getPrivate(), SignatureAlgorithm.RS256)
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.parse(token));
+        assertThrows(ExpiredJwtException.class, () -> jwtService.parse(token));
+    }
+
+    @Test
+    void scopedTokenIsNotAnAccessToken() {
+        String token = jwtService.generateStepUpToken("a@b.com", "A1", "fp", Duration.ofMinutes(5));
+
+        assertThrows(JwtException.class, () -> jwtService.parse(token));
+        assertEquals("A1", jwtService.parseStepUpToken(token).get("acct"));
+    }
+
+    @Test
+    void customerTokenCarriesOwnershipClaims() {
+        String token = jwtService.generateToken("a@b.com", UserRole.CUSTOMER, "111", List.of("A1", "A2"));
+
+        OwnershipClaims claims = OwnershipClaims.fromClaims(jwtService.parse(token));
+
+        assertEquals("111", claims.citizenId());
+        assertEquals(Set.of("A1", "A2"), claims.accountNumbers());
+        assertNull(OwnershipClaims.fromClaims(
+                jwtService.parse(jwtService.generateToken("t@b.com", UserRole.TELLER))));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.banking.security;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.User;
+import com.example.banking.model.UserRole;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PinVerifierTest {
+    private static KeyPair keyPair;
+
+    private PasswordEncoder passwordEncoder;
+    private JwtService jwtService;
+    private SimpleMeterRegistry meterRegistry;
+    private PinVerifier verifier;
+    private User user;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void setup() {
+        passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.matches("123456", "hash")).thenReturn(true);
+        jwtService = new JwtService(keyPair);
+        meterRegistry = new SimpleMeterRegistry();
+        verifier = new PinVerifier(passwordEncoder, jwtService, meterRegistry, Duration.ofMinutes(5));
+        user = new User();
+        user.setEmail("a@b.com");
+        user.setPinHash("hash");
+    }
+
+    private double verifications(String method) {
+        return meterRegistry.counter("banking.pin.verifications", "method", method).count();
+    }
+
+    @Test
+    void stepUpTokenSkipsBcrypt() {
+        String token = verifier.issueStepUpToken(user, "A1", "123456");
+
+        verifier.verify(user, "A1", null, token);
+        verifier.verify(user, "A1", null, token);
+
+        verify(passwordEncoder, times(1)).matches(any(), any());
+        assertEquals(1, verifications("bcrypt"));
+        assertEquals(2, verifications("step_up"));
+    }
+
+    @Test
+    void stepUpTokenIsBoundToAccount() {
+        String token = verifier.issueStepUpToken(user, "A1", "123456");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> verifier.verify(user, "A2", null, token));
+        assertEquals(ErrorMessages.INVALID_STEP_UP_TOKEN, ex.getMessage());
+    }
+
+    @Test
+    void pinChangeRevokesStepUpToken() {
+        String token = verifier.issueStepUpToken(user, "A1", "123456");
+        user.setPinHash("new-hash");
+
+        assertThrows(IllegalArgumentException.class, () -> verifier.verify(user, "A1", null, token));
+        assertEquals(1, meterRegistry.counter("banking.pin.step_up.rejected").count());
+    }
+
+    @Test
+    void rejectedTokenFallsBackToPin() {
+        verifier.verify(user, "A1", "123456", "garbage");
+
+        assertEquals(1, verifications("bcrypt"));
+        assertEquals(1, meterRegistry.counter("banking.pin.step_up.rejected").count());
+    }
+
+    @Test
+    void wrongPinDoesNotIssueToken() {
+        assertThrows(IllegalArgumentException.class, () -> verifier.issueStepUpToken(user, "A1", "000000"));
+    }
+
+    @Test
+    void stepUpTokenIsNotAnAccessToken() {
+        String token = verifier.issueStepUpToken(user, "A1", "123456");
+
+        assertThrows(JwtException.class, () -> jwtService.parse(token));
+        assertThrows(JwtException.class,
+                () -> jwtService.parseStepUpToken(jwtService.generateToken("a@b.com", UserRole.CUSTOMER)));
+    }
+}
@@ -1,15 +1,63 @@
+package com.example.banking.security;
+
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import com.example.banking.model.UserRole;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 class RateLimitFilterTest {
+    private static final String RULES = "POST /auth/**=ip:2/PT1M,GET /api/accounts/*=subject:5/PT1M";
+
+    private static JwtService jwtService;
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        jwtService = new JwtService(keyPair);
+    }
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private RateLimitFilter filter(String rules, long maxKeys) {
+        return new RateLimitFilter(jwtService, meterRegistry, rules, "subject:100/PT1M", maxKeys, now::get);
+    }
+
+    private static int send(RateLimitFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
 
     @Test
     void blocksWhenLimitExceeded() throws Exception {
-        RateLimitFilter filter = new RateLimitFilter();
+        RateLimitFilter filter = filter(RULES, 1000);
         MockHttpServletRequest req = new MockHttpServletRequest();
 
         // First 100 requests should pass
@@ -27,5 +75,102 @@ class RateLimitFilterTest {
         filter.doFilter(req, res101, chain101);
         assertEquals(429, res101.getStatus(),
                 "101st request should be rate-limited");
+        assertEquals("1", res101.getHeader("Retry-After"));
+    }
+
+    @Test
+    void routesHaveTheirOwnLimits() throws Exception {
+        RateLimitFilter filter = filter(RULES, 1000);
+
+        assertEquals(200, send(filter, request("POST", "/auth/login", "10.0.0.1")));
+        assertEquals(200, send(filter, request("POST", "/auth/login", "10.0.0.1")));
+        assertEquals(429, send(filter, request("POST", "/auth/login", "10.0.0.1")));
+        // Other routes and addresses are counted separately.
+        assertEquals(200, send(filter, request("POST", "/auth/login", "10.0.0.2")));
+        assertEquals(200, send(filter, request("GET", "/api/accounts/1234567", "10.0.0.1")));
+
+        assertEquals(1.0, meterRegistry.get("banking.rate_limit.rejected").tag("rule", "POST /auth/**")
+                .counter().count());
+        assertEquals(0.0, meterRegistry.get("banking.rate_limit.rejected").tag("rule", "default")
+                .counter().count());
+    }
+
+    @Test
+    void customersBehindOneAddressAreLimitedSeparately() throws Exception {
+        RateLimitFilter filter = filter(RULES, 1000);
+        String alice = "Bearer " + jwtService.generateToken("alice@example.com", UserRole.CUSTOMER);
+        String bob = "Bearer " + jwtService.generateToken("bob@example.com", UserRole.CUSTOMER);
+
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = request("GET", "/api/accounts/1234567", "10.0.0.1");
+            request.addHeader("Authorization", alice);
+            assertEquals(200, send(filter, request));
+        }
+        MockHttpServletRequest sixth = request("GET", "/api/accounts/1234567", "10.0.0.1");
+        sixth.addHeader("Authorization", alice);
+        assertEquals(429, send(filter, sixth));
+
+        MockHttpServletRequest other = request("GET", "/api/accounts/7654321", "10.0.0.1");
+        other.addHeader("Authorization", bob);
+        assertEquals(200, send(filter, other));
+        // An invalid token falls back to the address, which has its own bucket.
+        MockHttpServletRequest forged = request("GET", "/api/accounts/1234567", "10.0.0.1");
+        forged.addHeader("Authorization", "Bearer forged");
+        assertEquals(200, send(filter, forged));
+    }
+
+    @Test
+    void combinedKeyCountsEveryPart() throws Exception {
+        RateLimitFilter filter = filter("GET /api/**=ip+subject:1/PT1M", 1000);
+        String alice = "Bearer " + jwtService.generateToken("alice@example.com", UserRole.CUSTOMER);
+        String bob = "Bearer " + jwtService.generateToken("bob@example.com", UserRole.CUSTOMER);
+
+        assertEquals(200, send(filter, authorized(request("GET", "/api/accounts/1", "10.0.0.1"), alice)));
+        assertEquals(429, send(filter, authorized(request("GET", "/api/accounts/1", "10.0.0.1"), alice)));
+        assertEquals(200, send(filter, authorized(request("GET", "/api/accounts/1", "10.0.0.2"), alice)));
+        assertEquals(200, send(filter, authorized(request("GET", "/api/accounts/1", "10.0.0.1"), bob)));
+        assertEquals(200, send(filter, request("GET", "/api/accounts/1", "10.0.0.1")));
+        assertEquals(429, send(filter, request("GET", "/api/accounts/1", "10.0.0.1")));
+    }
+
+    private static MockHttpServletRequest authorized(MockHttpServletRequest request, String authorization) {
+        request.addHeader("Authorization", authorization);
+        return request;
+    }
+
+    @Test
+    void bucketRefillsOverThePeriod() throws Exception {
+        RateLimitFilter filter = filter(RULES, 1000);
+        send(filter, request("POST", "/auth/login", "10.0.0.1"));
+        send(filter, request("POST", "/auth/login", "10.0.0.1"));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request("POST", "/auth/login", "10.0.0.1"), rejected, new MockFilterChain());
+        assertEquals(429, rejected.getStatus());
+        assertEquals("30", rejected.getHeader("Retry-After"));
+
+        // One request comes back every 30 seconds.
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(200, send(filter, request("POST", "/auth/login", "10.0.0.1")));
+        assertEquals(429, send(filter, request("POST", "/auth/login", "10.0.0.1")));
+    }
+
+    @Test
+    void keepsABoundedNumberOfBuckets() throws Exception {
+        RateLimitFilter filter = filter(RULES, 100);
+        for (int i = 0; i < 1000; i++) {
+            send(filter, request("GET", "/api/accounts/1234567", "10.0." + (i >> 8) + "." + (i & 255)));
+        }
+        assertTrue(filter.bucketCount() <= 100);
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1) + 1);
+        assertEquals(0, filter.bucketCount());
+    }
+
+    @Test
+    void invalidRuleIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> filter("POST /auth/**=user:20/PT1M", 1000));
+        assertThrows(IllegalArgumentException.class, () -> filter("/auth/**=ip:0/PT1M", 1000));
+        assertThrows(IllegalArgumentException.class, () -> filter("/auth/**=ip", 1000));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.banking.dto.AccountSnapshot;
+import com.example.banking.model.Account;
+
+class AccountCacheTest {
+    private AccountCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new AccountCache(100, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static AccountSnapshot snapshot(long version, String balance) {
+        return new AccountSnapshot(1L, version, "1234567", "111", "Thai", "English", new BigDecimal(balance));
+    }
+
+    private AccountSnapshot cached() {
+        return cache.get("1234567", n -> fail("should be cached"));
+    }
+
+    @Test
+    void olderVersionNeverReplacesNewer() {
+        cache.put(snapshot(3, "30"));
+        cache.put(snapshot(2, "20"));
+
+        assertEquals(new BigDecimal("30"), cached().balance());
+    }
+
+    @Test
+    void updateWaitsForCommit() {
+        cache.put(snapshot(1, "10"));
+        TransactionSynchronizationManager.initSynchronization();
+        Account account = new Account();
+        account.setAccountNumber("1234567");
+        account.setCitizenId("111");
+        account.setBalance(new BigDecimal("50"));
+        ReflectionTestUtils.setField(account, "version", 2L);
+
+        cache.updateAfterCommit(account);
+        assertEquals(new BigDecimal("10"), cached().balance());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(new BigDecimal("50"), cached().balance());
+    }
+
+    @Test
+    void loadKeepsNewerVersionStoredMeanwhile() {
+        AccountSnapshot loaded = cache.get("1234567", n -> {
+            cache.put(snapshot(5, "50"));
+            return snapshot(4, "40");
+        });
+
+        assertEquals(new BigDecimal("50"), loaded.balance());
+        assertEquals(new BigDecimal("50"), cached().balance());
+    }
+
+    @Test
+    void loadOverlappingEvictionIsNotStored() {
+        AccountSnapshot loaded = cache.get("1234567", n -> {
+            cache.evictAfterCommit("1234567");
+            return snapshot(4, "40");
+        });
+
+        assertEquals(new BigDecimal("40"), loaded.balance());
+        assertEquals(new BigDecimal("41"), cache.get("1234567", n -> snapshot(4, "41")).balance());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.banking.model.Account;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AccountConcurrencyTest {
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private AccountConcurrency concurrency(AccountConcurrency.Mode mode) {
+        return new AccountConcurrency(transactionManager, meterRegistry, mode, 3, Duration.ofMillis(1));
+    }
+
+    private static Runnable conflictUntil(AtomicInteger attempts, int succeedOn) {
+        return () -> {
+            if (attempts.incrementAndGet() < succeedOn) {
+                throw new ObjectOptimisticLockingFailureException(Account.class, 1L);
+            }
+        };
+    }
+
+    @Test
+    void optimisticModeRetriesVersionConflicts() {
+        AtomicInteger attempts = new AtomicInteger();
+        Runnable work = conflictUntil(attempts, 3);
+
+        String result = concurrency(AccountConcurrency.Mode.OPTIMISTIC).execute(() -> {
+            work.run();
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.counter("banking.concurrency.retries", "mode", "OPTIMISTIC").count());
+        verify(transactionManager, atLeastOnce()).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_READ_COMMITTED));
+    }
+
+    @Test
+    void optimisticModeGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        Runnable work = conflictUntil(attempts, Integer.MAX_VALUE);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> concurrency(AccountConcurrency.Mode.OPTIMISTIC).execute(() -> {
+                    work.run();
+                    return null;
+                }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void pessimisticModeRunsOnceAtSerializable() {
+        AtomicInteger attempts = new AtomicInteger();
+        Runnable work = conflictUntil(attempts, Integer.MAX_VALUE);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> concurrency(AccountConcurrency.Mode.PESSIMISTIC).execute(() -> {
+                    work.run();
+                    return null;
+                }));
+        assertEquals(1, attempts.get());
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_SERIALIZABLE));
+    }
+}
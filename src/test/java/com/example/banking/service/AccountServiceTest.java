@@ -1,23 +1,38 @@
 package com.example.banking.service;
 
+import com.example.banking.ErrorMessages;
 import com.example.banking.dto.AccountRequest;
 import com.example.banking.dto.StatementEntry;
+import com.example.banking.dto.TransactionSyncResponse;
 import com.example.banking.mapper.AccountMapperImpl;
 import com.example.banking.mapper.TransactionMapperImpl;
 import com.example.banking.model.*;
 import com.example.banking.repository.AccountRepository;
-import com.example.banking.repository.SettingRepository;
+import com.example.banking.repository.AccountStripeRepository;
 import com.example.banking.repository.TransactionRepository;
 import com.example.banking.repository.UserRepository;
+import com.example.banking.security.JwtService;
+import com.example.banking.security.PinVerifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.mockito.InOrder;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,8 +41,13 @@ class AccountServiceTest {
     private AccountRepository accountRepository;
     private UserRepository userRepository;
     private TransactionRepository transactionRepository;
-    private SettingRepository settingRepository;
+    private SettingsService settingsService;
     private PasswordEncoder passwordEncoder;
+    private DailyTransferTotalService dailyTransferTotalService;
+    private StatementSnapshotService statementSnapshotService;
+    private PlatformTransactionManager transactionManager;
+    private AccountStripeRepository stripeRepository;
+    private AccountStripes accountStripes;
     private AccountService service;
 
     @BeforeEach
@@ -35,21 +55,39 @@ class AccountServiceTest {
         accountRepository = mock(AccountRepository.class);
         userRepository = mock(UserRepository.class);
         transactionRepository = mock(TransactionRepository.class);
-        settingRepository = mock(SettingRepository.class);
+        settingsService = mock(SettingsService.class);
         passwordEncoder = mock(PasswordEncoder.class);
         when(passwordEncoder.matches(any(), any())).thenReturn(true);
-        when(transactionRepository.sumAmountByAccountAndTypeAndTimestampBetween(any(), any(), any(), any()))
-                .thenReturn(BigDecimal.ZERO);
-        when(settingRepository.findById("DAILY_TRANSFER_LIMIT")).thenReturn(Optional.of(limit(50000)));
-        service = new AccountService(accountRepository, userRepository, transactionRepository,
-                passwordEncoder, new AccountMapperImpl(), new TransactionMapperImpl(), settingRepository);
+        dailyTransferTotalService = mock(DailyTransferTotalService.class);
+        statementSnapshotService = mock(StatementSnapshotService.class);
+        when(settingsService.getDailyTransferLimit()).thenReturn(new BigDecimal("50000"));
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        stripeRepository = mock(AccountStripeRepository.class);
+        accountStripes = new AccountStripes(stripeRepository, accountRepository, transactionRepository,
+                transactionManager, Set.of("M1"), 4);
+        service = service(AccountConcurrency.Mode.PESSIMISTIC);
     }
 
-    private Setting limit(double amount) {
-        Setting s = new Setting();
-        s.setName("DAILY_TRANSFER_LIMIT");
-        s.setValue(BigDecimal.valueOf(amount));
-        return s;
+    private AccountService service(AccountConcurrency.Mode mode) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccountCache accountCache = new AccountCache(100, Duration.ofMinutes(1));
+        JpaLedgerEngine ledgerEngine = new JpaLedgerEngine(accountRepository, transactionRepository, settingsService,
+                dailyTransferTotalService, accountCache,
+                new AccountConcurrency(transactionManager, meterRegistry, mode, 3, Duration.ZERO), accountStripes,
+                mock(TransferCoalescer.class));
+        return new AccountService(accountRepository, userRepository, transactionRepository,
+                new PinVerifier(passwordEncoder, mock(JwtService.class), meterRegistry, Duration.ofMinutes(5)),
+                new AccountMapperImpl(), new TransactionMapperImpl(), statementSnapshotService, accountCache,
+                accountStripes, ledgerEngine);
+    }
+
+    private Account account(String number, String citizenId, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(number);
+        account.setCitizenId(citizenId);
+        account.setBalance(new BigDecimal(balance));
+        return account;
     }
 
     @Test
@@ -70,6 +108,7 @@ class AccountServiceTest {
     @Test
     void depositUpdatesBalanceAndLogsTx() {
         Account acc = new Account();
+        acc.setAccountNumber("123");
         acc.setBalance(new BigDecimal("10"));
         when(accountRepository.findByAccountNumberForUpdate("123"))
                 .thenReturn(Optional.of(acc));
@@ -92,22 +131,19 @@ class AccountServiceTest {
         user.setPinHash("pin");
         when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
         when(passwordEncoder.matches("123456", "pin")).thenReturn(true);
-        when(transactionRepository.findByAccountAndTimestampBetweenOrderByTimestampAsc(any(), any(), any()))
+        when(transactionRepository.findStatementRows(any(), any(), any()))
                 .thenReturn(List.of());
         List<StatementEntry> list = service.getStatement("123", "a@b.com", "123456", YearMonth.now());
         assertTrue(list.isEmpty());
+        verify(userRepository, times(1)).findByEmail("a@b.com");
     }
 
     @Test
     void transferMovesFundsAndLogs() {
-        Account from = new Account();
-        from.setCitizenId("111");
-        from.setBalance(new BigDecimal("100"));
-        Account to = new Account();
-        when(accountRepository.findByAccountNumberForUpdate("A1"))
-                .thenReturn(Optional.of(from));
-        when(accountRepository.findByAccountNumberForUpdate("A2"))
-                .thenReturn(Optional.of(to));
+        Account from = account("A1", "111", "100");
+        Account to = account("A2", null, "0");
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("A1", "A2")))
+                .thenReturn(List.of(from, to));
         User usr = new User();
         usr.setEmail("user@ex.com");
         usr.setPassword("pass");
@@ -125,17 +161,160 @@ class AccountServiceTest {
         assertEquals(new BigDecimal("80"), from.getBalance());
         assertEquals(new BigDecimal("20"), to.getBalance());
         verify(transactionRepository, times(2)).save(any(Transaction.class));
+        verify(dailyTransferTotalService).recordTransfer(eq(from), eq(new BigDecimal("20")), any(), any());
+    }
+
+    @Test
+    void optimisticTransferReadsWithoutLocksAndChecksLimitAfterUpdate() {
+        service = service(AccountConcurrency.Mode.OPTIMISTIC);
+        Account from = account("A1", "111", "100");
+        Account to = account("A2", null, "0");
+        when(accountRepository.findAllByAccountNumberIn(List.of("A1", "A2"))).thenReturn(List.of(from, to));
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        service.transfer("A1", "A2", new BigDecimal("20"), "user@ex.com", "123456");
+
+        assertEquals(new BigDecimal("80"), from.getBalance());
+        assertEquals(new BigDecimal("20"), to.getBalance());
+        verify(accountRepository, never()).findAllByAccountNumberInForUpdate(any());
+        InOrder order = inOrder(accountRepository, dailyTransferTotalService);
+        order.verify(accountRepository).flush();
+        order.verify(dailyTransferTotalService).recordTransfer(eq(from), eq(new BigDecimal("20")), any(), any());
+    }
+
+    @Test
+    void optimisticDepositReadsWithoutLock() {
+        service = service(AccountConcurrency.Mode.OPTIMISTIC);
+        Account acc = account("123", "111", "10");
+        when(accountRepository.findByAccountNumber("123")).thenReturn(Optional.of(acc));
+
+        service.deposit("123", new BigDecimal("5"));
+
+        assertEquals(new BigDecimal("15"), acc.getBalance());
+        verify(accountRepository, never()).findByAccountNumberForUpdate(any());
+    }
+
+    @Test
+    void atomicTransferUpdatesBalancesInSqlAndLogsPostBalances() {
+        service = service(AccountConcurrency.Mode.ATOMIC);
+        Account from = account("B2", "111", "100");
+        ReflectionTestUtils.setField(from, "id", 2L);
+        Account to = account("A1", null, "0");
+        ReflectionTestUtils.setField(to, "id", 1L);
+        when(accountRepository.findAllByAccountNumberIn(List.of("B2", "A1"))).thenReturn(List.of(from, to));
+        when(accountRepository.debit(2L, new BigDecimal("30"))).thenReturn(1);
+        when(accountRepository.credit(1L, new BigDecimal("30"))).thenReturn(1);
+        // Stands in for the re-read after the UPDATEs, with a concurrent deposit already on the sender.
+        doAnswer(i -> {
+            Account refreshed = i.getArgument(0);
+            refreshed.setBalance(refreshed == from ? new BigDecimal("75") : new BigDecimal("30"));
+            return null;
+        }).when(accountRepository).refresh(any());
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        service.transfer("B2", "A1", new BigDecimal("30"), "user@ex.com", "123456");
+
+        InOrder order = inOrder(accountRepository, dailyTransferTotalService);
+        order.verify(accountRepository).credit(1L, new BigDecimal("30"));
+        order.verify(accountRepository).debit(2L, new BigDecimal("30"));
+        order.verify(dailyTransferTotalService).recordTransfer(eq(from), eq(new BigDecimal("30")), any(), any());
+        verify(accountRepository, never()).save(any());
+        ArgumentCaptor<Transaction> txs = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(2)).save(txs.capture());
+        assertEquals(new BigDecimal("75"), txs.getAllValues().get(0).getBalance());
+        assertEquals(new BigDecimal("30"), txs.getAllValues().get(1).getBalance());
+    }
+
+    @Test
+    void atomicTransferRejectsWhenDebitMatchesNoRow() {
+        service = service(AccountConcurrency.Mode.ATOMIC);
+        Account from = account("A1", "111", "100");
+        ReflectionTestUtils.setField(from, "id", 1L);
+        Account to = account("A2", null, "0");
+        ReflectionTestUtils.setField(to, "id", 2L);
+        when(accountRepository.findAllByAccountNumberIn(any())).thenReturn(List.of(from, to));
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> service.transfer("A1", "A2", new BigDecimal("30"), "user@ex.com", "123456"));
+        assertEquals("Insufficient balance", ex.getMessage());
+        verify(accountRepository, never()).credit(any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    private Account stripedMerchant(String citizenId, String balance) {
+        Account merchant = account("M1", citizenId, balance);
+        ReflectionTestUtils.setField(merchant, "id", 9L);
+        when(accountRepository.findByAccountNumber("M1")).thenReturn(Optional.of(merchant));
+        when(stripeRepository.findAccountIds()).thenReturn(List.of(9L));
+        accountStripes.provision();
+        return merchant;
+    }
+
+    @Test
+    void transferToStripedAccountCreditsStripeWithoutLockingIt() {
+        Account merchant = stripedMerchant("222", "500");
+        Account from = account("A1", "111", "100");
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("A1"))).thenReturn(List.of(from));
+        when(stripeRepository.credit(eq(9L), anyInt(), eq(new BigDecimal("30")))).thenReturn(1);
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        service.transfer("A1", "M1", new BigDecimal("30"), "user@ex.com", "123456");
+
+        assertEquals(new BigDecimal("70"), from.getBalance());
+        assertEquals(new BigDecimal("500"), merchant.getBalance());
+        verify(accountRepository, never()).save(merchant);
+        verify(accountRepository, never()).credit(any(), any());
+        verify(stripeRepository).credit(eq(9L), anyInt(), eq(new BigDecimal("30")));
+    }
+
+    @Test
+    void debitFromStripedAccountFoldsStripesWhenRowIsShort() {
+        Account merchant = stripedMerchant("111", "10");
+        Account to = account("A2", null, "0");
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("M1", "A2"))).thenReturn(List.of(merchant, to));
+        when(accountRepository.lockBalanceById(9L)).thenReturn(Optional.of(new BigDecimal("10")));
+        AccountStripe first = new AccountStripe(9L, 0);
+        first.setBalance(new BigDecimal("20"));
+        AccountStripe second = new AccountStripe(9L, 1);
+        second.setBalance(new BigDecimal("5"));
+        when(stripeRepository.findAllByAccountIdForUpdate(9L)).thenReturn(List.of(first, second));
+        doAnswer(i -> {
+            merchant.setBalance(new BigDecimal("35"));
+            return null;
+        }).when(accountRepository).refresh(merchant);
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        service.transfer("M1", "A2", new BigDecimal("30"), "user@ex.com", "123456");
+
+        verify(accountRepository).credit(9L, new BigDecimal("25"));
+        assertEquals(BigDecimal.ZERO, first.getBalance());
+        assertEquals(BigDecimal.ZERO, second.getBalance());
+        assertEquals(new BigDecimal("5"), merchant.getBalance());
+        assertEquals(new BigDecimal("30"), to.getBalance());
     }
 
     @Test
     void transferInvalidPinThrows() {
-        Account from = new Account();
-        from.setCitizenId("111");
-        from.setBalance(new BigDecimal("100"));
-        Account to = new Account();
-        when(accountRepository.findByAccountNumberForUpdate(any()))
-                .thenReturn(Optional.of(from))
-                .thenReturn(Optional.of(to));
+        Account from = account("A1", "111", "100");
+        Account to = account("A2", null, "0");
+        when(accountRepository.findAllByAccountNumberInForUpdate(any()))
+                .thenReturn(List.of(from, to));
         User user = new User();
         user.setCitizenId("111");
         user.setPinHash("pin");
@@ -148,23 +327,69 @@ class AccountServiceTest {
 
     @Test
     void transferOverDailyLimitThrows() {
-        Account from = new Account();
-        from.setCitizenId("111");
-        from.setBalance(new BigDecimal("1000"));
-        Account to = new Account();
-        when(accountRepository.findByAccountNumberForUpdate(any()))
-                .thenReturn(Optional.of(from))
-                .thenReturn(Optional.of(to));
+        Account from = account("A1", "111", "1000");
+        Account to = account("A2", null, "0");
+        when(accountRepository.findAllByAccountNumberInForUpdate(any()))
+                .thenReturn(List.of(from, to));
         User user = new User();
         user.setCitizenId("111");
         user.setPinHash("pin");
         when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
         when(passwordEncoder.matches("123456", "pin")).thenReturn(true);
-        when(transactionRepository.sumAmountByAccountAndTypeAndTimestampBetween(any(), any(), any(), any()))
-                .thenReturn(new BigDecimal("49999"));
+        doThrow(new IllegalArgumentException(ErrorMessages.DAILY_LIMIT_EXCEEDED))
+                .when(dailyTransferTotalService).recordTransfer(eq(from), any(), any(), any());
 
         assertThrows(IllegalArgumentException.class,
                 () -> service.transfer("A1", "A2", new BigDecimal("100"), "user@ex.com", "123456"));
+        assertEquals(new BigDecimal("1000"), from.getBalance());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transferLocksBothAccountsInOneQuery() {
+        Account from = account("B2", "111", "100");
+        Account to = account("A1", null, "0");
+        when(accountRepository.findAllByAccountNumberInForUpdate(any()))
+                .thenReturn(List.of(to, from));
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        service.transfer("B2", "A1", new BigDecimal("30"), "user@ex.com", "123456");
+
+        verify(accountRepository).findAllByAccountNumberInForUpdate(List.of("B2", "A1"));
+        verify(accountRepository, never()).findByAccountNumberForUpdate(any());
+        assertEquals(new BigDecimal("70"), from.getBalance());
+        assertEquals(new BigDecimal("30"), to.getBalance());
+    }
+
+    @Test
+    void transferToUnknownAccountThrows() {
+        Account from = account("A1", "111", "100");
+        when(accountRepository.findAllByAccountNumberInForUpdate(any()))
+                .thenReturn(List.of(from));
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> service.transfer("A1", "A9", new BigDecimal("10"), "user@ex.com", "123456"));
+        assertEquals(ErrorMessages.ACCOUNT_NOT_FOUND, ex.getMessage());
+    }
+
+    @Test
+    void transferChecksPinBeforeLocking() {
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("bad", "pin")).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.transfer("A1", "A2", new BigDecimal("10"), "user@ex.com", "bad"));
+        verify(accountRepository, never()).findAllByAccountNumberInForUpdate(any());
     }
 
     @Test
@@ -179,4 +404,126 @@ class AccountServiceTest {
         assertThrows(IllegalArgumentException.class,
                 () -> service.getAccountForUser("A1", "user@ex.com"));
     }
-}
\ No newline at end of file
+
+    private Transaction ledgerRow(Account account, long id, LocalDateTime timestamp, long syncSeq) {
+        Transaction tx = new Transaction();
+        ReflectionTestUtils.setField(tx, "id", id);
+        ReflectionTestUtils.setField(tx, "syncSeq", syncSeq);
+        tx.setAccount(account);
+        tx.setTimestamp(timestamp);
+        tx.setType(TransactionType.DEPOSIT);
+        tx.setChannel(TransactionChannel.TELLER);
+        tx.setAmount(BigDecimal.ONE);
+        tx.setBalance(BigDecimal.ONE);
+        return tx;
+    }
+
+    private Account syncableAccount() {
+        Account acc = account("123", "111", "0");
+        when(accountRepository.findByAccountNumber("123")).thenReturn(Optional.of(acc));
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(user));
+        return acc;
+    }
+
+    @Test
+    void syncReturnsPageAndCursorAfterLastRow() {
+        Account acc = syncableAccount();
+        LocalDateTime t = LocalDateTime.of(2025, 5, 1, 10, 0);
+        // Committed in a different order than their ids and timestamps.
+        when(transactionRepository.findPageAfter(eq(acc), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(ledgerRow(acc, 2, t, 11), ledgerRow(acc, 1, t.minusSeconds(1), 12),
+                        ledgerRow(acc, 3, t.plusMinutes(1), 13)));
+
+        TransactionSyncResponse page = service.syncTransactions("123", "a@b.com", "123456", null, null, 2);
+
+        assertEquals(2, page.entries().size());
+        assertTrue(page.hasMore());
+        assertEquals(new SyncCursor(12), SyncCursor.decode(page.nextCursor()));
+        verify(transactionRepository).findPageAfter(acc, 0L, Pageable.ofSize(3));
+    }
+
+    @Test
+    void syncWithNothingNewEchoesCursor() {
+        Account acc = syncableAccount();
+        String cursor = new SyncCursor(7).encode();
+        when(transactionRepository.findPageAfter(eq(acc), eq(7L), any(Pageable.class))).thenReturn(List.of());
+
+        TransactionSyncResponse page = service.syncTransactions("123", "a@b.com", "123456", null, cursor, null);
+
+        assertTrue(page.entries().isEmpty());
+        assertFalse(page.hasMore());
+        assertEquals(cursor, page.nextCursor());
+    }
+
+    @Test
+    void syncRejectsBadCursorAndLimit() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> service.syncTransactions("123", "a@b.com", "123456", null, "not-a-cursor", null));
+        assertEquals(ErrorMessages.INVALID_SYNC_CURSOR, ex.getMessage());
+        for (String raw : List.of("-1", "2025-05-01T10:00/7")) {
+            String cursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.syncTransactions("123", "a@b.com", "123456", null, cursor, null));
+        }
+        ex = assertThrows(IllegalArgumentException.class,
+                () -> service.syncTransactions("123", "a@b.com", "123456", null, null, 501));
+        assertEquals(ErrorMessages.INVALID_SYNC_LIMIT, ex.getMessage());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void closedMonthIsServedFromSnapshot() {
+        Account acc = syncableAccount();
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        List<StatementEntry> frozen = List.of(new StatementEntry("1/1/2025", "10:00", "A0", "OTC",
+                BigDecimal.ONE, BigDecimal.ONE, null));
+        when(statementSnapshotService.find(acc.getId(), lastMonth)).thenReturn(Optional.of(frozen));
+
+        assertEquals(frozen, service.getStatement("123", "a@b.com", "123456", lastMonth));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void currentMonthIsAlwaysLive() {
+        syncableAccount();
+        when(transactionRepository.findStatementRows(any(), any(), any())).thenReturn(List.of());
+
+        assertTrue(service.getStatement("123", "a@b.com", "123456", YearMonth.now()).isEmpty());
+        verifyNoInteractions(statementSnapshotService);
+    }
+
+    @Test
+    void accountSnapshotIsCachedAndRefreshedByTransfer() {
+        Account from = account("A1", "111", "100");
+        Account to = account("A2", "222", "0");
+        when(accountRepository.findByAccountNumber("A1")).thenReturn(Optional.of(from));
+        assertEquals(new BigDecimal("100"), service.getAccountSnapshot("A1", "111").balance());
+        assertEquals(new BigDecimal("100"), service.getAccountSnapshot("A1", "111").balance());
+        verify(accountRepository, times(1)).findByAccountNumber("A1");
+
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("A1", "A2")))
+                .thenReturn(List.of(from, to));
+        User usr = new User();
+        usr.setCitizenId("111");
+        usr.setPinHash("pin");
+        when(userRepository.findByEmail("a@b.com")).thenReturn(Optional.of(usr));
+        service.transfer("A1", "A2", new BigDecimal("30"), "a@b.com", "123456");
+
+        assertEquals(new BigDecimal("70"), service.getAccountSnapshot("A1", "111").balance());
+        verify(accountRepository, times(1)).findByAccountNumber("A1");
+    }
+
+    @Test
+    void cachedAccountStillChecksOwner() {
+        when(accountRepository.findByAccountNumber("A1")).thenReturn(Optional.of(account("A1", "111", "100")));
+        service.getAccountSnapshot("A1", "111");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> service.getAccountSnapshot("A1", "999"));
+        assertEquals(ErrorMessages.ACCESS_DENIED, ex.getMessage());
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.banking.dto.AccountSnapshot;
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.model.Account;
+import com.example.banking.model.AccountStripe;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.AccountStripeRepository;
+import com.example.banking.repository.TransactionRepository;
+
+class AccountStripesTest {
+    private static final LocalDateTime END = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    private AccountStripeRepository stripeRepository;
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private AccountStripes stripes;
+    private Account merchant;
+
+    @BeforeEach
+    void setup() {
+        stripeRepository = mock(AccountStripeRepository.class);
+        accountRepository = mock(AccountRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        stripes = new AccountStripes(stripeRepository, accountRepository, transactionRepository,
+                transactionManager, Set.of("M1"), 3);
+        merchant = new Account();
+        merchant.setAccountNumber("M1");
+        merchant.setBalance(new BigDecimal("100"));
+        ReflectionTestUtils.setField(merchant, "id", 9L);
+        ReflectionTestUtils.setField(merchant, "version", 4L);
+        when(accountRepository.findByAccountNumber("M1")).thenReturn(Optional.of(merchant));
+        when(stripeRepository.findStripesByAccountId(9L)).thenReturn(List.of(0));
+        when(stripeRepository.findAccountIds()).thenReturn(List.of(9L));
+    }
+
+    @Test
+    void provisionCreatesMissingStripes() {
+        stripes.provision();
+
+        verify(stripeRepository, times(2)).saveAndFlush(any(AccountStripe.class));
+        assertTrue(stripes.hasStripes(9L));
+        assertTrue(stripes.isStriped("M1"));
+        assertFalse(stripes.isStriped("A1"));
+    }
+
+    @Test
+    void creditFallsBackToAccountUntilProvisioned() {
+        assertFalse(stripes.credit(merchant, BigDecimal.TEN));
+        verify(stripeRepository, never()).credit(any(), anyInt(), any());
+
+        stripes.provision();
+        when(stripeRepository.credit(eq(9L), anyInt(), eq(BigDecimal.TEN))).thenReturn(1);
+
+        assertTrue(stripes.credit(merchant, BigDecimal.TEN));
+    }
+
+    @Test
+    void accountNoLongerConfiguredIsFoldedBack() {
+        when(stripeRepository.findAccountIds()).thenReturn(List.of(9L, 7L));
+        when(accountRepository.lockBalanceById(7L)).thenReturn(Optional.of(BigDecimal.ZERO));
+        AccountStripe leftover = new AccountStripe(7L, 0);
+        leftover.setBalance(new BigDecimal("12.50"));
+        when(stripeRepository.findAllByAccountIdForUpdate(7L)).thenReturn(List.of(leftover));
+
+        stripes.provision();
+
+        verify(accountRepository).credit(7L, new BigDecimal("12.50"));
+        verify(accountRepository, never()).credit(eq(9L), any());
+        assertEquals(BigDecimal.ZERO, leftover.getBalance());
+    }
+
+    @Test
+    void snapshotAddsStripesToBalanceAndVersion() {
+        stripes.provision();
+        when(stripeRepository.sumByAccountId(9L)).thenReturn(totals("3", "25.00", 11));
+
+        AccountSnapshot snapshot = stripes.snapshot(merchant);
+
+        assertEquals(new BigDecimal("125.00"), snapshot.balance());
+        assertEquals(15L, snapshot.version());
+    }
+
+    @Test
+    void runningBalancesAreRecomputedFromCurrentTotal() {
+        stripes.provision();
+        when(accountRepository.findBalanceById(9L)).thenReturn(Optional.of(new BigDecimal("100")));
+        when(stripeRepository.sumByAccountId(9L)).thenReturn(totals("3", "60", 3));
+        // 20 was credited after the statement period.
+        when(transactionRepository.sumSignedAmountAfter(9L, END, 0L)).thenReturn(new BigDecimal("20"));
+        List<StatementEntry> entries = List.of(
+                entry("50", "999"),
+                entry("-30", "999"),
+                entry("10", "999"));
+
+        List<StatementEntry> rebalanced = stripes.withRunningBalances(9L, entries, END, 0L);
+
+        assertEquals(List.of(new BigDecimal("160"), new BigDecimal("130"), new BigDecimal("140")),
+                rebalanced.stream().map(StatementEntry::balance).toList());
+    }
+
+    @Test
+    void streamedBalancesRunForwardFromOpeningBalance() {
+        stripes.provision();
+        when(accountRepository.findBalanceById(9L)).thenReturn(Optional.of(new BigDecimal("100")));
+        when(stripeRepository.sumByAccountId(9L)).thenReturn(totals("3", "60", 3));
+        // 50 was booked from the start of the export on: 110 before it.
+        when(transactionRepository.sumSignedAmountAfter(9L, END, 0L)).thenReturn(new BigDecimal("50"));
+
+        UnaryOperator<StatementEntry> balances = stripes.runningBalancesFrom(9L, END);
+
+        assertEquals(new BigDecimal("160"), balances.apply(entry("50", "999")).balance());
+        assertEquals(new BigDecimal("130"), balances.apply(entry("-30", "999")).balance());
+        assertEquals(new BigDecimal("140"), balances.apply(entry("10", "999")).balance());
+    }
+
+    @Test
+    void accountsWithoutStripesKeepStoredBalances() {
+        List<StatementEntry> entries = List.of(entry("50", "50"));
+
+        assertSame(entries, stripes.withRunningBalances(1L, entries, END, 0L));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private static StatementEntry entry(String amount, String balance) {
+        return new StatementEntry("1/5/2025", "09:00", "A3", "ATS", new BigDecimal(amount),
+                new BigDecimal(balance), "");
+    }
+
+    private static AccountStripeRepository.StripeTotals totals(String stripes, String balance, long version) {
+        return new AccountStripeRepository.StripeTotals() {
+            @Override
+            public Long getStripes() {
+                return Long.valueOf(stripes);
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal(balance);
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
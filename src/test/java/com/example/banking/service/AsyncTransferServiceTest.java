@@ -0,0 +1,252 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.config.WorkerThreads;
+import com.example.banking.dto.TransferJobResponse;
+import com.example.banking.dto.TransferJobResponse.Status;
+import com.example.banking.model.Account;
+import com.example.banking.model.AsyncTransfer;
+import com.example.banking.repository.AsyncTransferRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AsyncTransferServiceTest {
+    private static final String OWNER = "alice@example.com";
+    private static final LocalDateTime SUBMITTED = LocalDateTime.of(2025, 1, 1, 23, 0);
+
+    private AccountService accountService;
+    private LedgerEngine ledgerEngine;
+    private AsyncTransferRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private AsyncTransferService service;
+
+    @BeforeEach
+    void setup() {
+        accountService = mock(AccountService.class);
+        when(accountService.authorizeTransfer(any(), any(), eq(OWNER), any(), any())).thenReturn("111");
+        ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngine.joinsTransaction()).thenReturn(true);
+        repository = mock(AsyncTransferRepository.class);
+        when(repository.changeStatus(any(), eq(Status.QUEUED), eq(Status.RUNNING))).thenReturn(1);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        service = new AsyncTransferService(accountService, ledgerEngine, repository, transactionManager,
+                new SimpleMeterRegistry(), new WorkerThreads(false), "node-1", 4, 1, Duration.ZERO,
+                Duration.ofSeconds(5), 3, Duration.ZERO,
+                Clock.fixed(Instant.parse("2025-01-02T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    private static AsyncTransfer stored(String id, Status status) {
+        AsyncTransfer row = new AsyncTransfer(id, "node-1", OWNER, "111", "1234567", "7654321", BigDecimal.TEN,
+                SUBMITTED);
+        ReflectionTestUtils.setField(row, "status", status);
+        return row;
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    private TransferJobResponse await(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            TransferJobResponse job = service.status(id, OWNER);
+            if (job.status() == Status.COMPLETED || job.status() == Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("transfer did not finish");
+        return null;
+    }
+
+    @Test
+    void transferRunsInBackgroundForItsOwner() throws Exception {
+        Account after = new Account();
+        after.setBalance(new BigDecimal("90"));
+        when(ledgerEngine.transfer("1234567", "7654321", BigDecimal.TEN, "111")).thenReturn(after);
+
+        TransferJobResponse job = service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null);
+
+        TransferJobResponse done = await(job.id());
+        assertEquals(Status.COMPLETED, done.status());
+        assertEquals(new BigDecimal("90"), done.balance());
+        verify(repository).save(argThat(row -> row.getId().equals(job.id()) && row.getStatus() == Status.QUEUED
+                && row.getNode().equals("node-1")));
+        verify(repository).finish(eq(job.id()), eq(Status.COMPLETED), eq(new BigDecimal("90")), isNull(), any());
+        // The claim, the transfer and the outcome committed together.
+        verify(transactionManager, times(1)).commit(any());
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.status(job.id(), "mallory@example.com"));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+    }
+
+    @Test
+    void wrongPinIsRejectedBeforeQueueing() {
+        when(accountService.authorizeTransfer(any(), any(), eq(OWNER), eq("0000"), any()))
+                .thenThrow(new IllegalArgumentException(ErrorMessages.INVALID_PIN));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "0000", null));
+        verifyNoInteractions(ledgerEngine);
+    }
+
+    @Test
+    void failedTransferReportsItsReason() throws Exception {
+        when(ledgerEngine.transfer(any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Insufficient balance"));
+
+        TransferJobResponse job = service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null);
+
+        TransferJobResponse done = await(job.id());
+        assertEquals(Status.FAILED, done.status());
+        assertEquals("Insufficient balance", done.error());
+    }
+
+    @Test
+    void transferRolledBackByLockConflictIsRunAgain() throws Exception {
+        when(ledgerEngine.transfer(any(), any(), any(), any()))
+                .thenThrow(new CannotAcquireLockException("deadlock"))
+                .thenReturn(new Account());
+
+        TransferJobResponse job = service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null);
+
+        assertEquals(Status.COMPLETED, await(job.id()).status());
+        verify(ledgerEngine, times(2)).transfer(any(), any(), any(), any());
+        verify(repository, times(2)).changeStatus(job.id(), Status.QUEUED, Status.RUNNING);
+    }
+
+    @Test
+    void engineOutsideTheTransactionCommitsItsClaimFirst() throws Exception {
+        when(ledgerEngine.joinsTransaction()).thenReturn(false);
+        when(ledgerEngine.transfer(any(), any(), any(), any())).thenReturn(new Account());
+
+        TransferJobResponse job = service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null);
+
+        assertEquals(Status.COMPLETED, await(job.id()).status());
+        InOrder order = inOrder(repository, transactionManager, ledgerEngine);
+        order.verify(repository).changeStatus(job.id(), Status.QUEUED, Status.RUNNING);
+        order.verify(transactionManager).commit(any());
+        order.verify(ledgerEngine).transfer(any(), any(), any(), any());
+        order.verify(repository).finish(eq(job.id()), eq(Status.COMPLETED), any(), isNull(), any());
+    }
+
+    @Test
+    void transferClaimedElsewhereIsNotAppliedAgain() throws Exception {
+        when(repository.changeStatus(any(), eq(Status.QUEUED), eq(Status.RUNNING))).thenReturn(0);
+        // The stored row has the outcome once the job has left memory.
+        when(repository.findById(any())).thenAnswer(i -> Optional.of(stored(i.getArgument(0), Status.COMPLETED)));
+
+        TransferJobResponse job = service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null);
+
+        assertEquals(Status.COMPLETED, await(job.id()).status());
+        verify(ledgerEngine, never()).transfer(any(), any(), any(), any());
+    }
+
+    @Test
+    void storedTransfersAreResumedOnStartup() throws Exception {
+        when(repository.findAllByNodeAndStatusInOrderBySubmittedAt("node-1", List.of(Status.QUEUED, Status.RUNNING)))
+                .thenReturn(List.of(stored("queued", Status.QUEUED), stored("claimed", Status.RUNNING)));
+        when(ledgerEngine.transfer("1234567", "7654321", BigDecimal.TEN, "111")).thenReturn(new Account());
+
+        service.resume();
+
+        assertEquals(Status.COMPLETED, await("queued").status());
+        assertEquals(SUBMITTED.toInstant(ZoneOffset.UTC), service.status("queued", OWNER).submittedAt());
+        verify(ledgerEngine, times(1)).transfer(any(), any(), any(), any());
+        // Whether a claimed transfer was applied is unknown, so it is not run again.
+        verify(repository).finish(eq("claimed"), eq(Status.FAILED), isNull(), eq(ErrorMessages.TRANSFER_INTERRUPTED),
+                any());
+    }
+
+    @Test
+    void transfersAreRefusedOnceShuttingDown() {
+        service.close();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(ErrorMessages.TRANSFERS_STOPPING, e.getReason());
+        verifyNoInteractions(repository);
+        verify(accountService, never()).authorizeTransfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void transfersFromOneAccountRunInOrderAndFullPartitionIsRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<BigDecimal> applied = new CopyOnWriteArrayList<>();
+        when(ledgerEngine.transfer(any(), any(), any(), any())).thenAnswer(i -> {
+            release.await();
+            applied.add(i.getArgument(2));
+            return new Account();
+        });
+
+        TransferJobResponse first = service.submit("1234567", "7654321", BigDecimal.ONE, OWNER, "1234", null);
+        // The partition's one worker may not have taken the first transfer off the queue yet.
+        TransferJobResponse second = null;
+        for (int i = 0; i < 500 && second == null; i++) {
+            try {
+                second = service.submit("1234567", "7654321", new BigDecimal("2"), OWNER, "1234", null);
+            } catch (ResponseStatusException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertNotNull(second);
+        ResponseStatusException full = assertThrows(ResponseStatusException.class,
+                () -> service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, full.getStatusCode());
+        // Refused transfers are not left behind to be resumed.
+        ArgumentCaptor<AsyncTransfer> saved = ArgumentCaptor.forClass(AsyncTransfer.class);
+        verify(repository, atLeast(3)).save(saved.capture());
+        ArgumentCaptor<String> deleted = ArgumentCaptor.forClass(String.class);
+        verify(repository, atLeastOnce()).deleteById(deleted.capture());
+        List<String> kept = new ArrayList<>(saved.getAllValues().stream().map(AsyncTransfer::getId).toList());
+        kept.removeAll(deleted.getAllValues());
+        assertEquals(List.of(first.id(), second.id()), kept);
+
+        release.countDown();
+        assertEquals(Status.COMPLETED, await(first.id()).status());
+        assertEquals(Status.COMPLETED, await(second.id()).status());
+        assertEquals(List.of(BigDecimal.ONE, new BigDecimal("2")), applied);
+    }
+
+    @Test
+    void finishedTransfersArePurged() throws Exception {
+        when(ledgerEngine.transfer(any(), any(), any(), any())).thenReturn(new Account());
+        TransferJobResponse job = service.submit("1234567", "7654321", BigDecimal.TEN, OWNER, "1234", null);
+        await(job.id());
+
+        service.purgeExpired();
+
+        assertThrows(ResponseStatusException.class, () -> service.status(job.id(), OWNER));
+        verify(repository).deleteCompletedBefore(LocalDateTime.of(2025, 1, 2, 0, 0));
+    }
+}
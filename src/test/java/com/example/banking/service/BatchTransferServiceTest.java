@@ -0,0 +1,178 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.dto.BatchTransferItem;
+import com.example.banking.dto.BatchTransferRequest;
+import com.example.banking.dto.BatchTransferResponse;
+import com.example.banking.model.Account;
+import com.example.banking.model.Transaction;
+import com.example.banking.model.User;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.AccountStripeRepository;
+import com.example.banking.repository.TransactionRepository;
+import com.example.banking.repository.UserRepository;
+import com.example.banking.security.JwtService;
+import com.example.banking.security.PinVerifier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BatchTransferServiceTest {
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private PasswordEncoder passwordEncoder;
+    private DailyTransferTotalService dailyTransferTotalService;
+    private PlatformTransactionManager txManager;
+    private LedgerEngine ledgerEngine;
+    private BatchTransferService service;
+    private Account from;
+    private Account to1;
+    private Account to2;
+
+    @BeforeEach
+    void setup() {
+        accountRepository = mock(AccountRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.matches("123456", "pin")).thenReturn(true);
+        SettingsService settingsService = mock(SettingsService.class);
+        when(settingsService.getDailyTransferLimit()).thenReturn(new BigDecimal("50000"));
+        dailyTransferTotalService = mock(DailyTransferTotalService.class);
+        txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngine.sharesAccountRows()).thenReturn(true);
+        PinVerifier pinVerifier = new PinVerifier(passwordEncoder, mock(JwtService.class),
+                new SimpleMeterRegistry(), Duration.ofMinutes(5));
+        service = new BatchTransferService(accountRepository, userRepository, transactionRepository, pinVerifier,
+                settingsService, dailyTransferTotalService, new AccountCache(100, Duration.ofMinutes(1)),
+                new AccountStripes(mock(AccountStripeRepository.class), accountRepository, transactionRepository,
+                        txManager, Set.of(), 16),
+                ledgerEngine,
+                txManager,
+                3, 2);
+
+        User user = new User();
+        user.setCitizenId("111");
+        user.setPinHash("pin");
+        when(userRepository.findByEmail("user@ex.com")).thenReturn(Optional.of(user));
+        from = account("A1", "111", "100");
+        to1 = account("B1", "222", "0");
+        to2 = account("C1", "333", "0");
+        when(accountRepository.findAllByAccountNumberInForUpdate(any())).thenAnswer(i -> {
+            java.util.Collection<String> numbers = i.getArgument(0);
+            return List.of(from, to1, to2).stream().filter(a -> numbers.contains(a.getAccountNumber())).toList();
+        });
+    }
+
+    private Account account(String number, String citizenId, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(number);
+        account.setCitizenId(citizenId);
+        account.setBalance(new BigDecimal(balance));
+        return account;
+    }
+
+    private BatchTransferRequest request(BatchTransferRequest.Mode mode, BatchTransferItem... items) {
+        return new BatchTransferRequest("A1", mode, "123456", List.of(items));
+    }
+
+    private BatchTransferItem item(String to, String amount) {
+        return new BatchTransferItem(to, new BigDecimal(amount));
+    }
+
+    @Test
+    void partialBatchAppliesValidItemsInChunks() {
+        BatchTransferResponse response = service.transfer(request(BatchTransferRequest.Mode.PARTIAL,
+                item("B1", "30"), item("C1", "90"), item("C1", "20")), "user@ex.com", null);
+
+        assertEquals(BatchTransferResponse.Status.PARTIAL, response.status());
+        assertEquals(2, response.applied());
+        assertEquals(1, response.failed());
+        assertEquals(BatchTransferResponse.ItemStatus.FAILED, response.items().get(1).status());
+        assertEquals("Insufficient balance", response.items().get(1).error());
+        assertEquals(new BigDecimal("50"), from.getBalance());
+        assertEquals(new BigDecimal("50"), response.balance());
+        verify(passwordEncoder, times(1)).matches(any(), any());
+        verify(accountRepository).findAllByAccountNumberInForUpdate(new TreeSet<>(List.of("A1", "B1", "C1")));
+        verify(accountRepository).findAllByAccountNumberInForUpdate(new TreeSet<>(List.of("A1", "C1")));
+        verify(txManager, times(2)).commit(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ledgerRowsAreSavedTogetherPerChunk() {
+        service.transfer(request(BatchTransferRequest.Mode.ATOMIC, item("B1", "10"), item("C1", "20")),
+                "user@ex.com", null);
+
+        ArgumentCaptor<List<Transaction>> rows = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository, times(1)).saveAll(rows.capture());
+        assertEquals(4, rows.getValue().size());
+        assertEquals(new BigDecimal("90"), rows.getValue().get(0).getBalance());
+        assertEquals(new BigDecimal("70"), rows.getValue().get(2).getBalance());
+    }
+
+    @Test
+    void atomicBatchRollsBackOnFirstFailure() {
+        SimpleTransactionStatus txStatus = new SimpleTransactionStatus();
+        when(txManager.getTransaction(any())).thenReturn(txStatus);
+
+        BatchTransferResponse response = service.transfer(request(BatchTransferRequest.Mode.ATOMIC,
+                item("B1", "30"), item("Z9", "10"), item("C1", "20")), "user@ex.com", null);
+
+        assertEquals(BatchTransferResponse.Status.ROLLED_BACK, response.status());
+        assertEquals(0, response.applied());
+        assertEquals(ErrorMessages.ACCOUNT_NOT_FOUND, response.items().get(1).error());
+        assertEquals(BatchTransferResponse.ItemStatus.NOT_APPLIED, response.items().get(0).status());
+        assertEquals(BatchTransferResponse.ItemStatus.NOT_APPLIED, response.items().get(2).status());
+        assertEquals(new BigDecimal("100"), response.balance());
+        assertTrue(txStatus.isRollbackOnly());
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void oversizedBatchIsRejected() {
+        List<BatchTransferItem> items = Collections.nCopies(4, item("B1", "1"));
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(
+                new BatchTransferRequest("A1", BatchTransferRequest.Mode.PARTIAL, "123456", items),
+                "user@ex.com", null));
+        verifyNoInteractions(passwordEncoder);
+    }
+
+    @Test
+    void wrongPinRejectsWholeBatch() {
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(
+                new BatchTransferRequest("A1", BatchTransferRequest.Mode.PARTIAL, "000000",
+                        List.of(item("B1", "1"))), "user@ex.com", null));
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void batchIsRejectedWhenLedgerEngineOwnsBalances() {
+        when(ledgerEngine.sharesAccountRows()).thenReturn(false);
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> service.transfer(
+                request(BatchTransferRequest.Mode.PARTIAL, item("B1", "1")), "user@ex.com", null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        verifyNoInteractions(accountRepository);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.banking.model.Account;
+import com.example.banking.model.DailyTransferTotal;
+import com.example.banking.model.DailyTransferTotalId;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.DailyTransferTotalRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DailyTransferTotalServiceTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 5, 1);
+
+    private DailyTransferTotalRepository totalRepository;
+    private TransactionRepository transactionRepository;
+    private AccountRepository accountRepository;
+    private DailyTransferTotalService service;
+
+    @BeforeEach
+    void setup() {
+        totalRepository = mock(DailyTransferTotalRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        accountRepository = mock(AccountRepository.class);
+        PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new DailyTransferTotalService(totalRepository, transactionRepository, accountRepository,
+                txManager, new SimpleMeterRegistry(), true, 7);
+    }
+
+    private DailyTransferTotal total(long accountId, String amount) {
+        DailyTransferTotal total = new DailyTransferTotal(accountId, DAY);
+        total.setTotal(new BigDecimal(amount));
+        return total;
+    }
+
+    private TransactionRepository.AccountTotal ledger(long accountId, String amount) {
+        return new TransactionRepository.AccountTotal() {
+            public Long getAccountId() {
+                return accountId;
+            }
+
+            public BigDecimal getTotal() {
+                return new BigDecimal(amount);
+            }
+        };
+    }
+
+    @Test
+    void recordTransferStartsNewCounter() {
+        when(totalRepository.findById(any())).thenReturn(Optional.empty());
+        ArgumentCaptor<DailyTransferTotal> saved = ArgumentCaptor.forClass(DailyTransferTotal.class);
+
+        service.recordTransfer(new Account(), new BigDecimal("100"), new BigDecimal("50000"), DAY);
+
+        verify(totalRepository).save(saved.capture());
+        assertEquals(new BigDecimal("100"), saved.getValue().getTotal());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void recordTransferAddsToExistingCounter() {
+        DailyTransferTotal existing = total(1L, "400");
+        when(totalRepository.findById(any())).thenReturn(Optional.of(existing));
+
+        service.recordTransfer(new Account(), new BigDecimal("100"), new BigDecimal("50000"), DAY);
+
+        assertEquals(new BigDecimal("500"), existing.getTotal());
+    }
+
+    @Test
+    void recordTransferOverLimitThrowsAndLeavesCounter() {
+        DailyTransferTotal existing = total(1L, "49999");
+        when(totalRepository.findById(any())).thenReturn(Optional.of(existing));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.recordTransfer(new Account(), new BigDecimal("2"), new BigDecimal("50000"), DAY));
+        assertEquals(new BigDecimal("49999"), existing.getTotal());
+        verify(totalRepository, never()).save(any());
+    }
+
+    @Test
+    void findMismatchesComparesCountersWithLedger() {
+        when(transactionRepository.sumAmountByTypeAndTimestampBetweenGroupByAccount(any(), any(), any()))
+                .thenReturn(List.of(ledger(1L, "100"), ledger(2L, "200")));
+        when(totalRepository.findByBusinessDate(DAY))
+                .thenReturn(List.of(total(1L, "100"), total(2L, "150"), total(3L, "10")));
+
+        List<DailyTransferTotalService.Mismatch> mismatches = service.findMismatches(DAY);
+
+        assertEquals(List.of(
+                new DailyTransferTotalService.Mismatch(2L, new BigDecimal("150"), new BigDecimal("200")),
+                new DailyTransferTotalService.Mismatch(3L, new BigDecimal("10"), BigDecimal.ZERO)),
+                mismatches);
+    }
+
+    @Test
+    void rebuildAccountResetsCounterFromLedger() {
+        Account account = new Account();
+        when(accountRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(account));
+        when(transactionRepository.sumAmountByAccountAndTypeAndTimestampBetween(eq(account), any(), any(), any()))
+                .thenReturn(new BigDecimal("200"));
+        DailyTransferTotal existing = total(2L, "150");
+        when(totalRepository.findById(new DailyTransferTotalId(2L, DAY))).thenReturn(Optional.of(existing));
+
+        service.rebuildAccount(2L, DAY);
+
+        assertEquals(new BigDecimal("200"), existing.getTotal());
+        verify(totalRepository).save(existing);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.model.IdempotencyRecord;
+import com.example.banking.model.IdempotencyRecordId;
+import com.example.banking.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IdempotencyServiceTest {
+    private static final String SCOPE = "test@example.com";
+    private static final String FINGERPRINT = IdempotencyService.fingerprint("transfer", "1", "2", BigDecimal.TEN);
+
+    private IdempotencyRecordRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private LedgerEngine ledgerEngine;
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(IdempotencyRecordRepository.class);
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccountConcurrency accountConcurrency = new AccountConcurrency(transactionManager, meterRegistry,
+                AccountConcurrency.Mode.PESSIMISTIC, 1, Duration.ZERO);
+        ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngine.joinsTransaction()).thenReturn(true);
+        service = new IdempotencyService(repository, new ObjectMapper(), accountConcurrency, ledgerEngine,
+                transactionManager, meterRegistry, 100, Duration.ofHours(1), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void retryReplaysStoredResponseWithoutRunningAgain() {
+        AtomicInteger runs = new AtomicInteger();
+
+        IdempotencyService.Result first = service.execute("k", SCOPE, FINGERPRINT,
+                () -> Map.of("balance", runs.incrementAndGet()));
+        IdempotencyService.Result retry = service.execute("k", SCOPE, FINGERPRINT,
+                () -> Map.of("balance", runs.incrementAndGet()));
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(1, runs.get());
+        assertEquals(1, ((JsonNode) retry.body()).get("balance").asInt());
+        verify(repository).saveAndFlush(any());
+    }
+
+    @Test
+    void storedResponseIsReplayedFromDatabase() {
+        IdempotencyRecord record = new IdempotencyRecord(SCOPE, "k", FINGERPRINT);
+        record.complete("{\"balance\":7}".getBytes(StandardCharsets.UTF_8));
+        when(repository.findById(new IdempotencyRecordId(SCOPE, "k"))).thenReturn(Optional.of(record));
+
+        IdempotencyService.Result result = service.execute("k", SCOPE, FINGERPRINT,
+                () -> fail("must not run"));
+
+        assertTrue(result.replayed());
+        assertEquals(7, ((JsonNode) result.body()).get("balance").asInt());
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void keyCommittedByAnotherNodeIsReplayed() {
+        IdempotencyRecord record = new IdempotencyRecord(SCOPE, "k", FINGERPRINT);
+        record.complete("{\"balance\":7}".getBytes(StandardCharsets.UTF_8));
+        when(repository.findById(new IdempotencyRecordId(SCOPE, "k")))
+                .thenReturn(Optional.empty()).thenReturn(Optional.of(record));
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        IdempotencyService.Result result = service.execute("k", SCOPE, FINGERPRINT,
+                () -> fail("must not run"));
+
+        assertTrue(result.replayed());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejected() {
+        service.execute("k", SCOPE, FINGERPRINT, () -> Map.of());
+
+        String other = IdempotencyService.fingerprint("transfer", "1", "2", BigDecimal.ONE);
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.execute("k", SCOPE, other, () -> Map.of()));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatusCode());
+        // Keys are per caller, so someone else may use the same one.
+        assertFalse(service.execute("k", "other@example.com", other, () -> Map.of()).replayed());
+    }
+
+    @Test
+    void amountsAreComparedByValue() {
+        assertEquals(FINGERPRINT, IdempotencyService.fingerprint("transfer", "1", "2", new BigDecimal("10.00")));
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForFirstResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<IdempotencyService.Result> first = CompletableFuture.supplyAsync(
+                () -> service.execute("k", SCOPE, FINGERPRINT, () -> {
+                    runs.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Map.of("balance", 1);
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<IdempotencyService.Result> duplicate = CompletableFuture.supplyAsync(
+                () -> service.execute("k", SCOPE, FINGERPRINT, () -> Map.of("balance", runs.incrementAndGet())));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+
+        release.countDown();
+
+        assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+        assertTrue(duplicate.get(5, TimeUnit.SECONDS).replayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestLeavesKeyUsable() {
+        assertThrows(IllegalArgumentException.class, () -> service.execute("k", SCOPE, FINGERPRINT,
+                () -> {
+                    throw new IllegalArgumentException("Insufficient balance");
+                }));
+
+        IdempotencyService.Result retry = service.execute("k", SCOPE, FINGERPRINT, () -> Map.of());
+        assertFalse(retry.replayed());
+    }
+
+    @Test
+    void keyIsCommittedBeforeAnEngineOutsideTheTransaction() {
+        when(ledgerEngine.joinsTransaction()).thenReturn(false);
+        when(repository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
+
+        IdempotencyService.Result result = service.execute("k", SCOPE, FINGERPRINT, () -> {
+            verify(repository).saveAndFlush(any());
+            verify(transactionManager).commit(any());
+            return Map.of("balance", 7);
+        });
+
+        assertFalse(result.replayed());
+        ArgumentCaptor<IdempotencyRecord> completed = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(repository).save(completed.capture());
+        assertEquals("{\"balance\":7}", new String(completed.getValue().getResponse(), StandardCharsets.UTF_8));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void rejectedPostingReleasesKeyButUnknownOutcomeKeepsIt() {
+        when(ledgerEngine.joinsTransaction()).thenReturn(false);
+        when(repository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
+
+        assertThrows(IllegalArgumentException.class, () -> service.execute("k", SCOPE, FINGERPRINT, () -> {
+            throw new IllegalArgumentException("Insufficient balance");
+        }));
+        verify(repository).deleteById(new IdempotencyRecordId(SCOPE, "k"));
+
+        assertThrows(ResponseStatusException.class, () -> service.execute("k2", SCOPE, FINGERPRINT, () -> {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "timeout");
+        }));
+        verify(repository, never()).deleteById(new IdempotencyRecordId(SCOPE, "k2"));
+        verify(repository, never()).save(any());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.banking.model.TransactionType;
+
+class LedgerJournalTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsSurviveReopenAfterCheckpoint() throws Exception {
+        LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, 0);
+        LedgerJournal.Entry first = journal.append(entry(TransactionType.TRANSFER_OUT, "12.50", 0), null, null);
+        LedgerJournal.Entry second = journal.append(entry(TransactionType.TRANSFER_IN, "12.50", first.seq()),
+                null, null);
+        journal.sync();
+        journal.close();
+
+        LedgerJournal reopened = LedgerJournal.open(directory, SEGMENT_SIZE, first.seq());
+
+        assertEquals(List.of(second), reopened.recovered());
+        assertEquals(new BigDecimal("12.50"), reopened.recovered().get(0).amount());
+        assertEquals(3, reopened.append(entry(TransactionType.DEPOSIT, "1", 0), null, null).seq());
+        reopened.close();
+    }
+
+    @Test
+    void appendedEntriesAreDrainedInSequenceOrder() throws Exception {
+        LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, 0);
+        journal.append(entry(TransactionType.DEPOSIT, "1", 0), null, null);
+        journal.append(entry(TransactionType.DEPOSIT, "2", 0), null, null);
+        List<LedgerJournal.Appended> drained = new ArrayList<>();
+
+        assertTrue(journal.drainAppended(drained, 0, TimeUnit.MILLISECONDS));
+
+        assertEquals(List.of(1L, 2L), drained.stream().map(a -> a.entry().seq()).toList());
+        assertFalse(journal.drainAppended(drained, 0, TimeUnit.MILLISECONDS));
+        journal.close();
+    }
+
+    @Test
+    void tornRecordIsDroppedAndOverwritten() throws Exception {
+        LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, 0);
+        journal.append(entry(TransactionType.DEPOSIT, "1", 0), null, null);
+        journal.append(entry(TransactionType.DEPOSIT, "2", 0), null, null);
+        journal.close();
+        int second = 8 + LedgerJournal.encode(entry(TransactionType.DEPOSIT, "1", 0).withSeq(1)).length;
+        // Flip a payload byte of the second record, as if the crash hit halfway through writing it.
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), second + 12);
+        }
+
+        LedgerJournal reopened = LedgerJournal.open(directory, SEGMENT_SIZE, 0);
+
+        assertEquals(List.of(1L), reopened.recovered().stream().map(LedgerJournal.Entry::seq).toList());
+        reopened.append(entry(TransactionType.DEPOSIT, "3", 0), null, null);
+        reopened.close();
+        assertEquals(List.of(new BigDecimal("1"), new BigDecimal("3")),
+                LedgerJournal.open(directory, SEGMENT_SIZE, 0).recovered().stream()
+                        .map(LedgerJournal.Entry::amount).toList());
+    }
+
+    @Test
+    void fullSegmentsRollOverAndAreTrimmedOnceProjected() throws Exception {
+        LedgerJournal journal = LedgerJournal.open(directory, SEGMENT_SIZE, 0);
+        long last = 0;
+        while (segments().size() < 3) {
+            last = journal.append(entry(TransactionType.DEPOSIT, "1", 0), null, null).seq();
+        }
+
+        journal.trim(last - 1);
+
+        assertEquals(1, segments().size());
+        journal.close();
+        assertEquals(List.of(last), LedgerJournal.open(directory, SEGMENT_SIZE, last - 1).recovered().stream()
+                .map(LedgerJournal.Entry::seq).toList());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static LedgerJournal.Entry entry(TransactionType type, String amount, long origin) {
+        return new LedgerJournal.Entry(0, type, LocalDateTime.of(2025, 6, 1, 9, 30, 15, 123_000_000), 7L, "A1",
+                type == TransactionType.DEPOSIT ? "" : "B1", new BigDecimal(amount), new BigDecimal("100.00"), 3L,
+                origin);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.util.unit.DataSize;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.model.Account;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.DailyTransferTotalRepository;
+import com.example.banking.repository.LedgerCheckpointRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MemoryLedgerEngineTest {
+    @TempDir
+    Path directory;
+
+    private AccountRepository accountRepository;
+    private LedgerCheckpointRepository checkpointRepository;
+    private SettingsService settingsService;
+    private PlatformTransactionManager transactionManager;
+    private MemoryLedgerEngine engine;
+
+    @BeforeEach
+    void setup() {
+        accountRepository = mock(AccountRepository.class);
+        checkpointRepository = mock(LedgerCheckpointRepository.class);
+        settingsService = mock(SettingsService.class);
+        when(settingsService.getDailyTransferLimit()).thenReturn(new BigDecimal("50000"));
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        account(1L, "A1", "111", "100");
+        account(2L, "B1", "222", "0");
+        engine = startEngine();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void transferDebitsSenderAndProjectsBothSides() {
+        Account from = engine.transfer("A1", "B1", new BigDecimal("20"), "111");
+
+        assertEquals(new BigDecimal("80"), from.getBalance());
+        assertEquals(1L, from.getVersion());
+        verify(accountRepository, timeout(2000)).overwriteBalance(1L, new BigDecimal("80"), 1L);
+        verify(accountRepository, timeout(2000)).overwriteBalance(2L, new BigDecimal("20"), 1L);
+        verify(checkpointRepository, timeout(2000).atLeastOnce()).save(any());
+    }
+
+    @Test
+    void transferIsRejectedWithoutChangingBalances() {
+        assertEquals("Insufficient balance", assertThrows(IllegalArgumentException.class,
+                () -> engine.transfer("A1", "B1", new BigDecimal("101"), "111")).getMessage());
+        assertEquals(ErrorMessages.ACCESS_DENIED, assertThrows(IllegalArgumentException.class,
+                () -> engine.transfer("A1", "B1", BigDecimal.ONE, "222")).getMessage());
+        assertEquals(ErrorMessages.ACCOUNT_NOT_FOUND, assertThrows(IllegalArgumentException.class,
+                () -> engine.transfer("A1", "C1", BigDecimal.ONE, "111")).getMessage());
+        when(settingsService.getDailyTransferLimit()).thenReturn(new BigDecimal("30"));
+        engine.transfer("A1", "B1", new BigDecimal("30"), "111");
+        assertEquals(ErrorMessages.DAILY_LIMIT_EXCEEDED, assertThrows(IllegalArgumentException.class,
+                () -> engine.transfer("A1", "B1", BigDecimal.ONE, "111")).getMessage());
+
+        assertEquals(new BigDecimal("80"), engine.deposit("A1", BigDecimal.TEN).getBalance());
+    }
+
+    @Test
+    void restartReplaysJournalAfterCheckpoint() {
+        engine.deposit("A1", new BigDecimal("5"));
+        engine.transfer("A1", "B1", new BigDecimal("20"), "111");
+        engine.stop();
+
+        // The database never saw the projection, so everything is replayed.
+        engine = startEngine();
+
+        // Replayed before the engine takes requests; a new credit would land on its own time.
+        assertEquals(new BigDecimal("20"), engine.deposit("B1", BigDecimal.ZERO).getBalance());
+        assertEquals(BigDecimal.ZERO.setScale(0), engine.transfer("A1", "B1", new BigDecimal("85"), "111")
+                .getBalance());
+    }
+
+    @Test
+    void debitWithoutCreditIsCreditedOnStart() throws Exception {
+        engine.stop();
+        LedgerJournal journal = LedgerJournal.open(directory, 4096, 0);
+        journal.append(new LedgerJournal.Entry(0, TransactionType.TRANSFER_OUT, LocalDateTime.now(), 1L, "A1", "B1",
+                new BigDecimal("20"), new BigDecimal("80"), 1L, 0), null, null);
+        journal.close();
+
+        engine = startEngine();
+
+        verify(accountRepository, timeout(2000)).overwriteBalance(2L, new BigDecimal("20"), 1L);
+        assertEquals(new BigDecimal("80"), engine.deposit("A1", BigDecimal.ZERO).getBalance());
+    }
+
+    private MemoryLedgerEngine startEngine() {
+        MemoryLedgerEngine started = new MemoryLedgerEngine(accountRepository, mock(TransactionRepository.class),
+                mock(DailyTransferTotalRepository.class), checkpointRepository, settingsService,
+                new AccountCache(100, Duration.ofMinutes(1)), transactionManager, new SimpleMeterRegistry(), 2, 16,
+                Duration.ofSeconds(5), directory, DataSize.ofKilobytes(4), 100);
+        started.start();
+        return started;
+    }
+
+    private void account(Long id, String number, String citizenId, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(number);
+        account.setCitizenId(citizenId);
+        account.setBalance(new BigDecimal(balance));
+        ReflectionTestUtils.setField(account, "id", id);
+        ReflectionTestUtils.setField(account, "version", 0L);
+        when(accountRepository.findByAccountNumber(number)).thenReturn(Optional.of(account));
+        when(accountRepository.existsByAccountNumber(number)).thenReturn(true);
+    }
+}
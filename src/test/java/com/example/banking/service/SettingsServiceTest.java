@@ -0,0 +1,88 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.banking.model.Setting;
+import com.example.banking.repository.SettingRepository;
+
+class SettingsServiceTest {
+    private SettingRepository settingRepository;
+    private SettingsService service;
+
+    @BeforeEach
+    void setup() {
+        settingRepository = mock(SettingRepository.class);
+        service = new SettingsService(settingRepository);
+    }
+
+    private Setting setting(String name, String value) {
+        Setting s = new Setting();
+        s.setName(name);
+        s.setValue(new BigDecimal(value));
+        return s;
+    }
+
+    private SettingRepository.SettingsVersion version(long count, Instant lastUpdated) {
+        return new SettingRepository.SettingsVersion() {
+            public long getCount() {
+                return count;
+            }
+
+            public Instant getLastUpdated() {
+                return lastUpdated;
+            }
+        };
+    }
+
+    @Test
+    void readsServedFromSnapshotWithoutDatabaseAccess() {
+        Instant t0 = Instant.parse("2025-05-01T00:00:00Z");
+        when(settingRepository.findVersion()).thenReturn(version(1, t0));
+        when(settingRepository.findAll()).thenReturn(List.of(setting("DAILY_TRANSFER_LIMIT", "20000")));
+
+        assertEquals(new BigDecimal("20000"), service.getDailyTransferLimit());
+        assertEquals(new BigDecimal("20000"), service.getDailyTransferLimit());
+        assertEquals(20000L, service.getLong("DAILY_TRANSFER_LIMIT", 0));
+
+        verify(settingRepository, times(1)).findAll();
+        verify(settingRepository, times(1)).findVersion();
+    }
+
+    @Test
+    void fallsBackToDefaultWhenSettingMissing() {
+        when(settingRepository.findVersion()).thenReturn(version(0, null));
+        when(settingRepository.findAll()).thenReturn(List.of());
+
+        assertEquals(new BigDecimal("50000"), service.getDailyTransferLimit());
+        assertEquals(7L, service.getLong("OTHER", 7));
+    }
+
+    @Test
+    void refreshReloadsOnlyWhenVersionChanges() {
+        Instant t0 = Instant.parse("2025-05-01T00:00:00Z");
+        Instant t1 = Instant.parse("2025-05-02T00:00:00Z");
+        when(settingRepository.findVersion()).thenReturn(version(1, t0));
+        when(settingRepository.findAll())
+                .thenReturn(List.of(setting("DAILY_TRANSFER_LIMIT", "20000")))
+                .thenReturn(List.of(setting("DAILY_TRANSFER_LIMIT", "30000")));
+
+        service.refresh();
+        service.refresh();
+        verify(settingRepository, times(1)).findAll();
+        assertEquals(new BigDecimal("20000"), service.getDailyTransferLimit());
+        assertNotNull(service.getLastChecked());
+
+        when(settingRepository.findVersion()).thenReturn(version(1, t1));
+        service.refresh();
+        verify(settingRepository, times(2)).findAll();
+        assertEquals(new BigDecimal("30000"), service.getDailyTransferLimit());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.banking.ErrorMessages;
+import com.example.banking.config.WorkerThreads;
+import com.example.banking.dto.ExportJobRequest;
+import com.example.banking.dto.ExportJobResponse;
+import com.example.banking.dto.ExportJobResponse.Status;
+import com.example.banking.dto.StatementExportRequest.Format;
+import com.example.banking.model.Account;
+import com.example.banking.repository.AccountRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StatementExportJobServiceTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final ExportJobRequest REQUEST = new ExportJobRequest("1234567", FROM, TO, Format.CSV);
+
+    @TempDir
+    Path directory;
+
+    private StatementExportService exportService;
+    private StatementExportJobService service;
+
+    @BeforeEach
+    void setup() {
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        when(accountRepository.findByAccountNumber("1234567")).thenReturn(Optional.of(new Account()));
+        exportService = mock(StatementExportService.class);
+        service = new StatementExportJobService(accountRepository, exportService, new SimpleMeterRegistry(),
+                new WorkerThreads(false), directory, 1, 1, Duration.ZERO,
+                Clock.fixed(Instant.parse("2025-01-02T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    private ExportJobResponse await(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ExportJobResponse job = service.status(id, "teller@example.com");
+            if (job.status() == Status.COMPLETED || job.status() == Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("export did not finish");
+        return null;
+    }
+
+    @Test
+    void exportIsWrittenToFileForItsOwner() throws Exception {
+        doAnswer(i -> {
+            i.getArgument(4, OutputStream.class).write("date,time\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).write(any(), eq(FROM), eq(TO), eq(Format.CSV), any());
+
+        ExportJobResponse job = service.submit(REQUEST, "teller@example.com");
+
+        assertEquals(Status.COMPLETED, await(job.id()).status());
+        assertEquals("date,time\n", Files.readString(service.file(job.id(), "teller@example.com")));
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.status(job.id(), "other@example.com"));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    @Test
+    void failedExportLeavesNoFile() throws Exception {
+        doThrow(new IllegalStateException("boom")).when(exportService).write(any(), any(), any(), any(), any());
+
+        ExportJobResponse job = await(service.submit(REQUEST, "teller@example.com").id());
+
+        assertEquals(Status.FAILED, job.status());
+        // Driver and SQL messages stay in the log.
+        assertEquals(ErrorMessages.EXPORT_FAILED, job.error());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void fullQueueIsRejectedAndUnfinishedJobsCannotBeDownloaded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(i -> {
+            release.await();
+            return null;
+        }).when(exportService).write(any(), any(), any(), any(), any());
+        ExportJobResponse running = service.submit(REQUEST, "teller@example.com");
+        service.submit(REQUEST, "teller@example.com");
+
+        ResponseStatusException busy = assertThrows(ResponseStatusException.class,
+                () -> service.submit(REQUEST, "teller@example.com"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatusCode());
+        ResponseStatusException notReady = assertThrows(ResponseStatusException.class,
+                () -> service.file(running.id(), "teller@example.com"));
+        assertEquals(HttpStatus.CONFLICT, notReady.getStatusCode());
+        release.countDown();
+    }
+
+    @Test
+    void expiredJobsAreDeletedWithTheirFiles() throws Exception {
+        ExportJobResponse job = await(service.submit(REQUEST, "teller@example.com").id());
+        Path file = service.file(job.id(), "teller@example.com");
+
+        service.purgeExpired();
+
+        assertFalse(Files.exists(file));
+        assertThrows(ResponseStatusException.class, () -> service.status(job.id(), "teller@example.com"));
+    }
+}
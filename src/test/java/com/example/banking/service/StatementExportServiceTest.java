@@ -0,0 +1,111 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.dto.StatementExportRequest.Format;
+import com.example.banking.repository.StatementStreamRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class StatementExportServiceTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 7, 1, 0, 0);
+
+    private StatementStreamRepository repository;
+    private AccountStripes accountStripes;
+    private PlatformTransactionManager transactionManager;
+    private StatementExportService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        repository = mock(StatementStreamRepository.class);
+        doAnswer(i -> {
+            Consumer<StatementEntry> action = i.getArgument(3);
+            action.accept(new StatementEntry("1/5/2025", "10:30", "A0", "OTC",
+                    new BigDecimal("100.00"), new BigDecimal("100.00"), "Deposit"));
+            action.accept(new StatementEntry("2/5/2025", "09:00", "A1", "ATS",
+                    new BigDecimal("-40.50"), new BigDecimal("59.50"), "To 7654321, \"rent\""));
+            return null;
+        }).when(repository).forEach(eq(1L), eq(FROM), eq(TO), any(Consumer.class));
+        accountStripes = mock(AccountStripes.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        service = new StatementExportService(repository, new ObjectMapper(), accountStripes, transactionManager);
+    }
+
+    private String export(Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(1L, FROM, TO, format).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesOneJsonObjectPerLine() throws Exception {
+        String[] lines = export(Format.NDJSON).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"date\":\"1/5/2025\""));
+        assertEquals(-40.5, new ObjectMapper().readTree(lines[1]).get("debitCredit").asDouble());
+    }
+
+    @Test
+    void writesCsvWithHeaderAndQuotedRemarks() throws Exception {
+        String[] lines = export(Format.CSV).split("\n");
+
+        assertEquals(StatementExportService.CSV_HEADER, lines[0]);
+        assertEquals("1/5/2025,10:30,A0,OTC,100.00,100.00,Deposit", lines[1]);
+        assertEquals("2/5/2025,09:00,A1,ATS,-40.50,59.50,\"To 7654321, \"\"rent\"\"\"", lines[2]);
+    }
+
+    @Test
+    void stripedAccountsGetRecomputedBalancesInOneSnapshot() throws Exception {
+        when(accountStripes.hasStripes(1L)).thenReturn(true);
+        UnaryOperator<StatementEntry> balances = entry -> new StatementEntry(entry.date(), entry.time(),
+                entry.code(), entry.channel(), entry.debitCredit(), entry.debitCredit().add(BigDecimal.TEN),
+                entry.remark());
+        when(accountStripes.runningBalancesFrom(1L, FROM)).thenReturn(balances);
+
+        String[] lines = export(Format.CSV).split("\n");
+
+        assertEquals("1/5/2025,10:30,A0,OTC,100.00,110.00,Deposit", lines[1]);
+        assertTrue(lines[2].startsWith("2/5/2025,09:00,A1,ATS,-40.50,-30.50,"));
+        verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()
+                && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
+    }
+
+    @Test
+    void unstripedAccountsNeedNoTransaction() throws Exception {
+        export(Format.NDJSON);
+
+        verify(accountStripes, never()).runningBalancesFrom(any(), any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void quotesFieldsWithLineBreaks() {
+        assertEquals("\"a\r\nb\"", StatementExportService.csvField("a\r\nb"));
+        assertEquals("\"a\rb\"", StatementExportService.csvField("a\rb"));
+        assertEquals("plain", StatementExportService.csvField("plain"));
+    }
+
+    @Test
+    void rejectsEmptyRange() {
+        assertThrows(IllegalArgumentException.class, () -> service.export(1L, TO, FROM, Format.CSV));
+        verifyNoInteractions(repository);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.banking.dto.StatementEntry;
+import com.example.banking.mapper.TransactionMapperImpl;
+import com.example.banking.model.StatementSnapshot;
+import com.example.banking.model.StatementSnapshotId;
+import com.example.banking.model.TransactionChannel;
+import com.example.banking.model.TransactionType;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.AccountStripeRepository;
+import com.example.banking.repository.StatementRow;
+import com.example.banking.repository.StatementSnapshotRepository;
+import com.example.banking.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StatementSnapshotServiceTest {
+    private static final YearMonth LAST_MONTH = YearMonth.now().minusMonths(1);
+
+    private StatementSnapshotRepository snapshotRepository;
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private StatementSnapshotService service;
+
+    @BeforeEach
+    void setup() {
+        snapshotRepository = mock(StatementSnapshotRepository.class);
+        accountRepository = mock(AccountRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        service = new StatementSnapshotService(snapshotRepository, accountRepository, transactionRepository,
+                new TransactionMapperImpl(), new ObjectMapper(),
+                new AccountStripes(mock(AccountStripeRepository.class), mock(AccountRepository.class),
+                        transactionRepository, transactionManager, Set.of(), 16),
+                transactionManager, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void freezeStoresCompressedStatementThatFindReturns() {
+        LocalDateTime t = LAST_MONTH.atDay(3).atTime(9, 30);
+        when(transactionRepository.findStatementRows(eq(1L), any(), any())).thenReturn(List.of(
+                new StatementRow(t, TransactionType.DEPOSIT, TransactionChannel.TELLER,
+                        new BigDecimal("100.00"), new BigDecimal("100.00"), "Deposit"),
+                new StatementRow(t.plusHours(1), TransactionType.TRANSFER_OUT, TransactionChannel.ONLINE,
+                        new BigDecimal("40.50"), new BigDecimal("59.50"), "To 7654321")));
+
+        service.freeze(1L, LAST_MONTH);
+
+        ArgumentCaptor<StatementSnapshot> saved = ArgumentCaptor.forClass(StatementSnapshot.class);
+        verify(snapshotRepository).save(saved.capture());
+        assertEquals(2, saved.getValue().getEntryCount());
+        when(snapshotRepository.findById(new StatementSnapshotId(1L, LAST_MONTH.atDay(1))))
+                .thenReturn(Optional.of(saved.getValue()));
+        List<StatementEntry> entries = service.find(1L, LAST_MONTH).orElseThrow();
+        assertEquals(new BigDecimal("-40.50"), entries.get(1).debitCredit());
+        assertEquals("Deposit", entries.get(0).remark());
+    }
+
+    @Test
+    void freezeLocksAccountBeforeReadingTheMonth() {
+        when(transactionRepository.findStatementRows(eq(1L), any(), any())).thenReturn(List.of());
+
+        service.freeze(1L, LAST_MONTH);
+
+        InOrder order = inOrder(accountRepository, transactionRepository, snapshotRepository);
+        order.verify(accountRepository).lockBalanceById(1L);
+        order.verify(transactionRepository).findStatementRows(eq(1L), any(), any());
+        order.verify(snapshotRepository).save(any());
+    }
+
+    @Test
+    void freezeMonthSkipsAccountsAlreadyFrozen() {
+        when(transactionRepository.findAccountIdsWithActivityBetween(any(), any())).thenReturn(List.of(1L, 2L));
+        when(snapshotRepository.findAccountIdsByMonth(LAST_MONTH.atDay(1))).thenReturn(List.of(1L));
+        when(transactionRepository.findStatementRows(any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(1, service.freezeMonth(LAST_MONTH));
+        verify(transactionRepository).findStatementRows(eq(2L), any(), any());
+        verify(transactionRepository, never()).findStatementRows(eq(1L), any(), any());
+    }
+
+    @Test
+    void currentMonthCannotBeFrozen() {
+        assertThrows(IllegalArgumentException.class, () -> service.freeze(1L, YearMonth.now()));
+        verifyNoInteractions(snapshotRepository);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.banking.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.banking.config.WorkerThreads;
+import com.example.banking.model.Account;
+import com.example.banking.repository.AccountRepository;
+import com.example.banking.repository.AccountStripeRepository;
+import com.example.banking.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TransferCoalescerTest {
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private DailyTransferTotalService dailyTransferTotalService;
+    private PlatformTransactionManager txManager;
+    private SimpleMeterRegistry meterRegistry;
+    private TransferCoalescer coalescer;
+
+    @BeforeEach
+    void setup() {
+        accountRepository = mock(AccountRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        dailyTransferTotalService = mock(DailyTransferTotalService.class);
+        txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        // Every transaction reads the rows afresh, as it would after a rollback.
+        when(accountRepository.findAllByAccountNumberInForUpdate(any())).thenAnswer(i -> List.of(
+                account("A1", "111", "100"), account("B1", "222", "100"),
+                account("C1", "333", "100"), account("D1", "444", "100")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.close();
+    }
+
+    @Test
+    void concurrentTransfersShareOneTransaction() throws Exception {
+        // The collector starts once all three transfers are queued, so they form one group in queue order.
+        CountDownLatch release = new CountDownLatch(1);
+        WorkerThreads gated = mock(WorkerThreads.class);
+        when(gated.factory(any())).thenReturn(task -> new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+        }));
+        coalescer = coalescer(true, 3, gated);
+
+        CompletableFuture<Account> first = queue("A1", "B1", "10", "111", 1);
+        CompletableFuture<Account> second = queue("C1", "D1", "20", "333", 2);
+        CompletableFuture<Account> third = queue("B1", "C1", "30", "222", 3);
+        release.countDown();
+
+        // The third sees the first's credit to B1; the second ran before the third's credit to C1.
+        assertEquals(new BigDecimal("90"), first.get().getBalance());
+        assertEquals(new BigDecimal("80"), second.get().getBalance());
+        assertEquals(new BigDecimal("80"), third.get().getBalance());
+        verify(accountRepository, times(1)).findAllByAccountNumberInForUpdate(any());
+        verify(txManager, times(1)).commit(any());
+        assertEquals(3.0, meterRegistry.get("banking.group_commit.size").summary().max());
+    }
+
+    /** Starts a transfer and waits until it is the {@code position}th in the queue. */
+    private CompletableFuture<Account> queue(String from, String to, String amount, String citizenId,
+                                             int position) throws InterruptedException {
+        CompletableFuture<Account> result = CompletableFuture.supplyAsync(
+                () -> coalescer.transfer(from, to, new BigDecimal(amount), citizenId));
+        BlockingQueue<?> queue = (BlockingQueue<?>) ReflectionTestUtils.getField(coalescer, "queue");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.size() < position) {
+            assertTrue(System.nanoTime() < deadline, "transfer was not queued");
+            Thread.sleep(1);
+        }
+        return result;
+    }
+
+    @Test
+    void failingTransferDropsOutOfItsGroup() {
+        coalescer = coalescer(false, 32);
+        TransferCoalescer.Pending broke = pending("A1", "B1", "500", "111");
+        TransferCoalescer.Pending fine = pending("C1", "D1", "20", "333");
+        TransferCoalescer.Pending stranger = pending("B1", "C1", "1", "999");
+
+        coalescer.run(List.of(broke, fine, stranger));
+
+        assertEquals("Insufficient balance", cause(broke).getMessage());
+        assertEquals(new BigDecimal("80"), fine.result.join().getBalance());
+        assertInstanceOf(IllegalArgumentException.class, cause(stranger));
+        verify(txManager, times(1)).commit(any());
+        verify(dailyTransferTotalService, times(1)).recordTransfer(any(), any(), any(), any());
+    }
+
+    @Test
+    void groupFailingInDatabaseIsRunOneByOne() {
+        coalescer = coalescer(false, 32);
+        when(transactionRepository.saveAll(any()))
+                .thenThrow(new DataIntegrityViolationException("boom"))
+                .thenReturn(List.of())
+                .thenThrow(new DataIntegrityViolationException("boom"));
+        TransferCoalescer.Pending fine = pending("A1", "B1", "10", "111");
+        TransferCoalescer.Pending poisoned = pending("C1", "D1", "20", "333");
+
+        coalescer.run(List.of(fine, poisoned));
+
+        assertEquals(new BigDecimal("90"), fine.result.join().getBalance());
+        assertInstanceOf(DataIntegrityViolationException.class, cause(poisoned));
+        assertEquals(1.0, meterRegistry.get("banking.group_commit.reruns").counter().count());
+    }
+
+    private TransferCoalescer coalescer(boolean enabled, int maxItems) {
+        return coalescer(enabled, maxItems, new WorkerThreads(false));
+    }
+
+    private TransferCoalescer coalescer(boolean enabled, int maxItems, WorkerThreads workerThreads) {
+        SettingsService settingsService = mock(SettingsService.class);
+        when(settingsService.getDailyTransferLimit()).thenReturn(new BigDecimal("50000"));
+        return new TransferCoalescer(accountRepository, transactionRepository, settingsService,
+                dailyTransferTotalService, new AccountCache(100, Duration.ofMinutes(1)),
+                new AccountStripes(mock(AccountStripeRepository.class), accountRepository, transactionRepository,
+                        txManager, Set.of(), 16),
+                txManager, meterRegistry, workerThreads, enabled, Duration.ofSeconds(5), maxItems, 1);
+    }
+
+    private static TransferCoalescer.Pending pending(String from, String to, String amount, String citizenId) {
+        return new TransferCoalescer.Pending(from, to, new BigDecimal(amount), citizenId, System.nanoTime());
+    }
+
+    private static Throwable cause(TransferCoalescer.Pending pending) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> pending.result.get());
+        return e.getCause();
+    }
+
+    private static Account account(String number, String citizenId, String balance) {
+        Account account = new Account();
+        account.setAccountNumber(number);
+        account.setCitizenId(citizenId);
+        account.setBalance(new BigDecimal(balance));
+        ReflectionTestUtils.setField(account, "id", (long) number.charAt(0));
+        return account;
+    }
+}
@@ -50,4 +50,28 @@ class UserServiceTest {
         when(userRepository.existsByCitizenId("111")).thenReturn(true);
         assertThrows(IllegalArgumentException.class, () -> userService.register(req));
     }
-}
\ No newline at end of file
+
+    @Test
+    void changePinReplacesHash() {
+        User user = new User();
+        user.setPinHash("old");
+        when(userRepository.findByEmail("a@b.com")).thenReturn(java.util.Optional.of(user));
+        when(passwordEncoder.matches("123456", "old")).thenReturn(true);
+
+        userService.changePin("a@b.com", "123456", "654321");
+        assertEquals("ENC-654321", user.getPinHash());
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    void changePinWithWrongCurrentPinThrows() {
+        User user = new User();
+        user.setPinHash("old");
+        when(userRepository.findByEmail("a@b.com")).thenReturn(java.util.Optional.of(user));
+        when(passwordEncoder.matches("000000", "old")).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.changePin("a@b.com", "000000", "654321"));
+        verify(userRepository, never()).save(any());
+    }
+}